@@ -1,7 +1,8 @@
-import React, { useState } from 'react';
+import React, { useEffect, useState } from 'react';
 import axios from 'axios';
-import ResultsTable from './components/ResultsTable';
+import ResultsTable, { toFilter } from './components/ResultsTable';
 import QueryHistory from './components/QueryHistory';
+import SlowQueries from './components/SlowQueries';
 import { API_ENDPOINTS } from './config';
 import './App.css';
 
@@ -9,12 +10,24 @@ function App() {
   const [query, setQuery] = useState('');
   const [page, setPage] = useState(0);
   const [size, setSize] = useState(20);
+  const [keyset, setKeyset] = useState(false);
+  const [cursors, setCursors] = useState({ next: null, prev: null });
+  const [sort, setSort] = useState(null);
+  const [filters, setFilters] = useState({});
   const [results, setResults] = useState(null);
   const [loading, setLoading] = useState(false);
   const [error, setError] = useState(null);
   const [queryHistory, setQueryHistory] = useState([]);
+  const [datasources, setDatasources] = useState([]);
+  const [datasource, setDatasource] = useState('default');
 
-  const executeQuery = async () => {
+  useEffect(() => {
+    axios.get(API_ENDPOINTS.SQL_DATASOURCES)
+      .then(response => setDatasources((response.data.payload || []).map(d => d.name)))
+      .catch(() => setDatasources([]));
+  }, []);
+
+  const executeQuery = async ({ cursor = null, pageOverride = null, view = { sort, filters } } = {}) => {
     if (!query.trim()) {
       setError('Please enter a SQL query');
       return;
@@ -27,14 +40,45 @@ function App() {
     try {
       const response = await axios.post(API_ENDPOINTS.SQL_RUN, {
         query: query.trim(),
-        page: page,
-        size: size
+        page: pageOverride ?? page,
+        size: size,
+        keyset: keyset,
+        cursor: cursor,
+        datasource: datasource,
+        // sorted and filtered by the database over the whole result, not just this page
+        sort: !keyset && view.sort ? [view.sort] : null,
+        filters: keyset ? null : Object.entries(view.filters).map(([column, text]) => toFilter(column, text)),
+        // the total lets the pager show the page count; it is counted once per query and then cached
+        withTotal: !keyset,
+        // columnar sends column names once instead of repeating them per row
+        format: keyset ? 'rows' : 'columnar'
       });
 
       const data = response.data;
 
       if (data.status === 'OK') {
-        setResults(data.payload);
+        const payload = data.payload;
+        if (payload && Array.isArray(payload.columns)) {
+          // Columnar result: column metadata once, rows as arrays
+          setResults({
+            columns: payload.columns.map(c => c.name),
+            rows: payload.rows,
+            total: payload.total,
+            totalEstimated: payload.totalEstimated,
+            truncatedBy: payload.truncatedBy
+          });
+          setCursors({ next: null, prev: null });
+        } else if (payload && Array.isArray(payload.rows)) {
+          // Keyset pages wrap the rows together with next/prev cursors
+          setResults({ ...toColumnar(payload.rows), truncatedBy: payload.truncatedBy });
+          setCursors({ next: payload.nextCursor, prev: payload.prevCursor });
+        } else if (Array.isArray(payload)) {
+          setResults(toColumnar(payload));
+          setCursors({ next: null, prev: null });
+        } else {
+          setResults(payload);
+          setCursors({ next: null, prev: null });
+        }
 
         // Add to history
         setQueryHistory(prev => [{
@@ -62,6 +106,11 @@ function App() {
     }
   };
 
+  const toColumnar = (rows) => {
+    const columns = rows.length > 0 ? Object.keys(rows[0]) : [];
+    return { columns, rows: rows.map(row => columns.map(column => row[column])) };
+  };
+
   const detectQueryType = (sql) => {
     const trimmed = sql.trim().toUpperCase();
     if (trimmed.startsWith('SELECT')) return 'SELECT';
@@ -74,9 +123,49 @@ function App() {
     return 'OTHER';
   };
 
+  const goToPage = (direction) => {
+    if (keyset) {
+      const cursor = direction === 'next' ? cursors.next : cursors.prev;
+      if (cursor) {
+        executeQuery({ cursor });
+      }
+      return;
+    }
+    const nextPage = direction === 'next' ? page + 1 : Math.max(0, page - 1);
+    setPage(nextPage);
+    executeQuery({ pageOverride: nextPage });
+  };
+
+  const canGoPrev = keyset ? !!cursors.prev : page > 0;
+  const isRowResult = results && Array.isArray(results.rows);
+  const hasExactTotal = isRowResult && results.total != null && !results.totalEstimated;
+  const lastPage = hasExactTotal ? Math.max(0, Math.ceil(results.total / size) - 1) : null;
+  const canGoNext = keyset
+    ? !!cursors.next
+    : isRowResult && (hasExactTotal ? page < lastPage : results.rows.length >= size);
+
+  // a new statement starts unsorted and unfiltered, its columns may differ
+  const runQuery = () => {
+    setSort(null);
+    setFilters({});
+    executeQuery({ view: { sort: null, filters: {} } });
+  };
+
+  const changeView = (view) => {
+    setSort(view.sort);
+    setFilters(view.filters);
+    setPage(0);
+    executeQuery({ pageOverride: 0, view });
+  };
+
+  const goToLastPage = () => {
+    setPage(lastPage);
+    executeQuery({ pageOverride: lastPage });
+  };
+
   const handleKeyPress = (e) => {
     if (e.ctrlKey && e.key === 'Enter') {
-      executeQuery();
+      runQuery();
     }
   };
 
@@ -122,6 +211,14 @@ function App() {
 
             <div className="query-options">
               <div className="option-group">
+                {datasources.length > 1 && (
+                  <label>
+                    Datasource:
+                    <select value={datasource} onChange={(e) => setDatasource(e.target.value)}>
+                      {datasources.map(name => <option key={name} value={name}>{name}</option>)}
+                    </select>
+                  </label>
+                )}
                 <label>
                   Page:
                   <input
@@ -131,6 +228,14 @@ function App() {
                     min="0"
                   />
                 </label>
+                <label>
+                  <input
+                    type="checkbox"
+                    checked={keyset}
+                    onChange={(e) => setKeyset(e.target.checked)}
+                  />
+                  Keyset paging
+                </label>
                 <label>
                   Size:
                   <input
@@ -143,7 +248,7 @@ function App() {
               </div>
 
               <button 
-                onClick={executeQuery} 
+                onClick={runQuery} 
                 disabled={loading}
                 className="btn-primary"
               >
@@ -173,8 +278,51 @@ function App() {
 
             {!loading && !error && results && (
               <div className="results-content">
-                {Array.isArray(results) ? (
-                  <ResultsTable data={results} />
+                {isRowResult ? (
+                  <>
+                    <ResultsTable
+                      columns={results.columns}
+                      rows={results.rows}
+                      offset={keyset ? 0 : page * size}
+                      truncatedBy={results.truncatedBy}
+                      sort={keyset ? null : sort}
+                      filters={keyset ? {} : filters}
+                      onSortChange={keyset ? null : (nextSort) => changeView({ sort: nextSort, filters })}
+                      onFiltersChange={keyset ? null : (nextFilters) => changeView({ sort, filters: nextFilters })}
+                    />
+                    <div className="pager">
+                      <button
+                        onClick={() => goToPage('prev')}
+                        disabled={!canGoPrev}
+                        className="btn-secondary"
+                      >
+                        ◀ Prev
+                      </button>
+                      {!keyset && (
+                        <span className="pager-page">
+                          Page {page}
+                          {lastPage != null && ` of ${lastPage}`}
+                          {results.total != null && ` · ${results.totalEstimated ? '~' : ''}${results.total} rows`}
+                        </span>
+                      )}
+                      <button
+                        onClick={() => goToPage('next')}
+                        disabled={!canGoNext}
+                        className="btn-secondary"
+                      >
+                        Next ▶
+                      </button>
+                      {!keyset && hasExactTotal && (
+                        <button
+                          onClick={goToLastPage}
+                          disabled={page >= lastPage}
+                          className="btn-secondary"
+                        >
+                          Last ⏭
+                        </button>
+                      )}
+                    </div>
+                  </>
                 ) : (
                   <div className="non-select-result">
                     <div className="success-icon">✅</div>
@@ -204,6 +352,7 @@ function App() {
 
         <div className="side-panel">
           <QueryHistory history={queryHistory} onSelectQuery={setQuery} />
+          <SlowQueries onSelectQuery={setQuery} />
         </div>
       </div>
     </div>
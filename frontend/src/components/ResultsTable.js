@@ -1,10 +1,36 @@
 import React, { useState } from 'react';
 import './ResultsTable.css';
 
-function ResultsTable({ data }) {
-  const [sortConfig, setSortConfig] = useState({ key: null, direction: 'asc' });
+// Rows are rendered only around the visible part of the table; keep in sync with ResultsTable.css
+const ROW_HEIGHT = 45;
+const VIEWPORT_HEIGHT = 600;
+const OVERSCAN = 10;
 
-  if (!data || data.length === 0) {
+// "text" -> contains, "=x", "!=x", ">x", ">=x", "<x", "<=x", "null", "!null"
+const FILTER_PATTERN = /^(>=|<=|!=|<>|=|>|<)\s*(.*)$/;
+const FILTER_OPS = { '=': 'eq', '!=': 'ne', '<>': 'ne', '>': 'gt', '>=': 'ge', '<': 'lt', '<=': 'le' };
+
+export function toFilter(column, text) {
+  const trimmed = text.trim();
+  if (trimmed.toLowerCase() === 'null') return { column, op: 'isNull' };
+  if (trimmed.toLowerCase() === '!null') return { column, op: 'notNull' };
+  const match = trimmed.match(FILTER_PATTERN);
+  if (!match) return { column, op: 'contains', value: trimmed };
+  const raw = match[2];
+  // numbers go as numbers so they compare numerically, everything else as text
+  const value = raw !== '' && !isNaN(Number(raw)) ? Number(raw) : raw;
+  return { column, op: FILTER_OPS[match[1]], value };
+}
+
+// columns: array of column names; rows: array of value arrays in column order
+// sort: { column, direction } or null; filters: { [column]: text }
+// Sorting and filtering happen on the server over the whole result, see onSortChange/onFiltersChange
+// truncatedBy: 'rows' or 'bytes' when the server's result limits cut the rows off
+function ResultsTable({ columns, rows, offset = 0, sort, filters = {}, onSortChange, onFiltersChange, truncatedBy }) {
+  const [scrollTop, setScrollTop] = useState(0);
+  const [drafts, setDrafts] = useState(filters);
+
+  if (!columns || columns.length === 0) {
     return (
       <div className="empty-results">
         <p>No rows returned</p>
@@ -12,36 +38,26 @@ function ResultsTable({ data }) {
     );
   }
 
-  const columns = Object.keys(data[0]);
-
   const handleSort = (column) => {
-    let direction = 'asc';
-    if (sortConfig.key === column && sortConfig.direction === 'asc') {
-      direction = 'desc';
+    if (!onSortChange) return;
+    // asc -> desc -> unsorted
+    if (!sort || sort.column !== column) {
+      onSortChange({ column, direction: 'asc' });
+    } else if (sort.direction === 'asc') {
+      onSortChange({ column, direction: 'desc' });
+    } else {
+      onSortChange(null);
     }
-    setSortConfig({ key: column, direction });
   };
 
-  const sortedData = [...data].sort((a, b) => {
-    if (!sortConfig.key) return 0;
-
-    const aVal = a[sortConfig.key];
-    const bVal = b[sortConfig.key];
-
-    if (aVal === null || aVal === undefined) return 1;
-    if (bVal === null || bVal === undefined) return -1;
-
-    if (typeof aVal === 'number' && typeof bVal === 'number') {
-      return sortConfig.direction === 'asc' ? aVal - bVal : bVal - aVal;
-    }
-
-    const aStr = String(aVal).toLowerCase();
-    const bStr = String(bVal).toLowerCase();
-
-    if (aStr < bStr) return sortConfig.direction === 'asc' ? -1 : 1;
-    if (aStr > bStr) return sortConfig.direction === 'asc' ? 1 : -1;
-    return 0;
-  });
+  const applyFilters = () => {
+    if (!onFiltersChange) return;
+    const applied = {};
+    Object.entries(drafts).forEach(([column, text]) => {
+      if (text && text.trim()) applied[column] = text;
+    });
+    onFiltersChange(applied);
+  };
 
   const formatValue = (value) => {
     if (value === null || value === undefined) {
@@ -56,46 +72,88 @@ function ResultsTable({ data }) {
     return String(value);
   };
 
+  const first = Math.max(0, Math.floor(scrollTop / ROW_HEIGHT) - OVERSCAN);
+  const last = Math.min(rows.length, Math.ceil((scrollTop + VIEWPORT_HEIGHT) / ROW_HEIGHT) + OVERSCAN);
+  const visibleRows = rows.slice(first, last);
+  const filtered = Object.keys(filters).length > 0;
+
   return (
     <div className="results-table-container">
       <div className="results-info">
-        <span className="row-count">📊 {data.length} row(s) returned</span>
+        <span className="row-count">
+          📊 {rows.length} row(s) returned{filtered && ' (filtered)'}
+        </span>
+        {truncatedBy && (
+          <span className="truncated-notice">
+            ⚠️ Cut off at the server's {truncatedBy === 'bytes' ? 'size' : 'row'} limit, use a smaller page or export
+          </span>
+        )}
       </div>
 
-      <div className="table-wrapper">
+      <div className="table-wrapper" onScroll={(e) => setScrollTop(e.currentTarget.scrollTop)}>
         <table className="results-table">
           <thead>
             <tr>
               <th className="row-number-header">#</th>
-              {columns.map((column) => (
-                <th 
-                  key={column}
+              {columns.map((column, columnIndex) => (
+                <th
+                  key={columnIndex}
                   onClick={() => handleSort(column)}
-                  className="sortable"
+                  className={onSortChange ? 'sortable' : undefined}
                 >
                   <div className="th-content">
                     <span>{column}</span>
-                    {sortConfig.key === column && (
+                    {sort && sort.column === column && (
                       <span className="sort-indicator">
-                        {sortConfig.direction === 'asc' ? '↑' : '↓'}
+                        {sort.direction === 'asc' ? '↑' : '↓'}
                       </span>
                     )}
                   </div>
                 </th>
               ))}
             </tr>
+            {onFiltersChange && (
+              <tr className="filter-row">
+                <th className="row-number-header" />
+                {columns.map((column, columnIndex) => (
+                  <th key={columnIndex}>
+                    <input
+                      type="text"
+                      className="filter-input"
+                      placeholder="filter, >10, null…"
+                      value={drafts[column] || ''}
+                      onChange={(e) => setDrafts({ ...drafts, [column]: e.target.value })}
+                      onKeyDown={(e) => e.key === 'Enter' && applyFilters()}
+                      title="Enter to apply: text (contains), =x, !=x, >x, >=x, <x, <=x, null, !null"
+                    />
+                  </th>
+                ))}
+              </tr>
+            )}
           </thead>
           <tbody>
-            {sortedData.map((row, rowIndex) => (
-              <tr key={rowIndex}>
-                <td className="row-number">{rowIndex + 1}</td>
-                {columns.map((column) => (
-                  <td key={column}>
-                    {formatValue(row[column])}
-                  </td>
-                ))}
+            {rows.length === 0 && (
+              <tr>
+                <td className="no-rows" colSpan={columns.length + 1}>
+                  {filtered ? 'No rows match the filters' : 'No rows returned'}
+                </td>
               </tr>
-            ))}
+            )}
+            {first > 0 && <tr className="spacer" style={{ height: first * ROW_HEIGHT }} />}
+            {visibleRows.map((row, i) => {
+              const rowIndex = first + i;
+              return (
+                <tr key={rowIndex} className={rowIndex % 2 === 1 ? 'striped' : undefined}>
+                  <td className="row-number">{offset + rowIndex + 1}</td>
+                  {columns.map((column, columnIndex) => (
+                    <td key={columnIndex}>
+                      {formatValue(row[columnIndex])}
+                    </td>
+                  ))}
+                </tr>
+              );
+            })}
+            {last < rows.length && <tr className="spacer" style={{ height: (rows.length - last) * ROW_HEIGHT }} />}
           </tbody>
         </table>
       </div>
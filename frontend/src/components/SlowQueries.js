@@ -0,0 +1,118 @@
+import React, { useCallback, useEffect, useState } from 'react';
+import axios from 'axios';
+import { API_ENDPOINTS } from '../config';
+import './SlowQueries.css';
+
+// PostgreSQL plans come back as JSON text; indent them for reading
+const formatPlan = (entry) => {
+  if (entry.planFormat !== 'json') {
+    return entry.plan;
+  }
+  try {
+    return JSON.stringify(JSON.parse(entry.plan), null, 2);
+  } catch (e) {
+    return entry.plan;
+  }
+};
+
+function SlowQueries({ onSelectQuery }) {
+  const [entries, setEntries] = useState([]);
+  const [expanded, setExpanded] = useState(null);
+  const [error, setError] = useState(null);
+
+  const load = useCallback(async () => {
+    try {
+      const response = await axios.get(API_ENDPOINTS.SQL_SLOW);
+      setEntries(response.data.payload || []);
+      setError(null);
+    } catch (err) {
+      setError(err.response?.data?.message || err.message || 'Could not load slow queries');
+    }
+  }, []);
+
+  const clear = async () => {
+    await axios.delete(API_ENDPOINTS.SQL_SLOW);
+    setExpanded(null);
+    load();
+  };
+
+  useEffect(() => {
+    load();
+  }, [load]);
+
+  return (
+    <div className="slow-queries">
+      <div className="panel-header">
+        <h3>🐢 Slow Queries</h3>
+        <div className="header-actions">
+          <button onClick={load} className="btn-secondary">Refresh</button>
+          {entries.length > 0 && (
+            <button onClick={clear} className="btn-secondary">Clear</button>
+          )}
+        </div>
+      </div>
+
+      {error && <div className="history-error">❌ {error}</div>}
+
+      {!error && entries.length === 0 && (
+        <div className="history-empty">
+          <p>No slow queries logged</p>
+        </div>
+      )}
+
+      <div className="slow-list">
+        {entries.map((entry) => (
+          <div
+            key={entry.id}
+            className={`slow-item ${entry.error ? 'error' : ''}`}
+            onClick={() => setExpanded(expanded === entry.id ? null : entry.id)}
+          >
+            <div className="history-header">
+              <span className={`query-type ${entry.statementType?.toLowerCase()}`}>
+                {entry.statementType || 'SQL'}
+              </span>
+              <span className="slow-duration">{Math.round(entry.durationMs)} ms</span>
+              {entry.datasource && entry.datasource !== 'default' && (
+                <span className="history-time">{entry.datasource}</span>
+              )}
+              <span className="history-time">{new Date(entry.executedAt).toLocaleString()}</span>
+            </div>
+
+            <div className="history-query">
+              {expanded === entry.id || entry.sql.length <= 80
+                ? entry.sql
+                : entry.sql.substring(0, 80) + '...'}
+            </div>
+
+            {expanded === entry.id && (
+              <div className="slow-details">
+                {entry.params && entry.params.length > 0 && (
+                  <div className="slow-params">
+                    <strong>Params:</strong> {JSON.stringify(entry.params)}
+                  </div>
+                )}
+                {!entry.error && <div><strong>Rows:</strong> {entry.rows}</div>}
+                {entry.error && <div className="history-error">❌ {entry.error}</div>}
+                {entry.plan && <pre className="slow-plan">{formatPlan(entry)}</pre>}
+                {!entry.plan && entry.planError && (
+                  <div className="slow-plan-missing">No plan: {entry.planError}</div>
+                )}
+                <button
+                  className="btn-secondary"
+                  onClick={(e) => {
+                    e.stopPropagation();
+                    onSelectQuery(entry.sql);
+                  }}
+                >
+                  Open in editor
+                </button>
+              </div>
+            )}
+          </div>
+        ))}
+      </div>
+    </div>
+  );
+}
+
+export default SlowQueries;
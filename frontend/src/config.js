@@ -108,6 +108,9 @@ export const RELATIVE_BASE_PATH = getRelativeBasePath();
 export const API_ENDPOINTS = {
   SQL_RUN: `${RELATIVE_BASE_PATH}/api/sql/run`,
   SQL_BATCH: `${RELATIVE_BASE_PATH}/api/sql/run/batch`,
+  SQL_STREAM: `${RELATIVE_BASE_PATH}/api/sql/stream`,
+  SQL_SLOW: `${RELATIVE_BASE_PATH}/api/sql/slow`,
+  SQL_DATASOURCES: `${RELATIVE_BASE_PATH}/api/sql/datasources`,
 };
 
 // Debugging helper (remove in production)
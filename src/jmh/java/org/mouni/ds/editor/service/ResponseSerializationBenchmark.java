@@ -0,0 +1,102 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mouni.ds.editor.model.ApiResponse;
+import org.mouni.ds.editor.model.ColumnarResult;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row mapping plus {@link ApiResponse} JSON serialization, i.e. what a {@code /run}
+ * SELECT costs after the statement has executed, for the rows and columnar formats at
+ * different result widths and page sizes. The object mapper is configured like Spring
+ * Boot's.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"20", "200", "2000"})
+    public int pageSize;
+
+    @Param({"4", "16", "64"})
+    public int width;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ResultSetEncoder encoder;
+    private ObjectMapper objectMapper;
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:serialization_" + pageSize + "_" + width + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        encoder = new ResultSetEncoder(objectMapper);
+
+        String[] types = {"INT", "VARCHAR(64)", "DOUBLE PRECISION", "TIMESTAMP"};
+        StringBuilder ddl = new StringBuilder("CREATE TABLE bench (");
+        StringBuilder insert = new StringBuilder("INSERT INTO bench VALUES (");
+        for (int c = 0; c < width; c++) {
+            if (c > 0) {
+                ddl.append(", ");
+                insert.append(", ");
+            }
+            ddl.append("column_").append(c).append(' ').append(types[c % types.length]);
+            insert.append('?');
+        }
+        jdbcTemplate.execute(ddl.append(')').toString());
+
+        List<Object[]> batch = new ArrayList<>(pageSize);
+        for (int r = 0; r < pageSize; r++) {
+            Object[] values = new Object[width];
+            for (int c = 0; c < width; c++) {
+                values[c] = switch (c % types.length) {
+                    case 0 -> r * 17;
+                    case 1 -> "text value " + r + "/" + c;
+                    case 2 -> r / 7.0;
+                    default -> new java.sql.Timestamp(1_700_000_000_000L + r * 60_000L);
+                };
+            }
+            batch.add(values);
+        }
+        jdbcTemplate.batchUpdate(insert.append(')').toString(), batch);
+        sql = "SELECT * FROM bench";
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE bench");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public void rowsResponse() throws IOException {
+        List<Map<String, Object>> rows = jdbcTemplate.query(sql,
+                (ResultSetExtractor<List<Map<String, Object>>>) rs -> encoder.readRows(rs, ResultBudget.unlimited()));
+        objectMapper.writeValue(OutputStream.nullOutputStream(), ApiResponse.ok(rows));
+    }
+
+    @Benchmark
+    public void columnarResponse() throws IOException {
+        ColumnarResult result = jdbcTemplate.query(sql,
+                (ResultSetExtractor<ColumnarResult>) rs -> encoder.readColumnar(rs, ResultBudget.unlimited()));
+        objectMapper.writeValue(OutputStream.nullOutputStream(), ApiResponse.ok(result));
+    }
+}
@@ -0,0 +1,111 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mouni.ds.editor.model.ColumnarResult;
+import org.mouni.ds.editor.model.ResultFormat;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares Spring's {@code queryForList} (ColumnMapRowMapper) against the
+ * type-specialized {@link ColumnReaders} used by {@link ResultSetEncoder}.
+ * Run with {@code -prof gc} to see the per-row allocation difference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    @Param({"4", "16"})
+    public int width;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private ResultSetEncoder encoder;
+    private String sql;
+
+    @Setup
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:rowmapping_" + rows + "_" + width + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        encoder = new ResultSetEncoder(new ObjectMapper());
+
+        // cycle through the column kinds the readers specialize on
+        String[] types = {"INT", "BIGINT", "DOUBLE PRECISION", "VARCHAR(64)", "TIMESTAMP", "DECIMAL(12,2)"};
+        StringBuilder ddl = new StringBuilder("CREATE TABLE bench (");
+        StringBuilder insert = new StringBuilder("INSERT INTO bench VALUES (");
+        for (int c = 0; c < width; c++) {
+            if (c > 0) {
+                ddl.append(", ");
+                insert.append(", ");
+            }
+            ddl.append("c").append(c).append(' ').append(types[c % types.length]);
+            insert.append('?');
+        }
+        jdbcTemplate.execute(ddl.append(')').toString());
+
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            Object[] values = new Object[width];
+            for (int c = 0; c < width; c++) {
+                values[c] = switch (c % types.length) {
+                    case 0 -> r;
+                    case 1 -> (long) r * 31;
+                    case 2 -> r / 3.0;
+                    case 3 -> "value-" + r + "-" + c;
+                    case 4 -> new Timestamp(1_700_000_000_000L + r);
+                    default -> java.math.BigDecimal.valueOf(r, 2);
+                };
+            }
+            batch.add(values);
+        }
+        jdbcTemplate.batchUpdate(insert.append(')').toString(), batch);
+        sql = "SELECT * FROM bench";
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP TABLE bench");
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> columnMapRowMapper() {
+        return jdbcTemplate.queryForList(sql);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> typedRows() {
+        return jdbcTemplate.query(sql,
+                (ResultSetExtractor<List<Map<String, Object>>>) rs -> encoder.readRows(rs, ResultBudget.unlimited()));
+    }
+
+    @Benchmark
+    public ColumnarResult typedColumnar() {
+        return jdbcTemplate.query(sql,
+                (ResultSetExtractor<ColumnarResult>) rs -> encoder.readColumnar(rs, ResultBudget.unlimited()));
+    }
+
+    @Benchmark
+    public Long typedNdjsonStream() {
+        ResultSetExtractor<Long> extractor =
+                rs -> encoder.write(rs, OutputStream.nullOutputStream(), ResultFormat.ROWS, 500);
+        return jdbcTemplate.query(sql, extractor);
+    }
+}
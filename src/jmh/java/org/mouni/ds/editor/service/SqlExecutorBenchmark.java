@@ -0,0 +1,141 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of {@link SqlExecutorService#execute} per statement type against
+ * embedded H2: lexing, admission, JDBC, row mapping and the bookkeeping around it
+ * (metrics, statement statistics, slow log). {@code instrumented=false} disables
+ * admission control, SELECT coalescing and statement statistics, to measure their overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlExecutorBenchmark {
+
+    private static final int TABLE_ROWS = 10_000;
+
+    @Param({"true", "false"})
+    public boolean instrumented;
+
+    private SingleConnectionDataSource dataSource;
+    private EditorDataSources dataSources;
+    private SqlExecutorService executor;
+    private SlowQueryLog slowQueryLog;
+    private int counter;
+
+    private SqlRequestDto selectPage;
+    private SqlRequestDto selectColumnar;
+    private SqlRequestDto selectKeyset;
+    private SqlRequestDto selectLimited;
+    private SqlRequestDto insert;
+    private SqlRequestDto update;
+    private SqlRequestDto ddl;
+
+    @Setup
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:executor_" + instrumented + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer VARCHAR(64), "
+                + "total DECIMAL(12,2), status VARCHAR(16), created_at TIMESTAMP)");
+        List<Object[]> batch = new ArrayList<>(TABLE_ROWS);
+        for (int i = 0; i < TABLE_ROWS; i++) {
+            batch.add(new Object[]{i, "customer-" + (i % 500), java.math.BigDecimal.valueOf(i * 7L, 2),
+                    i % 3 == 0 ? "NEW" : "SHIPPED", new java.sql.Timestamp(1_700_000_000_000L + i * 1000L)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO orders VALUES (?, ?, ?, ?, ?)", batch);
+
+        DsEditorProperties properties = new DsEditorProperties();
+        properties.getGovernor().setEnabled(instrumented);
+        properties.getStats().setEnabled(instrumented);
+        properties.setCoalesceSelects(instrumented);
+        properties.getSlowLog().setExplain(false);
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        EditorMetrics metrics = new EditorMetrics(new DefaultListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        slowQueryLog = new SlowQueryLog(properties);
+        dataSources = new EditorDataSources(properties, jdbcTemplate, metrics);
+        executor = new SqlExecutorService(dataSources, properties, objectMapper,
+                new SelectResultCache(properties), new QueryGovernor(properties, dataSource, metrics), metrics,
+                new QueryStatistics(properties), slowQueryLog, new SelectCoalescer(properties),
+                new TotalCounter(properties, objectMapper));
+
+        selectPage = request("SELECT id, customer, total, status, created_at FROM orders WHERE status = 'NEW'", null);
+        selectColumnar = request(selectPage.getQuery(), "columnar");
+        selectKeyset = request("SELECT id, customer, total FROM orders ORDER BY id", null);
+        selectKeyset.setKeyset(true);
+        selectLimited = request("SELECT * FROM orders WHERE id BETWEEN 100 AND 119 LIMIT 20", null);
+        insert = request("INSERT INTO orders (id, customer, total, status, created_at) "
+                + "VALUES (?, 'bench', 1.00, 'NEW', CURRENT_TIMESTAMP)", null);
+        update = request("UPDATE orders SET status = ? WHERE id = ?", null);
+        ddl = request("CREATE INDEX IF NOT EXISTS orders_status ON orders (status)", null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        slowQueryLog.destroy();
+        dataSources.destroy();
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public Object selectPaged() {
+        return executor.execute(selectPage);
+    }
+
+    @Benchmark
+    public Object selectColumnar() {
+        return executor.execute(selectColumnar);
+    }
+
+    @Benchmark
+    public Object selectKeyset() {
+        return executor.execute(selectKeyset);
+    }
+
+    @Benchmark
+    public Object selectWithOwnLimit() {
+        return executor.execute(selectLimited);
+    }
+
+    @Benchmark
+    public Object insertRow() {
+        insert.setParams(List.<Object>of(TABLE_ROWS + counter++));
+        return executor.execute(insert);
+    }
+
+    @Benchmark
+    public Object updateRow() {
+        int id = counter++ % TABLE_ROWS;
+        update.setParams(List.<Object>of(id % 2 == 0 ? "NEW" : "SHIPPED", id));
+        return executor.execute(update);
+    }
+
+    @Benchmark
+    public Object ddlNoop() {
+        return executor.execute(ddl);
+    }
+
+    private static SqlRequestDto request(String sql, String format) {
+        SqlRequestDto request = new SqlRequestDto();
+        request.setQuery(sql);
+        request.setFormat(format);
+        request.setSize(20);
+        return request;
+    }
+}
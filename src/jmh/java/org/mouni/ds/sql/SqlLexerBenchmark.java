@@ -0,0 +1,110 @@
+package org.mouni.ds.sql;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SqlLexer} and {@link SqlScriptSplitter} with the string handling
+ * they replaced: {@code replaceAll}-based keyword detection, {@code contains(" limit ")}
+ * and {@code split(";")}. The script is the test corpus in
+ * {@code src/test/resources/sql/scripts}, repeated. Run with {@code -prof gc} to compare
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlLexerBenchmark {
+
+    private static final String[] CORPUS = {
+            "strings_and_comments.sql", "pg_functions.sql", "begin_end_blocks.sql", "edge_cases.sql"};
+
+    @Param({"1", "100"})
+    public int repeat;
+
+    private String script;
+    private String query;
+
+    @Setup
+    public void setUp() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < repeat; i++) {
+            for (String name : CORPUS) {
+                sb.append(read(name)).append(";\n");
+            }
+        }
+        script = sb.toString();
+        query = "/* report */ SELECT o.id, o.total, c.name\n"
+                + "FROM orders o JOIN customers c ON c.id = o.customer_id\n"
+                + "WHERE o.note <> 'no limit here' AND o.created_at > now() - interval '7 days'\n"
+                + "ORDER BY o.created_at DESC, o.id DESC";
+    }
+
+    @Benchmark
+    public int splitOnSemicolon() {
+        int count = 0;
+        for (String raw : script.replace("\r", "").split(";")) {
+            if (!raw.trim().isEmpty()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int splitWithLexer() throws IOException {
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new StringReader(script));
+        int count = 0;
+        while (splitter.next() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public boolean classifyWithRegex() {
+        String trimmed = query.stripLeading();
+        int spaceIdx = trimmed.indexOf(' ');
+        String first = (spaceIdx < 0 ? trimmed : trimmed.substring(0, spaceIdx))
+                .replaceAll("[^A-Za-z]", "")
+                .toUpperCase(Locale.ROOT);
+        String lower = query.toLowerCase(Locale.ROOT);
+        return "SELECT".equals(first) && !lower.contains(" limit ") && !lower.contains(" offset ");
+    }
+
+    @Benchmark
+    public boolean classifyWithLexer() {
+        SqlLexer.StatementInfo info = SqlLexer.analyze(query);
+        return "SELECT".equals(info.keyword()) && !info.limited();
+    }
+
+    @Benchmark
+    public String normalize() {
+        return SqlLexer.normalize(query);
+    }
+
+    @Benchmark
+    public String fingerprint() {
+        return SqlLexer.fingerprint(query);
+    }
+
+    private static String read(String name) {
+        try (InputStream in = SqlLexerBenchmark.class.getResourceAsStream("/sql/scripts/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing corpus file " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package org.mouni.ds.sqlrunner.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mouni.ds.sql.SqlScriptSplitter;
+import org.mouni.ds.sqlrunner.config.RunnerProperties;
+import org.mouni.ds.sqlrunner.config.ScriptProperties;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Script runner hot paths on a generated DML script: checksumming (in memory and
+ * through the memory-mapped file the runner reads), splitting, and
+ * executing it statement by statement or in JDBC batches against embedded H2 (rolled
+ * back after each invocation, so every run inserts the same rows).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScriptRunnerBenchmark {
+
+    @Param({"100", "10000"})
+    public int statements;
+
+    private SingleConnectionDataSource dataSource;
+    private ScriptExecutionService service;
+    private String script;
+    private Path scriptFile;
+
+    @Setup
+    public void setUp() throws SQLException, IOException {
+        dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:scripts_" + statements + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "", true);
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE bench_script (id INT PRIMARY KEY, name VARCHAR(100), note VARCHAR(200))");
+        }
+        // repositories are not used by the benchmarked methods
+        service = new ScriptExecutionService(new ScriptProperties(), null, null, new RunnerProperties(),
+                dataSource, new SimpleMeterRegistry());
+
+        StringBuilder sb = new StringBuilder("-- generated benchmark script\n");
+        for (int i = 0; i < statements; i++) {
+            if (i % 10 == 0) {
+                sb.append("/* batch ").append(i / 10).append(" */\n");
+            }
+            sb.append("INSERT INTO bench_script (id, name, note) VALUES (")
+                    .append(i).append(", 'name-").append(i).append("', 'semicolons; in ''quoted'' text');\n");
+        }
+        sb.append("UPDATE bench_script SET note = 'done' WHERE id % 2 = 0;\n");
+        script = sb.toString();
+        scriptFile = Files.createTempFile("bench_script", ".sql");
+        Files.writeString(scriptFile, script, StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        dataSource.destroy();
+        Files.deleteIfExists(scriptFile);
+    }
+
+    @Benchmark
+    public String checksum() {
+        return service.computeChecksum(script);
+    }
+
+    @Benchmark
+    public String checksumFile() throws IOException {
+        return service.computeChecksum(scriptFile);
+    }
+
+    @Benchmark
+    public int split() throws IOException {
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new StringReader(script));
+        int count = 0;
+        while (splitter.next() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int execute() throws SQLException, IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                return service.executeSqlScript(conn, new StringReader(script));
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    @Benchmark
+    public int executeBatched() throws SQLException, IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                return service.executeSqlScript(conn, new StringReader(script),
+                        new ScriptDirectives(List.of(), 500, 0), 0, null);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.mouni.ds.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latency samples of one request type, recorded by a single client thread without
+ * synchronization and merged after the run.
+ */
+final class Latencies {
+
+    private long[] nanos = new long[1024];
+    private int size;
+
+    void add(long value) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    static Latencies merge(List<Latencies> parts) {
+        Latencies merged = new Latencies();
+        int total = parts.stream().mapToInt(Latencies::size).sum();
+        merged.nanos = new long[Math.max(1, total)];
+        for (Latencies part : parts) {
+            System.arraycopy(part.nanos, 0, merged.nanos, merged.size, part.size);
+            merged.size += part.size;
+        }
+        return merged;
+    }
+
+    /**
+     * Summary in milliseconds; sorts the samples in place.
+     */
+    Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", size);
+        if (size == 0) {
+            return summary;
+        }
+        Arrays.sort(nanos, 0, size);
+        long sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += nanos[i];
+        }
+        summary.put("mean", millis(sum / size));
+        summary.put("p50", millis(percentile(0.50)));
+        summary.put("p90", millis(percentile(0.90)));
+        summary.put("p99", millis(percentile(0.99)));
+        summary.put("p999", millis(percentile(0.999)));
+        summary.put("max", millis(nanos[size - 1]));
+        return summary;
+    }
+
+    private long percentile(double quantile) {
+        int index = (int) Math.ceil(quantile * size) - 1;
+        return nanos[Math.max(0, Math.min(size - 1, index))];
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1e3) / 1e3;
+    }
+}
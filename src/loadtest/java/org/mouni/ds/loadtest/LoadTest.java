@@ -0,0 +1,413 @@
+package org.mouni.ds.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.mouni.ds.editor.DsEditorApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load test: starts the application on embedded H2, seeds a table and
+ * replays a mix of {@code /run} SELECT and DML requests and {@code /run/batch} requests
+ * from closed-loop clients on virtual threads, one step per configured client count.
+ * <p>
+ * Each step reports throughput, latency percentiles per request type, connection pool
+ * saturation (sampled from Hikari) and GC time, and the whole run is written as JSON
+ * so results can be compared across builds. Clients and server share one JVM, so GC
+ * and CPU figures include the client side.
+ * <p>
+ * Settings are system properties (see the {@code loadtest} profile in {@code pom.xml});
+ * program arguments are passed to the application, e.g.
+ * {@code --ds.editor.governor.enabled=false}.
+ */
+public final class LoadTest {
+
+    enum RequestType { SELECT, DML, BATCH }
+
+    private static final int BATCH_SIZE = 5;
+
+    private final List<Integer> clientSteps;
+    private final Duration warmup;
+    private final Duration duration;
+    private final Map<RequestType, Integer> mix;
+    private final int rows;
+    private final Path report;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final AtomicLong insertIds = new AtomicLong();
+    private String baseUrl;
+
+    private LoadTest() {
+        this.clientSteps = Arrays.stream(System.getProperty("loadtest.clients", "8,32,128").split(","))
+                .map(String::strip).map(Integer::parseInt).toList();
+        this.warmup = Duration.parse(System.getProperty("loadtest.warmup", "PT5S"));
+        this.duration = Duration.parse(System.getProperty("loadtest.duration", "PT20S"));
+        this.mix = parseMix(System.getProperty("loadtest.mix", "select:70,dml:20,batch:10"));
+        this.rows = Integer.parseInt(System.getProperty("loadtest.rows", "10000"));
+        this.report = Path.of(System.getProperty("loadtest.report", "target/loadtest/report.json"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String[] appArgs = Arrays.stream(args).filter(a -> !a.isBlank()).toArray(String[]::new);
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(DsEditorApplication.class)
+                .properties("server.port=0",
+                        "spring.main.banner-mode=off",
+                        // every simulated client queues as its own client
+                        "ds.editor.governor.client-header=X-Client-Id",
+                        // per-request logging would dominate the measurement
+                        "logging.level.org.mouni.ds.editor=WARN",
+                        "logging.level.org.springframework.jdbc.core=WARN")
+                .run(appArgs);
+        int exitCode = 0;
+        try {
+            new LoadTest().run(context);
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    private void run(ConfigurableApplicationContext context) throws Exception {
+        baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                + "/ds-editor/api/sql";
+        seed(context.getBean(JdbcTemplate.class));
+        HikariPoolMXBean pool = context.getBean(DataSource.class) instanceof HikariDataSource hikari
+                ? hikari.getHikariPoolMXBean()
+                : null;
+        int poolSize = context.getBean(DataSource.class) instanceof HikariDataSource hikari
+                ? hikari.getMaximumPoolSize()
+                : 0;
+
+        List<Map<String, Object>> steps = new ArrayList<>();
+        for (int clients : clientSteps) {
+            System.out.printf("Step: %d client(s), warmup %s, measuring %s%n", clients, warmup, duration);
+            runClients(clients, warmup);
+            Map<String, Object> step = measure(clients, pool, poolSize);
+            steps.add(step);
+            System.out.printf("  %s%n", step);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", Instant.now().toString());
+        result.put("javaVersion", Runtime.version().toString());
+        result.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        result.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("clients", clientSteps);
+        settings.put("warmupSeconds", warmup.toSeconds());
+        settings.put("durationSeconds", duration.toSeconds());
+        settings.put("mix", mix);
+        settings.put("rows", rows);
+        settings.put("poolSize", poolSize);
+        result.put("settings", settings);
+        result.put("steps", steps);
+
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), result);
+        System.out.println("Report written to " + report.toAbsolutePath());
+    }
+
+    private Map<String, Object> measure(int clients, HikariPoolMXBean pool, int poolSize) throws Exception {
+        long gcCountBefore = 0;
+        long gcTimeBefore = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCountBefore += Math.max(0, gc.getCollectionCount());
+            gcTimeBefore += Math.max(0, gc.getCollectionTime());
+        }
+        PoolSampler sampler = new PoolSampler(pool, poolSize);
+        long start = System.nanoTime();
+        List<ClientResult> results;
+        try {
+            results = runClients(clients, duration);
+        } finally {
+            sampler.stop();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long gcCount = -gcCountBefore;
+        long gcTime = -gcTimeBefore;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcTime += Math.max(0, gc.getCollectionTime());
+        }
+
+        long ok = 0;
+        long rejected = 0;
+        long errors = 0;
+        Map<String, Object> latency = new LinkedHashMap<>();
+        List<Latencies> all = new ArrayList<>();
+        for (RequestType type : RequestType.values()) {
+            List<Latencies> parts = new ArrayList<>();
+            for (ClientResult r : results) {
+                parts.add(r.latencies.get(type));
+            }
+            Latencies merged = Latencies.merge(parts);
+            all.add(merged);
+            latency.put(type.name().toLowerCase(), merged.summary());
+        }
+        for (ClientResult r : results) {
+            ok += r.ok;
+            rejected += r.rejected;
+            errors += r.errors;
+        }
+        latency.put("all", Latencies.merge(all).summary());
+
+        Map<String, Object> gc = new LinkedHashMap<>();
+        gc.put("collections", gcCount);
+        gc.put("timeMs", gcTime);
+        gc.put("timePercent", Math.round(gcTime / (seconds * 10.0) * 100) / 100.0);
+
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("clients", clients);
+        step.put("seconds", Math.round(seconds * 100) / 100.0);
+        step.put("ok", ok);
+        step.put("rejected", rejected);
+        step.put("errors", errors);
+        step.put("throughputPerSecond", Math.round(ok / seconds * 10) / 10.0);
+        step.put("latencyMs", latency);
+        step.put("pool", sampler.summary());
+        step.put("gc", gc);
+        return step;
+    }
+
+    private List<ClientResult> runClients(int clients, Duration length) throws Exception {
+        long deadline = System.nanoTime() + length.toNanos();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<ClientResult>> futures = new ArrayList<>(clients);
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> client(deadline)));
+            }
+            List<ClientResult> results = new ArrayList<>(clients);
+            for (Future<ClientResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+
+    /**
+     * One closed-loop client: sends the next request as soon as the previous one completed.
+     */
+    private ClientResult client(long deadline) {
+        ClientResult result = new ClientResult();
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            RequestType type = pick(random.nextInt(totalWeight));
+            HttpRequest request = request(type, random);
+            long start = System.nanoTime();
+            try {
+                int status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                long elapsed = System.nanoTime() - start;
+                if (status / 100 == 2) {
+                    result.ok++;
+                    result.latencies.get(type).add(elapsed);
+                } else if (status == 429) {
+                    result.rejected++;
+                } else {
+                    result.errors++;
+                }
+            } catch (IOException e) {
+                result.errors++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return result;
+    }
+
+    private RequestType pick(int roll) {
+        for (Map.Entry<RequestType, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return RequestType.SELECT;
+    }
+
+    private HttpRequest request(RequestType type, ThreadLocalRandom random) {
+        String path;
+        String body;
+        switch (type) {
+            case SELECT -> {
+                path = "/run";
+                body = select(random);
+            }
+            case DML -> {
+                path = "/run";
+                body = dml(random);
+            }
+            default -> {
+                path = "/run/batch";
+                StringBuilder batch = new StringBuilder("[");
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    batch.append(i > 0 ? "," : "").append(i % 2 == 0 ? select(random) : dml(random));
+                }
+                body = batch.append(']').toString();
+            }
+        }
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .header("X-Client-Id", "loadtest-" + Thread.currentThread().threadId())
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private String select(ThreadLocalRandom random) {
+        return switch (random.nextInt(3)) {
+            case 0 -> "{\"query\":\"SELECT * FROM load_orders WHERE id = " + random.nextInt(rows) + "\"}";
+            case 1 -> "{\"query\":\"SELECT id, customer, total FROM load_orders WHERE status = 'NEW'\",\"page\":"
+                    + random.nextInt(20) + ",\"size\":50}";
+            default -> "{\"query\":\"SELECT status, COUNT(*) AS n, SUM(total) AS total FROM load_orders GROUP BY status\"}";
+        };
+    }
+
+    private String dml(ThreadLocalRandom random) {
+        if (random.nextInt(4) == 0) {
+            return "{\"query\":\"INSERT INTO load_orders (id, customer, total, status, created_at) "
+                    + "VALUES (?, 'loadtest', 1.00, 'NEW', CURRENT_TIMESTAMP)\",\"params\":["
+                    + (rows + insertIds.incrementAndGet()) + "]}";
+        }
+        return "{\"query\":\"UPDATE load_orders SET total = total + 1 WHERE id = ?\",\"params\":["
+                + random.nextInt(rows) + "]}";
+    }
+
+    private void seed(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS load_orders");
+        jdbcTemplate.execute("CREATE TABLE load_orders (id BIGINT PRIMARY KEY, customer VARCHAR(64), "
+                + "total DECIMAL(12,2), status VARCHAR(16), created_at TIMESTAMP)");
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{i, "customer-" + (i % 500), java.math.BigDecimal.valueOf(i * 7L, 2),
+                    i % 3 == 0 ? "NEW" : "SHIPPED", new java.sql.Timestamp(System.currentTimeMillis() - i * 1000L)});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO load_orders VALUES (?, ?, ?, ?, ?)", batch);
+        System.out.printf("Seeded %d row(s)%n", rows);
+    }
+
+    private static Map<RequestType, Integer> parseMix(String spec) {
+        Map<RequestType, Integer> mix = new EnumMap<>(RequestType.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            if (kv.length != 2) {
+                throw new IllegalArgumentException("Bad loadtest.mix entry '" + part + "', expected type:weight");
+            }
+            int weight = Integer.parseInt(kv[1].strip());
+            if (weight > 0) {
+                mix.put(RequestType.valueOf(kv[0].strip().toUpperCase()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix has no positive weights");
+        }
+        return mix;
+    }
+
+    private static final class ClientResult {
+        private final Map<RequestType, Latencies> latencies = new EnumMap<>(RequestType.class);
+        private long ok;
+        private long rejected;
+        private long errors;
+
+        ClientResult() {
+            for (RequestType type : RequestType.values()) {
+                latencies.put(type, new Latencies());
+            }
+        }
+    }
+
+    /**
+     * Samples the connection pool every 50 ms during a step.
+     */
+    private static final class PoolSampler {
+        private final HikariPoolMXBean pool;
+        private final int poolSize;
+        private final ScheduledExecutorService scheduler;
+        // written by the sampler thread only, read after stop()
+        private long samples;
+        private long activeSum;
+        private long pendingSum;
+        private long saturatedSamples;
+        private int maxActive;
+        private int maxPending;
+
+        PoolSampler(HikariPoolMXBean pool, int poolSize) {
+            this.pool = pool;
+            this.poolSize = poolSize;
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("loadtest-pool-sampler").daemon().factory());
+            if (pool != null) {
+                scheduler.scheduleAtFixedRate(this::sample, 0, 50, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void sample() {
+            int active = pool.getActiveConnections();
+            int pending = pool.getThreadsAwaitingConnection();
+            samples++;
+            activeSum += active;
+            pendingSum += pending;
+            maxActive = Math.max(maxActive, active);
+            maxPending = Math.max(maxPending, pending);
+            if (active >= poolSize) {
+                saturatedSamples++;
+            }
+        }
+
+        void stop() throws InterruptedException {
+            scheduler.shutdown();
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        }
+
+        Map<String, Object> summary() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("maxSize", poolSize);
+            summary.put("samples", samples);
+            if (samples > 0) {
+                summary.put("avgActive", Math.round(activeSum * 100.0 / samples) / 100.0);
+                summary.put("maxActive", maxActive);
+                summary.put("avgPending", Math.round(pendingSum * 100.0 / samples) / 100.0);
+                summary.put("maxPending", maxPending);
+                // share of samples in which every connection was in use
+                summary.put("saturation", Math.round(saturatedSamples * 1000.0 / samples) / 1000.0);
+            }
+            return summary;
+        }
+    }
+}
@@ -1,12 +1,27 @@
 package org.mouni.ds.editor.autoconfig;
 
+import org.mouni.ds.editor.controller.EditorMetricsEndpoint;
 import org.mouni.ds.editor.controller.SqlController;
+import org.mouni.ds.editor.service.EditorDataSources;
+import org.mouni.ds.editor.service.EditorMetrics;
+import org.mouni.ds.editor.service.QueryGovernor;
+import org.mouni.ds.editor.service.QueryJobService;
+import org.mouni.ds.editor.service.QueryStatistics;
+import org.mouni.ds.editor.service.SelectCoalescer;
+import org.mouni.ds.editor.service.SelectResultCache;
+import org.mouni.ds.editor.service.SlowQueryLog;
+import org.mouni.ds.editor.service.SqlBatchService;
 import org.mouni.ds.editor.service.SqlExecutorService;
+import org.mouni.ds.editor.service.TotalCounter;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -15,6 +30,22 @@ import org.springframework.jdbc.core.JdbcTemplate;
 @ConditionalOnClass({JdbcTemplate.class})
 @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @ConditionalOnProperty(prefix = "ds.editor", name = "enabled", havingValue = "true", matchIfMissing = true)
-@Import({SqlExecutorService.class, SqlController.class})
+@Import({EditorMetrics.class, EditorDataSources.class, QueryStatistics.class, SlowQueryLog.class,
+        SelectResultCache.class, SelectCoalescer.class, TotalCounter.class, QueryGovernor.class, SqlExecutorService.class,
+        SqlBatchService.class, QueryJobService.class, SqlController.class})
 public class DsEditorAutoConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "org.springframework.boot.actuate.endpoint.annotation.Endpoint")
+    static class EndpointConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnAvailableEndpoint
+        EditorMetricsEndpoint editorMetricsEndpoint(EditorMetrics metrics,
+                                                    SqlExecutorService sqlExecutorService,
+                                                    QueryGovernor queryGovernor) {
+            return new EditorMetricsEndpoint(metrics, sqlExecutorService, queryGovernor);
+        }
+    }
 }
@@ -1,6 +1,11 @@
 package org.mouni.ds.editor.autoconfig;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @ConfigurationProperties(prefix = "ds.editor")
 public class DsEditorProperties {
@@ -11,6 +16,78 @@ public class DsEditorProperties {
      */
     private boolean enabled = true;
 
+    /**
+     * JDBC fetch size used when streaming SELECT results.
+     * Controls how many rows the driver pulls from the server per round trip.
+     */
+    private int fetchSize = 500;
+
+    /**
+     * Maximum number of read-only statements run concurrently by a parallel batch.
+     * 0 means one less than the connection pool's maximum size.
+     */
+    private int batchParallelism = 0;
+
+    /**
+     * Upper bound on the execution time of a single statement, enforced through
+     * {@code Statement.setQueryTimeout}. Also caps per-request timeouts. 0 disables it.
+     */
+    private Duration queryTimeout = Duration.ZERO;
+
+    /**
+     * Lets identical SELECTs (same target datasource, SQL, page and format) that arrive
+     * while one of them is executing wait for and share its result instead of each
+     * taking a connection. Off by default: callers that join an execution get rows read
+     * for another caller, under that caller's session state and at its point in time.
+     */
+    private boolean coalesceSelects;
+
+    /**
+     * SELECT result cache settings.
+     */
+    private final Cache cache = new Cache();
+
+    /**
+     * Total row count settings for paged SELECTs.
+     */
+    private final Totals totals = new Totals();
+
+    /**
+     * Caps on what one request may load into memory.
+     */
+    private final Limits limits = new Limits();
+
+    /**
+     * Asynchronous query job settings.
+     */
+    private final Jobs jobs = new Jobs();
+
+    /**
+     * Admission control settings.
+     */
+    private final Governor governor = new Governor();
+
+    /**
+     * Per-statement execution statistics settings.
+     */
+    private final Stats stats = new Stats();
+
+    /**
+     * Slow query log settings.
+     */
+    private final SlowLog slowLog = new SlowLog();
+
+    /**
+     * Additional databases statements can be addressed to, by name. The application's
+     * own DataSource is always available as {@code default}.
+     */
+    private final Map<String, DataSourceSettings> datasources = new LinkedHashMap<>();
+
+    /**
+     * Read replica routing settings.
+     */
+    private final Routing routing = new Routing();
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -18,4 +95,585 @@ public class DsEditorProperties {
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public int getBatchParallelism() {
+        return batchParallelism;
+    }
+
+    public void setBatchParallelism(int batchParallelism) {
+        this.batchParallelism = batchParallelism;
+    }
+
+    public Duration getQueryTimeout() {
+        return queryTimeout;
+    }
+
+    public void setQueryTimeout(Duration queryTimeout) {
+        this.queryTimeout = queryTimeout;
+    }
+
+    public boolean isCoalesceSelects() {
+        return coalesceSelects;
+    }
+
+    public void setCoalesceSelects(boolean coalesceSelects) {
+        this.coalesceSelects = coalesceSelects;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Totals getTotals() {
+        return totals;
+    }
+
+    public Limits getLimits() {
+        return limits;
+    }
+
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public Governor getGovernor() {
+        return governor;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    public SlowLog getSlowLog() {
+        return slowLog;
+    }
+
+    public Map<String, DataSourceSettings> getDatasources() {
+        return datasources;
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+
+    public static class Cache {
+
+        /**
+         * Enables caching of SELECT results. Entries are invalidated when an
+         * INSERT/UPDATE/DELETE or DDL statement run through the editor touches a table
+         * the cached query references; writes made outside the editor are only
+         * picked up once the entry expires.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Maximum number of cached results; least recently used entries are evicted first.
+         */
+        private int maxEntries = 256;
+
+        /**
+         * Results with more rows than this are not cached.
+         */
+        private int maxRows = 10_000;
+
+        /**
+         * Time after which a cached result expires.
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    public static class Totals {
+
+        /**
+         * How long a total row count is reused for further pages of the same query.
+         * Counts are dropped early when a write through the editor touches a table
+         * the query references.
+         */
+        private Duration ttl = Duration.ofSeconds(60);
+
+        /**
+         * Maximum number of cached counts; least recently used ones are evicted first.
+         */
+        private int maxEntries = 256;
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+    }
+
+    public static class Limits {
+
+        /**
+         * Maximum number of rows one SELECT response may hold, whatever its page size
+         * or LIMIT; also set as the statement's max rows. Longer results are cut off and
+         * flagged as truncated. 0 disables the cap.
+         */
+        private int maxRows = 10_000;
+
+        /**
+         * Approximate maximum size of the rows one SELECT response may hold in memory,
+         * estimated while they are read. 0 disables the cap.
+         */
+        private DataSize maxBytes = DataSize.ofMegabytes(32);
+
+        public int getMaxRows() {
+            return maxRows;
+        }
+
+        public void setMaxRows(int maxRows) {
+            this.maxRows = maxRows;
+        }
+
+        public DataSize getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(DataSize maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    public static class Jobs {
+
+        /**
+         * Maximum number of jobs executing at the same time; each holds a pool connection.
+         */
+        private int maxRunning = 4;
+
+        /**
+         * Maximum number of jobs waiting for a slot; further submissions are rejected.
+         */
+        private int maxQueued = 64;
+
+        /**
+         * Queued or running jobs whose status has not been polled for this long are
+         * cancelled, e.g. because the browser tab was closed.
+         */
+        private Duration abandonAfter = Duration.ofMinutes(2);
+
+        /**
+         * How long a finished job and its result are kept for fetching.
+         */
+        private Duration retention = Duration.ofMinutes(10);
+
+        public int getMaxRunning() {
+            return maxRunning;
+        }
+
+        public void setMaxRunning(int maxRunning) {
+            this.maxRunning = maxRunning;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        public void setMaxQueued(int maxQueued) {
+            this.maxQueued = maxQueued;
+        }
+
+        public Duration getAbandonAfter() {
+            return abandonAfter;
+        }
+
+        public void setAbandonAfter(Duration abandonAfter) {
+            this.abandonAfter = abandonAfter;
+        }
+
+        public Duration getRetention() {
+            return retention;
+        }
+
+        public void setRetention(Duration retention) {
+            this.retention = retention;
+        }
+    }
+
+    public static class Governor {
+
+        /**
+         * Enables admission control: statements wait for a slot of their class
+         * (read, write, DDL) in a per-client fair queue before they may use a connection.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Concurrent SELECT statements. 0 means the pool's maximum size minus the
+         * write and DDL slots (at least 1).
+         */
+        private int readSlots = 0;
+
+        /**
+         * Concurrent INSERT/UPDATE/DELETE statements and transactional batches.
+         */
+        private int writeSlots = 2;
+
+        /**
+         * Concurrent DDL and other statements.
+         */
+        private int ddlSlots = 1;
+
+        /**
+         * Maximum statements waiting per class; further statements are rejected with 429.
+         */
+        private int maxQueue = 32;
+
+        /**
+         * Maximum time a statement waits for a slot before it is rejected with 429.
+         */
+        private Duration maxWait = Duration.ofSeconds(10);
+
+        /**
+         * Request header identifying unauthenticated clients for fair queueing, e.g.
+         * {@code X-Client-Id}. Unset by default: any caller can put any value in a header,
+         * so only name one that a trusted proxy sets. The authenticated user name takes
+         * precedence; without either the remote address is used.
+         */
+        private String clientHeader;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getReadSlots() {
+            return readSlots;
+        }
+
+        public void setReadSlots(int readSlots) {
+            this.readSlots = readSlots;
+        }
+
+        public int getWriteSlots() {
+            return writeSlots;
+        }
+
+        public void setWriteSlots(int writeSlots) {
+            this.writeSlots = writeSlots;
+        }
+
+        public int getDdlSlots() {
+            return ddlSlots;
+        }
+
+        public void setDdlSlots(int ddlSlots) {
+            this.ddlSlots = ddlSlots;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        public String getClientHeader() {
+            return clientHeader;
+        }
+
+        public void setClientHeader(String clientHeader) {
+            this.clientHeader = clientHeader;
+        }
+    }
+
+    public static class Stats {
+
+        /**
+         * Enables per-statement statistics, grouped by statement fingerprint.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of distinct fingerprints tracked; beyond it, those with the
+         * lowest total execution time are evicted.
+         */
+        private int maxFingerprints = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxFingerprints() {
+            return maxFingerprints;
+        }
+
+        public void setMaxFingerprints(int maxFingerprints) {
+            this.maxFingerprints = maxFingerprints;
+        }
+    }
+
+    public static class SlowLog {
+
+        /**
+         * Enables the slow query log.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Statements running at least this long are logged.
+         */
+        private Duration threshold = Duration.ofSeconds(1);
+
+        /**
+         * Number of slow statements kept; the oldest are dropped first.
+         */
+        private int maxEntries = 100;
+
+        /**
+         * Captures the execution plan of logged SELECT and DML statements in the
+         * background, on a separate connection. {@code EXPLAIN} does not execute the
+         * statement.
+         */
+        private boolean explain = true;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getThreshold() {
+            return threshold;
+        }
+
+        public void setThreshold(Duration threshold) {
+            this.threshold = threshold;
+        }
+
+        public int getMaxEntries() {
+            return maxEntries;
+        }
+
+        public void setMaxEntries(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        public boolean isExplain() {
+            return explain;
+        }
+
+        public void setExplain(boolean explain) {
+            this.explain = explain;
+        }
+    }
+
+    public static class DataSourceSettings {
+
+        /**
+         * JDBC URL of the database.
+         */
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        /**
+         * JDBC driver class; detected from the URL when not set.
+         */
+        private String driverClassName;
+
+        /**
+         * Maximum number of connections in this datasource's pool.
+         */
+        private int maximumPoolSize = 4;
+
+        /**
+         * Name of the datasource this one is a read replica of ({@code default} for
+         * the application's DataSource). Read-only statements addressed to that
+         * datasource are routed to its replicas; connections to a replica are read-only.
+         */
+        private String replicaOf;
+
+        /**
+         * Query returning the replica's replication lag in seconds. Defaults to one
+         * based on {@code pg_last_xact_replay_timestamp()} on PostgreSQL; elsewhere a
+         * reachable replica is assumed to be up to date.
+         */
+        private String lagQuery;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriverClassName() {
+            return driverClassName;
+        }
+
+        public void setDriverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+        }
+
+        public int getMaximumPoolSize() {
+            return maximumPoolSize;
+        }
+
+        public void setMaximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+        }
+
+        public String getReplicaOf() {
+            return replicaOf;
+        }
+
+        public void setReplicaOf(String replicaOf) {
+            this.replicaOf = replicaOf;
+        }
+
+        public String getLagQuery() {
+            return lagQuery;
+        }
+
+        public void setLagQuery(String lagQuery) {
+            this.lagQuery = lagQuery;
+        }
+    }
+
+    public static class Routing {
+
+        /**
+         * Routes SELECT statements to a replica of the addressed datasource, if it has
+         * any. Statements inside a transactional batch always run on the primary.
+         */
+        private boolean readFromReplicas = true;
+
+        /**
+         * Replicas lagging further behind than this are skipped; with no replica
+         * left, reads go to the primary.
+         */
+        private Duration maxReplicaLag = Duration.ofSeconds(10);
+
+        /**
+         * How often replica lag and reachability are checked.
+         */
+        private Duration lagCheckInterval = Duration.ofSeconds(5);
+
+        /**
+         * After a client wrote to a datasource, its reads go to the primary for this
+         * long, so it sees its own writes.
+         */
+        private Duration primaryAfterWrite = Duration.ofSeconds(10);
+
+        public boolean isReadFromReplicas() {
+            return readFromReplicas;
+        }
+
+        public void setReadFromReplicas(boolean readFromReplicas) {
+            this.readFromReplicas = readFromReplicas;
+        }
+
+        public Duration getMaxReplicaLag() {
+            return maxReplicaLag;
+        }
+
+        public void setMaxReplicaLag(Duration maxReplicaLag) {
+            this.maxReplicaLag = maxReplicaLag;
+        }
+
+        public Duration getLagCheckInterval() {
+            return lagCheckInterval;
+        }
+
+        public void setLagCheckInterval(Duration lagCheckInterval) {
+            this.lagCheckInterval = lagCheckInterval;
+        }
+
+        public Duration getPrimaryAfterWrite() {
+            return primaryAfterWrite;
+        }
+
+        public void setPrimaryAfterWrite(Duration primaryAfterWrite) {
+            this.primaryAfterWrite = primaryAfterWrite;
+        }
+    }
 }
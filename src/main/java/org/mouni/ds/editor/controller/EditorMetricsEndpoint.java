@@ -0,0 +1,98 @@
+package org.mouni.ds.editor.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.mouni.ds.editor.service.EditorMetrics;
+import org.mouni.ds.editor.service.QueryGovernor;
+import org.mouni.ds.editor.service.SqlExecutorService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code /actuator/dseditor}: a one-page summary of the editor's meters, admission
+ * control, result cache and connection pool. The raw meters, including histogram
+ * buckets, are available through {@code /actuator/metrics} and any configured registry.
+ */
+@Endpoint(id = "dseditor")
+public class EditorMetricsEndpoint {
+
+    private final EditorMetrics metrics;
+    private final SqlExecutorService sqlExecutorService;
+    private final QueryGovernor queryGovernor;
+
+    public EditorMetricsEndpoint(EditorMetrics metrics,
+                                 SqlExecutorService sqlExecutorService,
+                                 QueryGovernor queryGovernor) {
+        this.metrics = metrics;
+        this.sqlExecutorService = sqlExecutorService;
+        this.queryGovernor = queryGovernor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> summary() {
+        MeterRegistry registry = metrics.registry();
+        Map<String, Object> summary = new LinkedHashMap<>();
+
+        Map<String, Object> statements = new TreeMap<>();
+        for (Timer timer : registry.find("ds.editor.statement").timers()) {
+            statements.put(timer.getId().getTag("class") + "." + timer.getId().getTag("outcome"), timerSummary(timer));
+        }
+        summary.put("statements", statements);
+
+        Map<String, Object> rows = new TreeMap<>();
+        for (DistributionSummary rowSummary : registry.find("ds.editor.statement.rows").summaries()) {
+            rows.put(rowSummary.getId().getTag("class"), Map.of(
+                    "count", rowSummary.count(),
+                    "total", (long) rowSummary.totalAmount(),
+                    "max", (long) rowSummary.max()));
+        }
+        summary.put("rows", rows);
+
+        Map<String, Long> errors = new TreeMap<>();
+        for (Counter counter : registry.find("ds.editor.statement.errors").counters()) {
+            errors.merge(counter.getId().getTag("sqlstate"), (long) counter.count(), Long::sum);
+        }
+        summary.put("errorsBySqlState", errors);
+
+        Map<String, Object> streamed = new TreeMap<>();
+        for (DistributionSummary bytes : registry.find("ds.editor.stream.bytes").summaries()) {
+            streamed.put(bytes.getId().getTag("format"), Map.of(
+                    "count", bytes.count(),
+                    "totalBytes", (long) bytes.totalAmount(),
+                    "maxBytes", (long) bytes.max()));
+        }
+        summary.put("streamedBytes", streamed);
+
+        Timer acquire = registry.find("hikari.connections.acquire").timer();
+        if (acquire != null) {
+            summary.put("connectionAcquire", timerSummary(acquire));
+        }
+
+        Map<String, Object> scripts = new TreeMap<>();
+        for (Timer timer : registry.find("ds.runner.script").timers()) {
+            scripts.put(timer.getId().getTag("type") + "." + timer.getId().getTag("outcome"), timerSummary(timer));
+        }
+        summary.put("scripts", scripts);
+
+        summary.put("governor", queryGovernor.stats());
+        summary.put("cache", sqlExecutorService.cacheStats());
+        summary.put("coalescing", sqlExecutorService.coalescingStats());
+        return summary;
+    }
+
+    private static Map<String, Object> timerSummary(Timer timer) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", timer.count());
+        stats.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+        stats.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+        stats.put("totalMs", timer.totalTime(TimeUnit.MILLISECONDS));
+        return stats;
+    }
+}
@@ -2,18 +2,30 @@ package org.mouni.ds.editor.controller;
 
 import jakarta.validation.Valid;
 import org.mouni.ds.editor.model.ApiResponse;
+import org.mouni.ds.editor.model.BatchResult;
+import org.mouni.ds.editor.model.BatchTransactionMode;
+import org.mouni.ds.editor.model.QueryJob;
+import org.mouni.ds.editor.model.ResultFormat;
 import org.mouni.ds.editor.model.SqlRequestDto;
+import org.mouni.ds.editor.service.EditorDataSources;
+import org.mouni.ds.editor.service.QueryGovernor;
+import org.mouni.ds.editor.service.QueryJobService;
+import org.mouni.ds.editor.service.QueryStatistics;
+import org.mouni.ds.editor.service.SlowQueryLog;
+import org.mouni.ds.editor.service.SqlBatchService;
 import org.mouni.ds.editor.service.SqlExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/ds-editor/api/sql")
@@ -22,9 +34,27 @@ public class SqlController {
     private static final Logger log = LoggerFactory.getLogger(SqlController.class);
 
     private final SqlExecutorService sqlExecutorService;
+    private final SqlBatchService sqlBatchService;
+    private final QueryJobService queryJobService;
+    private final QueryGovernor queryGovernor;
+    private final QueryStatistics queryStatistics;
+    private final SlowQueryLog slowQueryLog;
+    private final EditorDataSources dataSources;
 
-    public SqlController(SqlExecutorService sqlExecutorService) {
+    public SqlController(SqlExecutorService sqlExecutorService,
+                         SqlBatchService sqlBatchService,
+                         QueryJobService queryJobService,
+                         QueryGovernor queryGovernor,
+                         QueryStatistics queryStatistics,
+                         SlowQueryLog slowQueryLog,
+                         EditorDataSources dataSources) {
+        this.dataSources = dataSources;
+        this.queryGovernor = queryGovernor;
+        this.queryStatistics = queryStatistics;
+        this.slowQueryLog = slowQueryLog;
         this.sqlExecutorService = sqlExecutorService;
+        this.sqlBatchService = sqlBatchService;
+        this.queryJobService = queryJobService;
     }
 
     @PostMapping("/run")
@@ -38,9 +68,61 @@ public class SqlController {
         return ResponseEntity.ok(ApiResponse.ok(payload));
     }
 
+    @PostMapping("/jobs")
+    public ResponseEntity<ApiResponse<?>> submitJob(@Valid @RequestBody SqlRequestDto request) {
+        log.info("Received asynchronous SQL job request");
+        log.debug("SQL query: {}", request.getQuery());
+
+        QueryJob job = queryJobService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ApiResponse.ok(job));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ApiResponse<?>> jobStatus(@PathVariable String id) {
+        return ResponseEntity.ok(ApiResponse.ok(queryJobService.status(id)));
+    }
+
+    @GetMapping("/jobs/{id}/result")
+    public ResponseEntity<ApiResponse<?>> jobResult(@PathVariable String id) {
+        QueryJob job = queryJobService.status(id);
+        if (job.getStatus() != QueryJob.Status.SUCCEEDED) {
+            String message = "Job is " + job.getStatus() + (job.getError() != null ? ": " + job.getError() : "");
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(409, message));
+        }
+        return ResponseEntity.ok(ApiResponse.ok(queryJobService.result(id)));
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<ApiResponse<?>> cancelJob(@PathVariable String id) {
+        log.info("Received request to cancel SQL job {}", id);
+        return ResponseEntity.ok(ApiResponse.ok(queryJobService.cancel(id)));
+    }
+
+    @PostMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@Valid @RequestBody SqlRequestDto request) {
+        log.info("Received SQL streaming request");
+        log.debug("SQL query: {}", request.getQuery());
+
+        sqlExecutorService.validateStreamable(request);
+
+        MediaType contentType = ResultFormat.from(request.getFormat()) == ResultFormat.BINARY
+                ? MediaType.APPLICATION_OCTET_STREAM
+                : MediaType.APPLICATION_NDJSON;
+        // the body is written on another thread, resolve the client while the request is at hand
+        String client = queryGovernor.currentClient();
+        StreamingResponseBody body = out -> sqlExecutorService.streamSelect(request, client, out);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .body(body);
+    }
+
     @PostMapping("/run/batch")
-    public ResponseEntity<ApiResponse<?>> runBatch(@Valid @RequestBody List<SqlRequestDto> requests) {
-        log.info("Received batch SQL execution request with {} queries", requests == null ? 0 : requests.size());
+    public ResponseEntity<ApiResponse<?>> runBatch(@Valid @RequestBody List<SqlRequestDto> requests,
+                                                   @RequestParam(defaultValue = "false") boolean parallel,
+                                                   @RequestParam(required = false) String transaction) {
+        log.info("Received batch SQL execution request with {} queries (parallel={}, transaction={})",
+                requests == null ? 0 : requests.size(), parallel, transaction);
         
         if (requests == null || requests.isEmpty()) {
             log.warn("Batch request rejected: empty request list");
@@ -48,31 +130,67 @@ public class SqlController {
                     .body(ApiResponse.error(400, "Request list must not be empty"));
         }
         
-        List<Object> results = new ArrayList<>(requests.size());
-        int successCount = 0;
-        int errorCount = 0;
+        BatchTransactionMode mode = BatchTransactionMode.from(transaction);
+        if (parallel && mode != BatchTransactionMode.NONE) {
+            throw new IllegalArgumentException("Parallel batches cannot run in a single transaction");
+        }
         
-        for (int i = 0; i < requests.size(); i++) {
-            SqlRequestDto req = requests.get(i);
-            try {
-                log.debug("Executing batch query {} of {}", i + 1, requests.size());
-                Object res = sqlExecutorService.execute(req);
-                results.add(res);
-                successCount++;
-            } catch (Exception ex) {
-                log.error("Error executing batch query {} of {}: {}", i + 1, requests.size(), ex.getMessage());
-                Map<String, Object> error = new HashMap<>();
-                error.put("error", ex.getMessage());
-                error.put("index", i);
-                results.add(error);
-                errorCount++;
-            }
+        if (mode != BatchTransactionMode.NONE) {
+            return ResponseEntity.ok(ApiResponse.ok(sqlBatchService.executeInTransaction(requests, mode)));
         }
         
-        log.info("Batch execution completed: {} successful, {} failed", successCount, errorCount);
-        return ResponseEntity.ok(ApiResponse.ok(results));
+        BatchResult batch = sqlBatchService.execute(requests, parallel);
+        
+        // sequential mode keeps the original response shape (a plain result list)
+        return ResponseEntity.ok(parallel ? ApiResponse.ok(batch) : ApiResponse.ok(batch.getResults()));
     }
 
+    @GetMapping("/cache/stats")
+    public ResponseEntity<ApiResponse<?>> cacheStats() {
+        return ResponseEntity.ok(ApiResponse.ok(sqlExecutorService.cacheStats()));
+    }
+
+    @GetMapping("/governor/stats")
+    public ResponseEntity<ApiResponse<?>> governorStats() {
+        return ResponseEntity.ok(ApiResponse.ok(queryGovernor.stats()));
+    }
+
+    @GetMapping("/datasources")
+    public ResponseEntity<ApiResponse<?>> dataSources() {
+        return ResponseEntity.ok(ApiResponse.ok(dataSources.describe()));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<?>> statementStats(@RequestParam(defaultValue = "total") String orderBy,
+                                                         @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(ApiResponse.ok(queryStatistics.top(orderBy, limit)));
+    }
+
+    @DeleteMapping("/stats")
+    public ResponseEntity<ApiResponse<?>> resetStatementStats() {
+        log.info("Received request to reset statement statistics");
+        queryStatistics.reset();
+        return ResponseEntity.ok(ApiResponse.ok(queryStatistics.top("total", 0)));
+    }
+
+    @GetMapping("/slow")
+    public ResponseEntity<ApiResponse<?>> slowQueries() {
+        return ResponseEntity.ok(ApiResponse.ok(slowQueryLog.entries()));
+    }
+
+    @DeleteMapping("/slow")
+    public ResponseEntity<ApiResponse<?>> clearSlowQueries() {
+        log.info("Received request to clear the slow query log");
+        slowQueryLog.clear();
+        return ResponseEntity.ok(ApiResponse.ok(slowQueryLog.entries()));
+    }
+
+    @DeleteMapping("/cache")
+    public ResponseEntity<ApiResponse<?>> clearCache() {
+        log.info("Received request to clear the SELECT result cache");
+        sqlExecutorService.clearCache();
+        return ResponseEntity.ok(ApiResponse.ok(sqlExecutorService.cacheStats()));
+    }
 
     @ExceptionHandler(IllegalArgumentException.class)
     public ResponseEntity<ApiResponse<?>> handleBadRequest(IllegalArgumentException ex) {
@@ -81,6 +199,21 @@ public class SqlController {
                 .body(ApiResponse.error(400, ex.getMessage()));
     }
 
+    @ExceptionHandler(NoSuchElementException.class)
+    public ResponseEntity<ApiResponse<?>> handleNotFound(NoSuchElementException ex) {
+        log.warn("Not found: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiResponse.error(404, ex.getMessage()));
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ApiResponse<?>> handleRejected(RejectedExecutionException ex) {
+        log.warn("Rejected: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(ApiResponse.error(429, ex.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<?>> handleGeneric(Exception ex) {
         log.error("Unexpected error occurred", ex);
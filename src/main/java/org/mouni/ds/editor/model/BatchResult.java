@@ -0,0 +1,66 @@
+package org.mouni.ds.editor.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch run: one result (or error object) per request, in request
+ * order, together with the per-statement and overall wall-clock times.
+ */
+public class BatchResult {
+    private List<Object> results;
+    private List<Long> durationsMs;
+    private long elapsedMs;
+    private int successCount;
+    private int errorCount;
+
+    public BatchResult() {}
+
+    public BatchResult(List<Object> results, List<Long> durationsMs, long elapsedMs,
+                       int successCount, int errorCount) {
+        this.results = results;
+        this.durationsMs = durationsMs;
+        this.elapsedMs = elapsedMs;
+        this.successCount = successCount;
+        this.errorCount = errorCount;
+    }
+
+    public List<Object> getResults() {
+        return results;
+    }
+
+    public List<Long> getDurationsMs() {
+        return durationsMs;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public int getSuccessCount() {
+        return successCount;
+    }
+
+    public int getErrorCount() {
+        return errorCount;
+    }
+
+    public void setResults(List<Object> results) {
+        this.results = results;
+    }
+
+    public void setDurationsMs(List<Long> durationsMs) {
+        this.durationsMs = durationsMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    public void setSuccessCount(int successCount) {
+        this.successCount = successCount;
+    }
+
+    public void setErrorCount(int errorCount) {
+        this.errorCount = errorCount;
+    }
+}
@@ -0,0 +1,26 @@
+package org.mouni.ds.editor.model;
+
+import java.util.Locale;
+
+/**
+ * How a batch uses transactions.
+ */
+public enum BatchTransactionMode {
+    /** Every statement runs on its own (autocommit), as before. */
+    NONE,
+    /** One connection, one transaction; any failure rolls back the whole batch. */
+    ATOMIC,
+    /** One connection, one transaction; failed statements are rolled back to a savepoint and the rest commit. */
+    BEST_EFFORT;
+
+    public static BatchTransactionMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return NONE;
+        }
+        try {
+            return BatchTransactionMode.valueOf(value.strip().replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown batch transaction mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package org.mouni.ds.editor.model;
+
+/**
+ * One filter condition applied on top of a paged SELECT, see {@link SqlRequestDto#getFilters()}.
+ */
+public class ColumnFilter {
+    private String column;
+    // eq, ne, lt, le, gt, ge, contains, startsWith, isNull, notNull
+    private String op;
+    // compared value, converted to the column's type; unused by isNull/notNull
+    private Object value;
+
+    public ColumnFilter() {}
+
+    public ColumnFilter(String column, String op, Object value) {
+        this.column = column;
+        this.op = op;
+        this.value = value;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getOp() {
+        return op;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public void setValue(Object value) {
+        this.value = value;
+    }
+}
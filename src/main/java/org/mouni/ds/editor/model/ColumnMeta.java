@@ -0,0 +1,14 @@
+package org.mouni.ds.editor.model;
+
+/**
+ * Result column description sent once per response in the columnar formats.
+ *
+ * @param name     column label
+ * @param jdbcType {@link java.sql.Types} code
+ * @param typeName database-specific type name
+ */
+public record ColumnMeta(
+        String name,
+        int jdbcType,
+        String typeName
+) {}
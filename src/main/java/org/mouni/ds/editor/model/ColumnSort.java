@@ -0,0 +1,32 @@
+package org.mouni.ds.editor.model;
+
+/**
+ * One sort key applied on top of a paged SELECT, see {@link SqlRequestDto#getSort()}.
+ */
+public class ColumnSort {
+    private String column;
+    private String direction; // asc (default) or desc
+
+    public ColumnSort() {}
+
+    public ColumnSort(String column, String direction) {
+        this.column = column;
+        this.direction = direction;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setColumn(String column) {
+        this.column = column;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+}
@@ -0,0 +1,91 @@
+package org.mouni.ds.editor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * SELECT result in {@link ResultFormat#COLUMNAR} form: column metadata once,
+ * then each row as an array of values in column order. {@code total} is only present
+ * when {@link SqlRequestDto#getWithTotal()} was set, {@code truncated} and
+ * {@code nextOffset} only when the rows were cut off by the configured limits.
+ */
+public class ColumnarResult {
+    private List<ColumnMeta> columns;
+    private List<Object[]> rows;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long total;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean totalEstimated;
+    // set when ds.editor.limits cut the rows off: "rows" or "bytes"
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean truncated;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String truncatedBy;
+    // offset to send back to continue after a truncated result
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long nextOffset;
+
+    public ColumnarResult() {}
+
+    public ColumnarResult(List<ColumnMeta> columns, List<Object[]> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    public List<ColumnMeta> getColumns() {
+        return columns;
+    }
+
+    public List<Object[]> getRows() {
+        return rows;
+    }
+
+    public Long getTotal() {
+        return total;
+    }
+
+    public Boolean getTotalEstimated() {
+        return totalEstimated;
+    }
+
+    public void setColumns(List<ColumnMeta> columns) {
+        this.columns = columns;
+    }
+
+    public void setRows(List<Object[]> rows) {
+        this.rows = rows;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public void setTotalEstimated(Boolean totalEstimated) {
+        this.totalEstimated = totalEstimated;
+    }
+
+    public Boolean getTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(Boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public String getTruncatedBy() {
+        return truncatedBy;
+    }
+
+    public void setTruncatedBy(String truncatedBy) {
+        this.truncatedBy = truncatedBy;
+    }
+
+    public Long getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(Long nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+}
@@ -0,0 +1,69 @@
+package org.mouni.ds.editor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a keyset-paginated SELECT. The cursors are opaque tokens that
+ * can be sent back in {@link SqlRequestDto#getCursor()} to fetch the adjacent page.
+ */
+public class KeysetPage {
+    private List<Map<String, Object>> rows;
+    private String nextCursor;
+    private String prevCursor;
+    // set when ds.editor.limits cut the page short: "rows" or "bytes"; nextCursor continues after it
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean truncated;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String truncatedBy;
+
+    public KeysetPage() {}
+
+    public KeysetPage(List<Map<String, Object>> rows, String nextCursor, String prevCursor) {
+        this.rows = rows;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public void setPrevCursor(String prevCursor) {
+        this.prevCursor = prevCursor;
+    }
+
+    public Boolean getTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(Boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public String getTruncatedBy() {
+        return truncatedBy;
+    }
+
+    public void setTruncatedBy(String truncatedBy) {
+        this.truncatedBy = truncatedBy;
+    }
+}
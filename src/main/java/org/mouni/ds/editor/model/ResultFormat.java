@@ -0,0 +1,26 @@
+package org.mouni.ds.editor.model;
+
+import java.util.Locale;
+
+/**
+ * Wire format for SELECT results.
+ */
+public enum ResultFormat {
+    /** One JSON object per row, keyed by column name (default). */
+    ROWS,
+    /** Column metadata once, then each row as a JSON array of values. */
+    COLUMNAR,
+    /** Compact JDK DataOutput encoding; only available on the streaming endpoint. */
+    BINARY;
+
+    public static ResultFormat from(String value) {
+        if (value == null || value.isBlank()) {
+            return ROWS;
+        }
+        try {
+            return ResultFormat.valueOf(value.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown result format: " + value);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.mouni.ds.editor.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of a SELECT in {@link ResultFormat#ROWS} form together with the total row
+ * count of the query, returned when {@link SqlRequestDto#getWithTotal()} is set or when
+ * the rows were cut off by the configured limits.
+ */
+public class RowsPage {
+    private List<Map<String, Object>> rows;
+    private Long total;
+    private boolean totalEstimated;
+    // set when ds.editor.limits cut the rows off: "rows" or "bytes"
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean truncated;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String truncatedBy;
+    // offset to send back to continue after a truncated result
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long nextOffset;
+
+    public RowsPage() {}
+
+    public RowsPage(List<Map<String, Object>> rows, Long total, boolean totalEstimated) {
+        this.rows = rows;
+        this.total = total;
+        this.totalEstimated = totalEstimated;
+    }
+
+    public List<Map<String, Object>> getRows() {
+        return rows;
+    }
+
+    /**
+     * Rows the whole query returns, null if counting failed.
+     */
+    public Long getTotal() {
+        return total;
+    }
+
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+
+    public void setRows(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+
+    public void setTotal(Long total) {
+        this.total = total;
+    }
+
+    public void setTotalEstimated(boolean totalEstimated) {
+        this.totalEstimated = totalEstimated;
+    }
+
+    public Boolean getTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(Boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    public String getTruncatedBy() {
+        return truncatedBy;
+    }
+
+    public void setTruncatedBy(String truncatedBy) {
+        this.truncatedBy = truncatedBy;
+    }
+
+    public Long getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(Long nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+}
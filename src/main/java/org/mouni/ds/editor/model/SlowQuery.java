@@ -0,0 +1,103 @@
+package org.mouni.ds.editor.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * A statement that exceeded the slow-query threshold. The execution plan is captured
+ * in the background and filled in once available.
+ */
+public class SlowQuery {
+
+    private final long id;
+    private final String datasource;
+    private final String sql;
+    private final List<Object> params;
+    private final String statementType;
+    private final Instant executedAt;
+    private final double durationMs;
+    private final long rows;
+    private final String error;
+
+    // written by the capturing thread
+    private volatile String plan;
+    private volatile String planFormat;
+    private volatile String planError;
+
+    public SlowQuery(long id, String datasource, String sql, List<Object> params, String statementType, Instant executedAt,
+                     double durationMs, long rows, String error) {
+        this.id = id;
+        this.datasource = datasource;
+        this.sql = sql;
+        this.params = params;
+        this.statementType = statementType;
+        this.executedAt = executedAt;
+        this.durationMs = durationMs;
+        this.rows = rows;
+        this.error = error;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getDatasource() {
+        return datasource;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public List<Object> getParams() {
+        return params;
+    }
+
+    public String getStatementType() {
+        return statementType;
+    }
+
+    public Instant getExecutedAt() {
+        return executedAt;
+    }
+
+    public double getDurationMs() {
+        return durationMs;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * The captured plan: JSON on PostgreSQL, plain text elsewhere. Null while pending
+     * or when capturing failed.
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * {@code json} or {@code text}, null while no plan was captured.
+     */
+    public String getPlanFormat() {
+        return planFormat;
+    }
+
+    public String getPlanError() {
+        return planError;
+    }
+
+    public void setPlan(String plan, String planFormat) {
+        this.plan = plan;
+        this.planFormat = planFormat;
+    }
+
+    public void setPlanError(String planError) {
+        this.planError = planError;
+    }
+}
@@ -2,6 +2,8 @@ package org.mouni.ds.editor.model;
 
 import jakarta.validation.constraints.NotBlank;
 
+import java.util.List;
+
 public class SqlRequestDto {
     @NotBlank
     private String query;
@@ -9,6 +11,34 @@ public class SqlRequestDto {
     // Optional paging for SELECT
     private Integer page; // zero-based
     private Integer size; // default 20
+    private Long offset; // rows to skip instead of page * size, e.g. nextOffset of a truncated result
+
+    // Optional keyset paging for SELECT; requires an ORDER BY on plain columns
+    private Boolean keyset;
+    private String cursor; // opaque token from a previous KeysetPage
+
+    // Optional result format for SELECT: rows (default), columnar, binary (stream only)
+    private String format;
+
+    // Optional positional bind values for '?' placeholders (INSERT/UPDATE/DELETE only)
+    private List<Object> params;
+
+    // Optional statement timeout in seconds; capped by ds.editor.query-timeout when that is set
+    private Integer timeoutSeconds;
+
+    // Optional for paged SELECTs: sort and filter the whole result in the database before paging
+    private List<ColumnSort> sort;
+    private List<ColumnFilter> filters;
+
+    // Optional for paged SELECTs: also return the total row count of the query, exact (default) or estimate
+    private Boolean withTotal;
+    private String totalMode;
+
+    // Optional name of the ds.editor.datasources entry to run on; the application's DataSource when absent
+    private String datasource;
+
+    // Optional: run on the addressed datasource itself, never on one of its read replicas
+    private Boolean primary;
 
     public SqlRequestDto() {}
 
@@ -30,6 +60,54 @@ public class SqlRequestDto {
         return size;
     }
 
+    public Long getOffset() {
+        return offset;
+    }
+
+    public Boolean getKeyset() {
+        return keyset;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public List<Object> getParams() {
+        return params;
+    }
+
+    public Integer getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public List<ColumnSort> getSort() {
+        return sort;
+    }
+
+    public List<ColumnFilter> getFilters() {
+        return filters;
+    }
+
+    public Boolean getWithTotal() {
+        return withTotal;
+    }
+
+    public String getTotalMode() {
+        return totalMode;
+    }
+
+    public String getDatasource() {
+        return datasource;
+    }
+
+    public Boolean getPrimary() {
+        return primary;
+    }
+
     public void setQuery(String query) {
         this.query = query;
     }
@@ -41,4 +119,52 @@ public class SqlRequestDto {
     public void setSize(Integer size) {
         this.size = size;
     }
+
+    public void setOffset(Long offset) {
+        this.offset = offset;
+    }
+
+    public void setKeyset(Boolean keyset) {
+        this.keyset = keyset;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public void setParams(List<Object> params) {
+        this.params = params;
+    }
+
+    public void setTimeoutSeconds(Integer timeoutSeconds) {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    public void setSort(List<ColumnSort> sort) {
+        this.sort = sort;
+    }
+
+    public void setFilters(List<ColumnFilter> filters) {
+        this.filters = filters;
+    }
+
+    public void setWithTotal(Boolean withTotal) {
+        this.withTotal = withTotal;
+    }
+
+    public void setTotalMode(String totalMode) {
+        this.totalMode = totalMode;
+    }
+
+    public void setDatasource(String datasource) {
+        this.datasource = datasource;
+    }
+
+    public void setPrimary(Boolean primary) {
+        this.primary = primary;
+    }
 }
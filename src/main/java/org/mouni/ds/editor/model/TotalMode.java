@@ -0,0 +1,24 @@
+package org.mouni.ds.editor.model;
+
+import java.util.Locale;
+
+/**
+ * How the total row count of a paged SELECT is determined.
+ */
+public enum TotalMode {
+    /** {@code SELECT count(*)} over the query (default). */
+    EXACT,
+    /** The planner's row estimate from {@code EXPLAIN}; PostgreSQL only, exact elsewhere. */
+    ESTIMATE;
+
+    public static TotalMode from(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        try {
+            return TotalMode.valueOf(value.strip().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown total mode: " + value);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.mouni.ds.editor.service;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Per-column readers chosen once from {@link ResultSetMetaData}, so the row loop
+ * does not re-inspect column types or labels. Numeric and boolean columns use the
+ * primitive getters plus {@link ResultSet#wasNull()} and hand primitives to the
+ * {@link ValueSink}, which lets serializing sinks write cells without boxing.
+ */
+final class ColumnReaders {
+
+    /**
+     * Receives cell values in column order. {@code column} is zero-based.
+     */
+    interface ValueSink {
+        void writeNull(int column) throws IOException;
+
+        void writeInt(int column, int value) throws IOException;
+
+        void writeLong(int column, long value) throws IOException;
+
+        void writeDouble(int column, double value) throws IOException;
+
+        void writeBoolean(int column, boolean value) throws IOException;
+
+        void writeString(int column, String value) throws IOException;
+
+        void writeObject(int column, Object value) throws IOException;
+    }
+
+    /**
+     * Reads column {@code column} (zero-based) of the current row into the sink.
+     */
+    @FunctionalInterface
+    interface ColumnReader {
+        void read(ResultSet rs, int column, ValueSink sink) throws SQLException, IOException;
+    }
+
+    private static final ColumnReader INT = (rs, column, sink) -> {
+        int value = rs.getInt(column + 1);
+        if (rs.wasNull()) {
+            sink.writeNull(column);
+        } else {
+            sink.writeInt(column, value);
+        }
+    };
+
+    private static final ColumnReader LONG = (rs, column, sink) -> {
+        long value = rs.getLong(column + 1);
+        if (rs.wasNull()) {
+            sink.writeNull(column);
+        } else {
+            sink.writeLong(column, value);
+        }
+    };
+
+    private static final ColumnReader DOUBLE = (rs, column, sink) -> {
+        double value = rs.getDouble(column + 1);
+        if (rs.wasNull()) {
+            sink.writeNull(column);
+        } else {
+            sink.writeDouble(column, value);
+        }
+    };
+
+    private static final ColumnReader BOOLEAN = (rs, column, sink) -> {
+        boolean value = rs.getBoolean(column + 1);
+        if (rs.wasNull()) {
+            sink.writeNull(column);
+        } else {
+            sink.writeBoolean(column, value);
+        }
+    };
+
+    private static final ColumnReader STRING = (rs, column, sink) -> {
+        String value = rs.getString(column + 1);
+        if (value == null) {
+            sink.writeNull(column);
+        } else {
+            sink.writeString(column, value);
+        }
+    };
+
+    // Same conversions as ColumnMapRowMapper for everything else (dates, LOBs, decimals, ...)
+    private static final ColumnReader GENERIC = (rs, column, sink) -> {
+        Object value = JdbcUtils.getResultSetValue(rs, column + 1);
+        if (value == null) {
+            sink.writeNull(column);
+        } else {
+            sink.writeObject(column, value);
+        }
+    };
+
+    private ColumnReaders() {
+    }
+
+    static ColumnReader[] forMetaData(ResultSetMetaData meta) throws SQLException {
+        int columnCount = meta.getColumnCount();
+        ColumnReader[] readers = new ColumnReader[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            int jdbcType = meta.getColumnType(i + 1);
+            // BIT(n) for n > 1 is a bit string (PostgreSQL bit varying, MySQL BIT(8)), not a flag
+            readers[i] = jdbcType == Types.BIT && meta.getPrecision(i + 1) != 1 ? GENERIC : forType(jdbcType);
+        }
+        return readers;
+    }
+
+    static ColumnReader forType(int jdbcType) {
+        return switch (jdbcType) {
+            case Types.INTEGER, Types.SMALLINT, Types.TINYINT -> INT;
+            case Types.BIGINT -> LONG;
+            case Types.DOUBLE, Types.FLOAT -> DOUBLE;
+            case Types.BOOLEAN, Types.BIT -> BOOLEAN;
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR,
+                 Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR -> STRING;
+            default -> GENERIC;
+        };
+    }
+
+    /**
+     * Sink that boxes values into a reusable {@code Object[]} row buffer.
+     */
+    static final class ArraySink implements ValueSink {
+        Object[] row;
+
+        @Override
+        public void writeNull(int column) {
+            row[column] = null;
+        }
+
+        @Override
+        public void writeInt(int column, int value) {
+            row[column] = value;
+        }
+
+        @Override
+        public void writeLong(int column, long value) {
+            row[column] = value;
+        }
+
+        @Override
+        public void writeDouble(int column, double value) {
+            row[column] = value;
+        }
+
+        @Override
+        public void writeBoolean(int column, boolean value) {
+            row[column] = value;
+        }
+
+        @Override
+        public void writeString(int column, String value) {
+            row[column] = value;
+        }
+
+        @Override
+        public void writeObject(int column, Object value) {
+            row[column] = value;
+        }
+    }
+}
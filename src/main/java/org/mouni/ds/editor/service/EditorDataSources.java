@@ -0,0 +1,353 @@
+package org.mouni.ds.editor.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The databases the editor runs statements against: the application's DataSource as
+ * {@value #DEFAULT}, plus one pool per {@code ds.editor.datasources.<name>} entry.
+ * <p>
+ * A datasource with {@code replica-of} set is a read replica. SELECTs addressed to its
+ * primary go round-robin to the replicas that are reachable and within
+ * {@code ds.editor.routing.max-replica-lag}, checked in the background. Everything
+ * else runs on the primary, and so do reads
+ * <ul>
+ *   <li>inside a transaction, which is bound to the primary's connection;</li>
+ *   <li>from a client that wrote to the primary within {@code primary-after-write};</li>
+ *   <li>when no replica qualifies.</li>
+ * </ul>
+ */
+@Component
+public class EditorDataSources implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EditorDataSources.class);
+
+    public static final String DEFAULT = "default";
+
+    private static final String POSTGRES_LAG_QUERY = "SELECT CASE"
+            + " WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private static final int CHECK_TIMEOUT_SECONDS = 2;
+
+    /**
+     * A named datasource, with the replicas reads addressed to it may be routed to.
+     */
+    public static final class Target {
+        private final String name;
+        private final DataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final String replicaOf;
+        private final String lagQuery;
+        private final List<Target> replicas = new ArrayList<>();
+        private final AtomicInteger nextReplica = new AtomicInteger();
+        // replica state, updated by the lag check
+        private volatile boolean available = true;
+        private volatile long lagMillis;
+        private volatile String lastError;
+
+        Target(String name, DataSource dataSource, JdbcTemplate jdbcTemplate, String replicaOf, String lagQuery) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = jdbcTemplate;
+            // plain JDBC transactions, independent of the application's JPA setup
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+            this.replicaOf = replicaOf;
+            this.lagQuery = lagQuery;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        JdbcTemplate jdbcTemplate() {
+            return jdbcTemplate;
+        }
+
+        TransactionTemplate transactionTemplate() {
+            return transactionTemplate;
+        }
+
+        public boolean isReplica() {
+            return replicaOf != null;
+        }
+    }
+
+    private final DsEditorProperties.Routing routing;
+    private final EditorMetrics metrics;
+    private final Map<String, Target> targets = new LinkedHashMap<>();
+    private final List<HikariDataSource> ownedPools = new ArrayList<>();
+    // "client\0target" -> nanoTime of the client's last write to that primary
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService lagChecker;
+
+    public EditorDataSources(DsEditorProperties properties, JdbcTemplate jdbcTemplate, EditorMetrics metrics) {
+        this.routing = properties.getRouting();
+        this.metrics = metrics;
+        targets.put(DEFAULT, new Target(DEFAULT, jdbcTemplate.getDataSource(), jdbcTemplate, null, null));
+        try {
+            properties.getDatasources().forEach((name, settings) -> targets.put(name, create(name, settings, jdbcTemplate)));
+            linkReplicas();
+        } catch (RuntimeException e) {
+            closePools();
+            throw e;
+        }
+
+        boolean replicated = targets.values().stream().anyMatch(Target::isReplica);
+        if (replicated) {
+            long interval = Math.max(100, routing.getLagCheckInterval().toMillis());
+            lagChecker = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("ds-editor-replica-check").daemon().factory());
+            lagChecker.scheduleWithFixedDelay(this::checkReplicas, 0, interval, TimeUnit.MILLISECONDS);
+        } else {
+            lagChecker = null;
+        }
+        if (targets.size() > 1) {
+            log.info("Editor datasources: {}", targets.keySet());
+        }
+    }
+
+    /**
+     * The datasource a request addresses; {@value #DEFAULT} when it names none.
+     *
+     * @throws IllegalArgumentException if no datasource has that name
+     */
+    public Target resolve(String name) {
+        Target target = targets.get(StringUtils.hasText(name) ? name.strip() : DEFAULT);
+        if (target == null) {
+            throw new IllegalArgumentException("Unknown datasource '" + name + "', available: " + targets.keySet());
+        }
+        return target;
+    }
+
+    /**
+     * Where a statement of the given class addressed to {@code target} runs. Reads that
+     * lock rows or change state are classed as writes, see
+     * {@link QueryGovernor.StatementClass#of(org.mouni.ds.sql.SqlLexer.StatementInfo)}.
+     */
+    Target route(Target target, QueryGovernor.StatementClass statementClass, String client) {
+        if (target.replicas.isEmpty()) {
+            return target;
+        }
+        if (statementClass != QueryGovernor.StatementClass.READ) {
+            if (client != null) {
+                lastWrites.put(client + '\0' + target.name, System.nanoTime());
+            }
+            return target;
+        }
+        if (!routing.isReadFromReplicas() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return target;
+        }
+        if (client != null && wroteRecently(client, target)) {
+            metrics.recordRoute(target.name, "primary_after_write");
+            return target;
+        }
+        long maxLag = routing.getMaxReplicaLag().toMillis();
+        int size = target.replicas.size();
+        int start = Math.floorMod(target.nextReplica.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            Target replica = target.replicas.get((start + i) % size);
+            if (replica.available && replica.lagMillis <= maxLag) {
+                metrics.recordRoute(target.name, "replica");
+                return replica;
+            }
+        }
+        log.debug("No replica of '{}' within lag, reading from the primary", target.name);
+        metrics.recordRoute(target.name, "fallback");
+        return target;
+    }
+
+    /**
+     * Takes a replica out of rotation after it failed to hand out a connection; the
+     * next successful lag check puts it back.
+     */
+    void markUnavailable(Target replica, Throwable error) {
+        if (replica.isReplica() && replica.available) {
+            replica.available = false;
+            replica.lastError = error.getMessage();
+            log.warn("Replica '{}' unavailable, reading from '{}' until it recovers: {}",
+                    replica.name, replica.replicaOf, error.getMessage());
+        }
+    }
+
+    /**
+     * The primary a replica belongs to, or the target itself.
+     */
+    Target primaryOf(Target target) {
+        return target.isReplica() ? targets.get(target.replicaOf) : target;
+    }
+
+    /**
+     * Names, roles, replica state and pool usage of every datasource.
+     */
+    public List<Map<String, Object>> describe() {
+        List<Map<String, Object>> result = new ArrayList<>(targets.size());
+        for (Target target : targets.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("name", target.name);
+            if (target.isReplica()) {
+                entry.put("replicaOf", target.replicaOf);
+                entry.put("available", target.available);
+                entry.put("lagMs", target.lagMillis);
+                entry.put("lastError", target.lastError);
+            } else if (!target.replicas.isEmpty()) {
+                entry.put("replicas", target.replicas.stream().map(Target::name).toList());
+            }
+            if (target.dataSource instanceof HikariDataSource hikari) {
+                Map<String, Object> pool = new LinkedHashMap<>();
+                pool.put("maximumPoolSize", hikari.getMaximumPoolSize());
+                HikariPoolMXBean mxBean = hikari.getHikariPoolMXBean();
+                if (mxBean != null) {
+                    pool.put("active", mxBean.getActiveConnections());
+                    pool.put("idle", mxBean.getIdleConnections());
+                    pool.put("awaiting", mxBean.getThreadsAwaitingConnection());
+                }
+                entry.put("pool", pool);
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        if (lagChecker != null) {
+            lagChecker.shutdownNow();
+        }
+        closePools();
+    }
+
+    // internal helpers
+
+    private Target create(String name, DsEditorProperties.DataSourceSettings settings, JdbcTemplate defaults) {
+        if (DEFAULT.equals(name)) {
+            throw new IllegalStateException("ds.editor.datasources." + DEFAULT + " is reserved for the application's DataSource");
+        }
+        if (!StringUtils.hasText(settings.getUrl())) {
+            throw new IllegalStateException("ds.editor.datasources." + name + ".url must be set");
+        }
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("ds-editor-" + name);
+        pool.setJdbcUrl(settings.getUrl());
+        pool.setUsername(settings.getUsername());
+        pool.setPassword(settings.getPassword());
+        if (StringUtils.hasText(settings.getDriverClassName())) {
+            pool.setDriverClassName(settings.getDriverClassName());
+        }
+        pool.setMaximumPoolSize(Math.max(1, settings.getMaximumPoolSize()));
+        pool.setReadOnly(StringUtils.hasText(settings.getReplicaOf()));
+        ownedPools.add(pool);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(pool);
+        jdbcTemplate.setFetchSize(defaults.getFetchSize());
+        jdbcTemplate.setMaxRows(defaults.getMaxRows());
+        jdbcTemplate.setQueryTimeout(defaults.getQueryTimeout());
+        String replicaOf = StringUtils.hasText(settings.getReplicaOf()) ? settings.getReplicaOf().strip() : null;
+        return new Target(name, pool, jdbcTemplate, replicaOf, settings.getLagQuery());
+    }
+
+    private void linkReplicas() {
+        for (Target target : targets.values()) {
+            if (!target.isReplica()) {
+                continue;
+            }
+            Target primary = targets.get(target.replicaOf);
+            if (primary == null || primary.isReplica()) {
+                throw new IllegalStateException("ds.editor.datasources." + target.name + ".replica-of must name a "
+                        + "datasource that is not itself a replica, got '" + target.replicaOf + "'");
+            }
+            primary.replicas.add(target);
+        }
+    }
+
+    private boolean wroteRecently(String client, Target target) {
+        Long wroteAt = lastWrites.get(client + '\0' + target.name);
+        return wroteAt != null && System.nanoTime() - wroteAt < routing.getPrimaryAfterWrite().toNanos();
+    }
+
+    private void checkReplicas() {
+        for (Target target : targets.values()) {
+            if (target.isReplica()) {
+                checkReplica(target);
+            }
+        }
+        long expiry = routing.getPrimaryAfterWrite().toNanos();
+        long now = System.nanoTime();
+        lastWrites.values().removeIf(wroteAt -> now - wroteAt >= expiry);
+    }
+
+    private void checkReplica(Target replica) {
+        try (Connection conn = replica.dataSource.getConnection()) {
+            String query = replica.lagQuery;
+            if (!StringUtils.hasText(query) && isPostgres(conn)) {
+                query = POSTGRES_LAG_QUERY;
+            }
+            long lag = 0;
+            if (StringUtils.hasText(query)) {
+                try (PreparedStatement ps = conn.prepareStatement(query)) {
+                    ps.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        lag = rs.next() ? Math.round(rs.getDouble(1) * 1000) : 0;
+                    }
+                }
+            } else if (!conn.isValid(CHECK_TIMEOUT_SECONDS)) {
+                throw new SQLException("Connection is not valid");
+            }
+            replica.lagMillis = lag;
+            replica.lastError = null;
+            if (!replica.available) {
+                log.info("Replica '{}' is available again, lag {} ms", replica.name, lag);
+                replica.available = true;
+            }
+        } catch (SQLException | RuntimeException e) {
+            replica.lastError = e.getMessage();
+            if (replica.available) {
+                log.warn("Replica '{}' failed its lag check, reading from '{}' until it recovers: {}",
+                        replica.name, replica.replicaOf, e.getMessage());
+                replica.available = false;
+            }
+        }
+    }
+
+    private static boolean isPostgres(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        return product != null && product.toLowerCase(Locale.ROOT).contains("postgres");
+    }
+
+    private void closePools() {
+        for (HikariDataSource pool : ownedPools) {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.mouni.ds.editor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters for the editor's hot paths. Per-statement meters are created once
+ * up front, so recording is a map lookup plus the meter update.
+ * <p>
+ * Meters (tag {@code class} is read, write or ddl):
+ * <ul>
+ *   <li>{@code ds.editor.statement} timer, tags {@code class}, {@code outcome}; excludes queueing</li>
+ *   <li>{@code ds.editor.statement.rows} summary of rows returned or affected, tag {@code class}</li>
+ *   <li>{@code ds.editor.statement.errors} counter, tags {@code class}, {@code sqlstate}</li>
+ *   <li>{@code ds.editor.stream.bytes} summary of bytes written by {@code /stream}, tag {@code format}</li>
+ *   <li>{@code ds.editor.route} counter of SELECTs addressed to a datasource with replicas, tags
+ *       {@code datasource}, {@code route} (replica, primary_after_write or fallback)</li>
+ *   <li>{@code ds.editor.governor.wait} timer and {@code ds.editor.governor.rejected} counter,
+ *       plus {@code ds.editor.governor.in.use} / {@code .queued} gauges</li>
+ * </ul>
+ * Connection-acquire wait is published by Spring Boot's Hikari binding as
+ * {@code hikari.connections.acquire}.
+ */
+@Component
+public class EditorMetrics {
+
+    static final String STATEMENT = "ds.editor.statement";
+    static final String STATEMENT_ROWS = "ds.editor.statement.rows";
+    static final String STATEMENT_ERRORS = "ds.editor.statement.errors";
+    static final String STREAM_BYTES = "ds.editor.stream.bytes";
+    static final String ROUTE = "ds.editor.route";
+    static final String GOVERNOR_WAIT = "ds.editor.governor.wait";
+    static final String GOVERNOR_REJECTED = "ds.editor.governor.rejected";
+
+    private final MeterRegistry registry;
+    private final Map<QueryGovernor.StatementClass, Timer> succeeded = new EnumMap<>(QueryGovernor.StatementClass.class);
+    private final Map<QueryGovernor.StatementClass, Timer> failed = new EnumMap<>(QueryGovernor.StatementClass.class);
+    private final Map<QueryGovernor.StatementClass, DistributionSummary> rows = new EnumMap<>(QueryGovernor.StatementClass.class);
+    private final Map<QueryGovernor.StatementClass, Timer> governorWaits = new EnumMap<>(QueryGovernor.StatementClass.class);
+
+    public EditorMetrics(ObjectProvider<MeterRegistry> registry) {
+        // without a registry bean (metrics disabled) the empty global registry turns everything into no-ops
+        this.registry = registry.getIfAvailable(() -> Metrics.globalRegistry);
+        for (QueryGovernor.StatementClass statementClass : QueryGovernor.StatementClass.values()) {
+            String tag = tag(statementClass);
+            succeeded.put(statementClass, statementTimer(tag, "success"));
+            failed.put(statementClass, statementTimer(tag, "error"));
+            rows.put(statementClass, DistributionSummary.builder(STATEMENT_ROWS)
+                    .description("Rows returned or affected per statement")
+                    .baseUnit("rows")
+                    .tag("class", tag)
+                    .register(this.registry));
+            governorWaits.put(statementClass, Timer.builder(GOVERNOR_WAIT)
+                    .description("Time statements waited for an admission slot")
+                    .tag("class", tag)
+                    .publishPercentileHistogram()
+                    .register(this.registry));
+        }
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    void recordStatement(QueryGovernor.StatementClass statementClass, long nanos, long rowCount, Throwable error) {
+        if (error == null) {
+            succeeded.get(statementClass).record(nanos, TimeUnit.NANOSECONDS);
+            rows.get(statementClass).record(rowCount);
+            return;
+        }
+        failed.get(statementClass).record(nanos, TimeUnit.NANOSECONDS);
+        Counter.builder(STATEMENT_ERRORS)
+                .description("Failed statements by SQLState")
+                .tag("class", tag(statementClass))
+                .tag("sqlstate", sqlState(error))
+                .register(registry)
+                .increment();
+    }
+
+    void recordStreamedBytes(String format, long bytes) {
+        DistributionSummary.builder(STREAM_BYTES)
+                .description("Bytes written per streamed result")
+                .baseUnit("bytes")
+                .tag("format", format.toLowerCase(Locale.ROOT))
+                .register(registry)
+                .record(bytes);
+    }
+
+    void recordRoute(String dataSource, String route) {
+        Counter.builder(ROUTE)
+                .description("Routing decisions for reads addressed to a datasource with replicas")
+                .tag("datasource", dataSource)
+                .tag("route", route)
+                .register(registry)
+                .increment();
+    }
+
+    void recordGovernorWait(QueryGovernor.StatementClass statementClass, long nanos) {
+        governorWaits.get(statementClass).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordGovernorRejection(QueryGovernor.StatementClass statementClass, String reason) {
+        Counter.builder(GOVERNOR_REJECTED)
+                .description("Statements rejected by admission control")
+                .tag("class", tag(statementClass))
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    void governorGauges(QueryGovernor.StatementClass statementClass, Supplier<Number> inUse, Supplier<Number> queued) {
+        Gauge.builder("ds.editor.governor.in.use", inUse)
+                .description("Admission slots in use")
+                .tag("class", tag(statementClass))
+                .register(registry);
+        Gauge.builder("ds.editor.governor.queued", queued)
+                .description("Statements waiting for an admission slot")
+                .tag("class", tag(statementClass))
+                .register(registry);
+    }
+
+    // internal helpers
+
+    private Timer statementTimer(String statementClass, String outcome) {
+        return Timer.builder(STATEMENT)
+                .description("Statement execution time, excluding admission queueing")
+                .tag("class", statementClass)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String tag(QueryGovernor.StatementClass statementClass) {
+        return statementClass.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String sqlState(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof SQLException sql && sql.getSQLState() != null) {
+                return sql.getSQLState();
+            }
+        }
+        return "none";
+    }
+}
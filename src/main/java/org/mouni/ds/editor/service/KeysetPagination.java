@@ -0,0 +1,273 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.mouni.ds.sql.SqlLexer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keyset ("seek") pagination over the ORDER BY columns of a SELECT.
+ * <p>
+ * Instead of {@code LIMIT ? OFFSET ?}, each page continues from the key values of
+ * the last (or first) row of the previous page, so every page costs the same no
+ * matter how deep it is. Cursors are opaque base64url tokens carrying those key
+ * values plus a fingerprint of the query they belong to.
+ * <p>
+ * Restrictions: ORDER BY items must be plain (optionally qualified) column names
+ * that appear in the result, the ordering should be unique (end with a key column),
+ * and key columns must not be NULL on page boundaries.
+ */
+final class KeysetPagination {
+
+    private static final Pattern ORDER_ITEM = Pattern.compile(
+            "^((?:\"[^\"]+\"|[A-Za-z_][A-Za-z0-9_$]*)(?:\\s*\\.\\s*(?:\"[^\"]+\"|[A-Za-z_][A-Za-z0-9_$]*))*)"
+                    + "(?:\\s+(ASC|DESC))?(?:\\s+NULLS\\s+(?:FIRST|LAST))?$",
+            Pattern.CASE_INSENSITIVE);
+
+    /**
+     * One ORDER BY key.
+     *
+     * @param sqlName    identifier as it must appear in the outer query (quotes kept)
+     * @param lookupName column label used to read the value from a result row
+     * @param descending whether the key is sorted descending
+     */
+    record OrderKey(String sqlName, String lookupName, boolean descending) {}
+
+    /**
+     * A decoded cursor: the boundary key values and the paging direction.
+     */
+    record Cursor(boolean backward, List<Object> values) {}
+
+    private final ObjectMapper objectMapper;
+
+    KeysetPagination(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Extracts the top-level ORDER BY keys of the query.
+     *
+     * @throws IllegalArgumentException if the query has no usable ORDER BY
+     */
+    List<OrderKey> orderKeys(String sql, SqlLexer.StatementInfo info) {
+        if (!info.hasOrderBy()) {
+            throw new IllegalArgumentException("Keyset pagination requires an ORDER BY clause");
+        }
+        if (info.limitedAfterOrderBy()) {
+            throw new IllegalArgumentException(
+                    "Keyset pagination cannot be combined with LIMIT/OFFSET/FETCH in the query");
+        }
+        String tail = SqlLexer.normalize(sql.substring(info.orderByEnd(), info.bodyEnd()));
+
+        List<OrderKey> keys = new ArrayList<>();
+        for (String item : tail.split(",")) {
+            Matcher m = ORDER_ITEM.matcher(item.strip());
+            if (!m.matches()) {
+                throw new IllegalArgumentException(
+                        "Keyset pagination requires ORDER BY on plain column names, got: " + item.strip());
+            }
+            String qualified = m.group(1);
+            String sqlName = qualified.substring(qualified.lastIndexOf('.') + 1).strip();
+            String lookupName = sqlName.startsWith("\"")
+                    ? sqlName.substring(1, sqlName.length() - 1)
+                    : sqlName;
+            boolean descending = "DESC".equalsIgnoreCase(m.group(2));
+            keys.add(new OrderKey(sqlName, lookupName, descending));
+        }
+        return keys;
+    }
+
+    /**
+     * Builds the page query. Fetches {@code limit} rows after (or before, when
+     * {@code backward}) the cursor position.
+     */
+    String pageSql(String sql, SqlLexer.StatementInfo info, List<OrderKey> keys, Cursor cursor) {
+        boolean backward = cursor != null && cursor.backward();
+        String inner = sql.substring(0, info.bodyEnd());
+        StringBuilder sb = new StringBuilder("SELECT * FROM ( ").append(inner).append(" ) AS sub");
+
+        if (cursor != null) {
+            sb.append(" WHERE ");
+            for (int i = 0; i < keys.size(); i++) {
+                if (i > 0) sb.append(" OR ");
+                sb.append('(');
+                for (int j = 0; j < i; j++) {
+                    sb.append(keys.get(j).sqlName()).append(" = ? AND ");
+                }
+                OrderKey key = keys.get(i);
+                boolean greater = key.descending() == backward;
+                sb.append(key.sqlName()).append(greater ? " > ?" : " < ?").append(')');
+            }
+        }
+
+        sb.append(" ORDER BY ");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) sb.append(", ");
+            OrderKey key = keys.get(i);
+            boolean descending = key.descending() != backward;
+            sb.append(key.sqlName()).append(descending ? " DESC" : " ASC");
+        }
+        sb.append(" LIMIT ?");
+        return sb.toString();
+    }
+
+    /**
+     * Bind values matching {@link #pageSql(String, SqlLexer.StatementInfo, List, Cursor)}.
+     */
+    Object[] pageParams(List<OrderKey> keys, Cursor cursor, int limit) {
+        List<Object> params = new ArrayList<>();
+        if (cursor != null) {
+            for (int i = 0; i < keys.size(); i++) {
+                for (int j = 0; j <= i; j++) {
+                    params.add(cursor.values().get(j));
+                }
+            }
+        }
+        params.add(limit);
+        return params.toArray();
+    }
+
+    /**
+     * Encodes a cursor pointing at the given boundary row, or returns null if a key
+     * value is NULL (NULL keys cannot be compared, so paging stops there).
+     */
+    String encode(String sql, List<OrderKey> keys, Map<String, Object> row, boolean backward) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("h", fingerprint(sql));
+        root.put("b", backward);
+        ArrayNode values = root.putArray("k");
+        for (OrderKey key : keys) {
+            Object value = columnValue(row, key.lookupName());
+            if (value == null) {
+                return null;
+            }
+            writeValue(values.addArray(), value);
+        }
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(objectMapper.writeValueAsBytes(root));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    /**
+     * Decodes a cursor and checks that it belongs to the given query.
+     *
+     * @throws IllegalArgumentException if the token is malformed or for another query
+     */
+    Cursor decode(String sql, List<OrderKey> keys, String token) {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (root == null || !fingerprint(sql).equals(root.path("h").asText())) {
+            throw new IllegalArgumentException("Cursor does not belong to this query");
+        }
+        JsonNode encoded = root.path("k");
+        if (!encoded.isArray() || encoded.size() != keys.size()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        List<Object> values = new ArrayList<>(keys.size());
+        for (JsonNode node : encoded) {
+            values.add(readValue(node));
+        }
+        return new Cursor(root.path("b").asBoolean(false), values);
+    }
+
+    // internal helpers
+
+    // result labels may differ in case from the ORDER BY identifier (e.g. H2 upper-cases them)
+    private static Object columnValue(Map<String, Object> row, String name) {
+        Object value = row.get(name);
+        if (value == null) {
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                if (entry.getKey().equalsIgnoreCase(name)) {
+                    return entry.getValue();
+                }
+            }
+        }
+        return value;
+    }
+
+    private static String fingerprint(String sql) {
+        return Integer.toHexString(sql.strip().hashCode());
+    }
+
+    private static void writeValue(ArrayNode out, Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.add("l").add(((Number) value).longValue());
+        } else if (value instanceof BigDecimal bd) {
+            out.add("n").add(bd.toPlainString());
+        } else if (value instanceof BigInteger bi) {
+            out.add("n").add(bi.toString());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.add("d").add(((Number) value).doubleValue());
+        } else if (value instanceof Boolean b) {
+            out.add("b").add(b);
+        } else if (value instanceof Timestamp ts) {
+            out.add("ts").add(ts.toLocalDateTime().toString());
+        } else if (value instanceof java.sql.Date d) {
+            out.add("dt").add(d.toLocalDate().toString());
+        } else if (value instanceof Time t) {
+            out.add("tm").add(t.toLocalTime().toString());
+        } else if (value instanceof LocalDateTime ldt) {
+            out.add("ts").add(ldt.toString());
+        } else if (value instanceof LocalDate ld) {
+            out.add("dt").add(ld.toString());
+        } else if (value instanceof OffsetDateTime odt) {
+            out.add("odt").add(odt.toString());
+        } else if (value instanceof UUID u) {
+            out.add("u").add(u.toString());
+        } else {
+            out.add("s").add(value.toString());
+        }
+    }
+
+    private static Object readValue(JsonNode node) {
+        if (!node.isArray() || node.size() != 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        String tag = node.get(0).asText();
+        JsonNode v = node.get(1);
+        try {
+            return switch (tag.toLowerCase(Locale.ROOT)) {
+                case "l" -> v.asLong();
+                case "n" -> new BigDecimal(v.asText());
+                case "d" -> v.asDouble();
+                case "b" -> v.asBoolean();
+                case "ts" -> Timestamp.valueOf(LocalDateTime.parse(v.asText()));
+                case "dt" -> java.sql.Date.valueOf(LocalDate.parse(v.asText()));
+                case "tm" -> Time.valueOf(LocalTime.parse(v.asText()));
+                case "odt" -> OffsetDateTime.parse(v.asText());
+                case "u" -> UUID.fromString(v.asText());
+                case "s" -> v.asText();
+                default -> throw new IllegalArgumentException("Invalid cursor");
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.mouni.ds.editor.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Statement control for one execution: the query timeout to apply and a handle that
+ * cancels whatever statement is currently running. It is bound to the executing
+ * thread with {@link #call} and picked up by templates created with
+ * {@link #jdbcTemplate}, so no JDBC call site has to pass it around.
+ */
+final class QueryControl {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryControl.class);
+
+    private static final ThreadLocal<QueryControl> CURRENT = new ThreadLocal<>();
+
+    private final int timeoutSeconds;
+    private final String client;
+    // running statement per thread; an execution may run a helper statement on a second thread
+    private final Map<Thread, Statement> statements = new ConcurrentHashMap<>();
+    private volatile boolean cancelled;
+
+    // set while the execution holds a QueryGovernor slot, so nested statements do not queue again
+    boolean admitted;
+
+    /**
+     * @param timeoutSeconds timeout applied to every statement of the execution, 0 for none
+     * @param client         identifies the caller for fair queueing, see {@link QueryGovernor}
+     */
+    QueryControl(int timeoutSeconds, String client) {
+        this.timeoutSeconds = timeoutSeconds;
+        this.client = client;
+    }
+
+    static QueryControl current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Runs the action with this control bound to the current thread. Once it returns, no
+     * statement of the thread is left for {@link #cancel} to reach: it is closed by then,
+     * and its pooled connection may already serve another caller.
+     */
+    <T> T call(Supplier<T> action) {
+        QueryControl previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            statements.remove(Thread.currentThread());
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Cancels the running statements, if any, and fails every statement started afterwards.
+     */
+    void cancel() {
+        cancelled = true;
+        for (Statement running : statements.values()) {
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                // the statement may already be closed
+                log.debug("Statement cancel failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    int timeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    String client() {
+        return client;
+    }
+
+    /**
+     * Applies the bound control (or the default timeout when none is bound) to a
+     * statement that is about to execute. A timeout already set on the statement, e.g.
+     * from a transaction deadline, is only ever shortened.
+     */
+    static void apply(Statement stmt, int defaultTimeoutSeconds) throws SQLException {
+        QueryControl control = CURRENT.get();
+        int timeout = control != null ? control.timeoutSeconds : defaultTimeoutSeconds;
+        int current = stmt.getQueryTimeout();
+        if (timeout > 0 && (current == 0 || current > timeout)) {
+            stmt.setQueryTimeout(timeout);
+        }
+        if (control != null) {
+            control.statements.put(Thread.currentThread(), stmt);
+            // cancel() may have run before the statement was registered
+            if (control.cancelled) {
+                release(stmt);
+                throw new SQLException("Query was cancelled", "57014");
+            }
+        }
+    }
+
+    /**
+     * Forgets a statement registered by {@link #apply} once it has finished, for call
+     * sites that run several statements under one {@link #call}.
+     */
+    static void release(Statement stmt) {
+        QueryControl control = CURRENT.get();
+        if (control != null) {
+            control.statements.remove(Thread.currentThread(), stmt);
+        }
+    }
+
+    /**
+     * Copy of {@code template} that applies the thread's {@link QueryControl} to every
+     * statement it creates.
+     */
+    static JdbcTemplate jdbcTemplate(JdbcTemplate template, IntSupplier defaultTimeoutSeconds) {
+        JdbcTemplate controlled = new JdbcTemplate() {
+            @Override
+            protected void applyStatementSettings(Statement stmt) throws SQLException {
+                super.applyStatementSettings(stmt);
+                apply(stmt, defaultTimeoutSeconds.getAsInt());
+            }
+        };
+        controlled.setDataSource(template.getDataSource());
+        controlled.setExceptionTranslator(template.getExceptionTranslator());
+        controlled.setFetchSize(template.getFetchSize());
+        controlled.setMaxRows(template.getMaxRows());
+        controlled.setQueryTimeout(template.getQueryTimeout());
+        controlled.setIgnoreWarnings(template.isIgnoreWarnings());
+        controlled.setSkipResultsProcessing(template.isSkipResultsProcessing());
+        controlled.setSkipUndeclaredResults(template.isSkipUndeclaredResults());
+        controlled.setResultsMapCaseInsensitive(template.isResultsMapCaseInsensitive());
+        controlled.afterPropertiesSet();
+        return controlled;
+    }
+}
@@ -0,0 +1,350 @@
+package org.mouni.ds.editor.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.sql.SqlLexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control in front of the connection pool.
+ * <p>
+ * Each statement class has a fixed number of execution slots. A statement that finds
+ * no free slot waits in a per-client queue; when a slot frees up it goes to the next
+ * client in round-robin order, so a single client with many queued statements cannot
+ * starve the others. Queues are bounded and waits are capped: statements beyond
+ * either limit are rejected right away with {@link AdmissionRejectedException} (HTTP
+ * 429) instead of piling up on the pool until they time out.
+ */
+@Component
+public class QueryGovernor {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryGovernor.class);
+
+    /**
+     * Statement classes with separate slot pools.
+     */
+    public enum StatementClass {
+        READ, WRITE, DDL;
+
+        public static StatementClass of(String keyword) {
+            return switch (keyword) {
+                case "SELECT" -> READ;
+                case "INSERT", "UPDATE", "DELETE" -> WRITE;
+                default -> DDL;
+            };
+        }
+
+        /**
+         * Like {@link #of(String)}, except that a SELECT locking rows or changing state
+         * ({@code FOR UPDATE}, {@code nextval(...)}) is a WRITE: it must run on the primary.
+         */
+        public static StatementClass of(SqlLexer.StatementInfo info) {
+            StatementClass statementClass = of(info.keyword());
+            return statementClass == READ && info.sideEffects() ? WRITE : statementClass;
+        }
+    }
+
+    /**
+     * Held while a statement executes; closing it frees the slot.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Thrown when a statement is not admitted because its queue is full or it waited too long.
+     */
+    public static class AdmissionRejectedException extends RejectedExecutionException {
+        private static final long serialVersionUID = 1L;
+
+        public AdmissionRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final Permit NO_PERMIT = () -> { };
+
+    private final DsEditorProperties.Governor settings;
+    private final EditorMetrics metrics;
+    private final Map<StatementClass, Lane> lanes = new EnumMap<>(StatementClass.class);
+
+    public QueryGovernor(DsEditorProperties properties, DataSource dataSource, EditorMetrics metrics) {
+        this.settings = properties.getGovernor();
+        this.metrics = metrics;
+        int poolSize = dataSource instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0
+                ? hikari.getMaximumPoolSize()
+                : Runtime.getRuntime().availableProcessors();
+        int writeSlots = Math.max(1, settings.getWriteSlots());
+        int ddlSlots = Math.max(1, settings.getDdlSlots());
+        int readSlots = settings.getReadSlots() > 0
+                ? settings.getReadSlots()
+                : Math.max(1, poolSize - writeSlots - ddlSlots);
+        lanes.put(StatementClass.READ, new Lane(StatementClass.READ, readSlots));
+        lanes.put(StatementClass.WRITE, new Lane(StatementClass.WRITE, writeSlots));
+        lanes.put(StatementClass.DDL, new Lane(StatementClass.DDL, ddlSlots));
+        for (Lane lane : lanes.values()) {
+            // unsynchronized reads are fine for a gauge
+            metrics.governorGauges(lane.statementClass, () -> lane.inUse, () -> lane.queued);
+        }
+        if (settings.isEnabled()) {
+            log.info("Query governor enabled: read={}, write={}, ddl={} slot(s), max queue {} per class",
+                    readSlots, writeSlots, ddlSlots, settings.getMaxQueue());
+        }
+    }
+
+    /**
+     * Waits for a slot of the given class. Executions that already hold a slot (nested
+     * statements of a batch or job) are admitted without queueing again.
+     *
+     * @throws AdmissionRejectedException if the queue is full or no slot frees up in time
+     */
+    Permit admit(StatementClass statementClass, QueryControl control) {
+        if (!settings.isEnabled() || (control != null && control.admitted)) {
+            return NO_PERMIT;
+        }
+        String client = control != null && control.client() != null ? control.client() : "anonymous";
+        Lane lane = lanes.get(statementClass);
+        lane.acquire(client);
+        if (control == null) {
+            return lane::release;
+        }
+        control.admitted = true;
+        return () -> {
+            control.admitted = false;
+            lane.release();
+        };
+    }
+
+    /**
+     * Takes a slot of the given class only if one is free right away and nobody is
+     * waiting, for optional extra work next to an admitted statement.
+     *
+     * @return the permit, or null if no slot is free
+     */
+    Permit tryAdmit(StatementClass statementClass) {
+        if (!settings.isEnabled()) {
+            return NO_PERMIT;
+        }
+        Lane lane = lanes.get(statementClass);
+        return lane.tryAcquire() ? lane::release : null;
+    }
+
+    /**
+     * Identifies the caller of the current HTTP request: the authenticated user, else
+     * the client header if one is configured, else the remote address.
+     */
+    public String currentClient() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servlet)) {
+            return "internal";
+        }
+        HttpServletRequest request = servlet.getRequest();
+        // a header is whatever the caller says it is, it must not override who the caller is
+        if (request.getUserPrincipal() != null) {
+            return request.getUserPrincipal().getName();
+        }
+        String header = StringUtils.hasText(settings.getClientHeader())
+                ? request.getHeader(settings.getClientHeader())
+                : null;
+        if (StringUtils.hasText(header)) {
+            return header.strip();
+        }
+        return request.getRemoteAddr();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", settings.isEnabled());
+        for (Lane lane : lanes.values()) {
+            stats.put(lane.statementClass.name().toLowerCase(Locale.ROOT), lane.stats());
+        }
+        return stats;
+    }
+
+    /**
+     * Slots and per-client wait queues of one statement class.
+     */
+    private final class Lane {
+        private final StatementClass statementClass;
+        private final int slots;
+        private final ReentrantLock lock = new ReentrantLock();
+        // insertion order is the round-robin order; a served client moves to the back
+        private final LinkedHashMap<String, ArrayDeque<Waiter>> queues = new LinkedHashMap<>();
+        private int inUse;
+        private int queued;
+
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder timedOut = new LongAdder();
+        private final LongAdder waitedNanos = new LongAdder();
+        private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+        Lane(StatementClass statementClass, int slots) {
+            this.statementClass = statementClass;
+            this.slots = slots;
+        }
+
+        void acquire(String client) {
+            long start = System.nanoTime();
+            Waiter waiter;
+            lock.lock();
+            try {
+                if (inUse < slots && queued == 0) {
+                    inUse++;
+                    admitted.increment();
+                    metrics.recordGovernorWait(statementClass, 0);
+                    return;
+                }
+                if (queued >= settings.getMaxQueue()) {
+                    rejected.increment();
+                    metrics.recordGovernorRejection(statementClass, "queue_full");
+                    log.warn("Rejected {} statement from {}: {} already queued", statementClass, client, queued);
+                    throw new AdmissionRejectedException(
+                            "Too many queued " + statementClass.name().toLowerCase(Locale.ROOT)
+                                    + " statements, try again later");
+                }
+                waiter = new Waiter(lock.newCondition());
+                queues.computeIfAbsent(client, c -> new ArrayDeque<>()).addLast(waiter);
+                queued++;
+
+                long remaining = settings.getMaxWait().toNanos();
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        remove(client, waiter);
+                        timedOut.increment();
+                        metrics.recordGovernorRejection(statementClass, "timeout");
+                        log.warn("{} statement from {} waited {} ms without a slot, rejecting",
+                                statementClass, client, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                        throw new AdmissionRejectedException(
+                                "Timed out waiting for a free " + statementClass.name().toLowerCase(Locale.ROOT)
+                                        + " slot, try again later");
+                    }
+                    try {
+                        remaining = waiter.condition.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        if (!waiter.granted) {
+                            remove(client, waiter);
+                        } else {
+                            // the slot was handed over already, give it back
+                            releaseLocked();
+                        }
+                        Thread.currentThread().interrupt();
+                        throw new AdmissionRejectedException("Interrupted while waiting for a slot");
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            long waited = System.nanoTime() - start;
+            admitted.increment();
+            waitedNanos.add(waited);
+            maxWaitNanos.accumulate(waited);
+            metrics.recordGovernorWait(statementClass, waited);
+            log.debug("{} statement from {} admitted after {} ms", statementClass, client,
+                    TimeUnit.NANOSECONDS.toMillis(waited));
+        }
+
+        boolean tryAcquire() {
+            lock.lock();
+            try {
+                if (inUse < slots && queued == 0) {
+                    inUse++;
+                    admitted.increment();
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                releaseLocked();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void releaseLocked() {
+            inUse--;
+            // hand free slots to the next clients in round-robin order
+            while (inUse < slots && queued > 0) {
+                Iterator<Map.Entry<String, ArrayDeque<Waiter>>> it = queues.entrySet().iterator();
+                Map.Entry<String, ArrayDeque<Waiter>> next = it.next();
+                it.remove();
+                Waiter waiter = next.getValue().pollFirst();
+                if (!next.getValue().isEmpty()) {
+                    queues.put(next.getKey(), next.getValue());
+                }
+                queued--;
+                inUse++;
+                waiter.granted = true;
+                waiter.condition.signal();
+            }
+        }
+
+        private void remove(String client, Waiter waiter) {
+            ArrayDeque<Waiter> queue = queues.get(client);
+            if (queue != null && queue.remove(waiter)) {
+                queued--;
+                if (queue.isEmpty()) {
+                    queues.remove(client);
+                }
+            }
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            lock.lock();
+            try {
+                stats.put("slots", slots);
+                stats.put("inUse", inUse);
+                stats.put("queued", queued);
+                stats.put("queuedClients", queues.size());
+            } finally {
+                lock.unlock();
+            }
+            long admittedCount = admitted.sum();
+            stats.put("admitted", admittedCount);
+            stats.put("rejected", rejected.sum());
+            stats.put("timedOut", timedOut.sum());
+            stats.put("avgWaitMs", admittedCount == 0 ? 0.0 : waitedNanos.sum() / 1e6 / admittedCount);
+            stats.put("maxWaitMs", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+            return stats;
+        }
+    }
+
+    private static final class Waiter {
+        private final Condition condition;
+        // guarded by the lane lock
+        private boolean granted;
+
+        Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package org.mouni.ds.editor.service;
+
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.QueryJob;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs statements as asynchronous jobs so that long queries do not hold a request
+ * thread, and can be cancelled while they run.
+ * <p>
+ * Jobs execute on a fixed pool of {@code ds.editor.jobs.max-running} threads behind a
+ * bounded queue. Cancelling a running job calls {@link java.sql.Statement#cancel()} on
+ * its statement. A job whose status nobody polls for {@code abandon-after} is cancelled
+ * the same way, and finished jobs are dropped after {@code retention}.
+ */
+@Service
+public class QueryJobService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryJobService.class);
+
+    private final SqlExecutorService sqlExecutorService;
+    private final QueryGovernor queryGovernor;
+    private final DsEditorProperties.Jobs settings;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService sweeper;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public QueryJobService(SqlExecutorService sqlExecutorService,
+                           QueryGovernor queryGovernor,
+                           DsEditorProperties properties) {
+        this.sqlExecutorService = sqlExecutorService;
+        this.queryGovernor = queryGovernor;
+        this.settings = properties.getJobs();
+        int running = Math.max(1, settings.getMaxRunning());
+        this.executor = new ThreadPoolExecutor(running, running, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getMaxQueued())),
+                Thread.ofPlatform().name("ds-editor-job-", 1).daemon().factory());
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("ds-editor-job-sweeper").daemon().factory());
+        this.sweeper.scheduleWithFixedDelay(this::sweep, 10, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Queues the request for execution.
+     *
+     * @throws RejectedExecutionException if the job queue is full
+     */
+    public QueryJob submit(SqlRequestDto request) {
+        QueryControl control = new QueryControl(sqlExecutorService.timeoutSeconds(request), queryGovernor.currentClient());
+        Job job = new Job(UUID.randomUUID().toString(), control);
+        jobs.put(job.id, job);
+        try {
+            job.future = executor.submit(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            log.warn("Rejected query job: {} job(s) already queued", executor.getQueue().size());
+            throw new RejectedExecutionException("Too many queued jobs, try again later", e);
+        }
+        log.info("Submitted query job {}", job.id);
+        return job.view();
+    }
+
+    public QueryJob status(String id) {
+        Job job = find(id);
+        job.touch();
+        return job.view();
+    }
+
+    /**
+     * Result of a job that has succeeded.
+     *
+     * @throws IllegalStateException if the job has not (or not successfully) finished
+     */
+    public Object result(String id) {
+        Job job = find(id);
+        job.touch();
+        synchronized (job) {
+            if (job.status != QueryJob.Status.SUCCEEDED) {
+                throw new IllegalStateException("Job " + id + " is " + job.status
+                        + (job.error != null ? ": " + job.error : ""));
+            }
+            return job.result;
+        }
+    }
+
+    /**
+     * Cancels a queued or running job; finished jobs are returned unchanged.
+     */
+    public QueryJob cancel(String id) {
+        Job job = find(id);
+        cancel(job, "cancelled by request");
+        return job.view();
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.shutdownNow();
+        jobs.values().forEach(job -> cancel(job, "shutting down"));
+        executor.shutdownNow();
+    }
+
+    // internal helpers
+
+    private Job find(String id) {
+        Job job = jobs.get(id);
+        if (job == null) {
+            throw new NoSuchElementException("Unknown job: " + id);
+        }
+        return job;
+    }
+
+    private void run(Job job, SqlRequestDto request) {
+        synchronized (job) {
+            if (job.status != QueryJob.Status.QUEUED) {
+                return;
+            }
+            job.status = QueryJob.Status.RUNNING;
+            job.startedAt = Instant.now();
+        }
+        log.debug("Running query job {}", job.id);
+        try {
+            Object result = job.control.call(() -> sqlExecutorService.execute(request));
+            job.finish(QueryJob.Status.SUCCEEDED, result, null);
+            log.info("Query job {} succeeded", job.id);
+        } catch (RuntimeException e) {
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (job.control.isCancelled()) {
+                job.finish(QueryJob.Status.CANCELLED, null, message);
+                log.info("Query job {} cancelled", job.id);
+            } else {
+                job.finish(QueryJob.Status.FAILED, null, message);
+                log.error("Query job {} failed: {}", job.id, message);
+            }
+        }
+    }
+
+    private void cancel(Job job, String reason) {
+        synchronized (job) {
+            if (job.status.isFinished()) {
+                return;
+            }
+            if (job.status == QueryJob.Status.QUEUED) {
+                job.status = QueryJob.Status.CANCELLED;
+                job.finishedAt = Instant.now();
+                job.error = "Cancelled before start: " + reason;
+                if (job.future != null) {
+                    job.future.cancel(false);
+                }
+                executor.purge();
+                log.info("Query job {} cancelled before start ({})", job.id, reason);
+                return;
+            }
+        }
+        // running: interrupt the statement outside the lock, run() records the outcome
+        log.info("Cancelling running query job {} ({})", job.id, reason);
+        job.control.cancel();
+    }
+
+    private void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            long abandonAfter = settings.getAbandonAfter().toMillis();
+            long retention = settings.getRetention().toMillis();
+            for (Job job : jobs.values()) {
+                Instant finishedAt;
+                QueryJob.Status status;
+                synchronized (job) {
+                    finishedAt = job.finishedAt;
+                    status = job.status;
+                }
+                if (!status.isFinished()) {
+                    if (abandonAfter > 0 && now - job.lastPolledAt > abandonAfter) {
+                        log.warn("Query job {} was not polled for {} ms, cancelling", job.id, now - job.lastPolledAt);
+                        cancel(job, "abandoned");
+                    }
+                } else if (now - finishedAt.toEpochMilli() > retention) {
+                    jobs.remove(job.id);
+                    log.debug("Dropped finished query job {}", job.id);
+                }
+            }
+        } catch (RuntimeException e) {
+            // keep the scheduled sweep alive
+            log.error("Query job sweep failed", e);
+        }
+    }
+
+    private static final class Job {
+        private final String id;
+        private final QueryControl control;
+        private final Instant submittedAt = Instant.now();
+        private volatile long lastPolledAt = System.currentTimeMillis();
+        private volatile Future<?> future;
+
+        // guarded by this
+        private QueryJob.Status status = QueryJob.Status.QUEUED;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private Object result;
+        private String error;
+
+        Job(String id, QueryControl control) {
+            this.id = id;
+            this.control = control;
+        }
+
+        void touch() {
+            lastPolledAt = System.currentTimeMillis();
+        }
+
+        synchronized void finish(QueryJob.Status status, Object result, String error) {
+            this.status = status;
+            this.result = result;
+            this.error = error;
+            this.finishedAt = Instant.now();
+        }
+
+        synchronized QueryJob view() {
+            return new QueryJob(id, status, submittedAt, startedAt, finishedAt, error);
+        }
+    }
+}
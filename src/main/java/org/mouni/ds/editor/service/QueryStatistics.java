@@ -0,0 +1,275 @@
+package org.mouni.ds.editor.service;
+
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.sql.SqlLexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Per-statement execution statistics in the spirit of PostgreSQL's
+ * {@code pg_stat_statements}: executions are grouped by {@link SqlLexer#fingerprint
+ * fingerprint}, so statements that differ only in their constants share one entry.
+ * <p>
+ * Recording never blocks: counters are {@link LongAdder}s and latencies go into a
+ * fixed log-linear histogram of atomic buckets, from which p99 is read (within about
+ * 12%). Memory is bounded by {@code ds.editor.stats.max-fingerprints}; when the limit
+ * is exceeded, the entries with the lowest total execution time are evicted, so the
+ * statements that cost the most stay. Fingerprints of recently seen SQL texts are
+ * memoized, so repeated statements skip the extra lexer pass.
+ */
+@Component
+public class QueryStatistics {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryStatistics.class);
+
+    // direct-mapped memo of SQL text -> fingerprint, must be a power of two
+    private static final int MEMO_SIZE = 1024;
+
+    // evict this share of the entries at once, so eviction runs rarely
+    private static final double EVICT_FRACTION = 0.1;
+
+    private static final Map<String, ToDoubleFunction<Entry>> ORDERINGS = Map.of(
+            "total", e -> e.totalNanos.sum(),
+            "calls", e -> e.calls.sum(),
+            "mean", Entry::meanNanos,
+            "max", e -> e.maxNanos.get(),
+            "p99", e -> e.percentileMicros(0.99),
+            "rows", e -> e.rows.sum(),
+            "errors", e -> e.errors.sum());
+
+    private record Memo(String sql, String fingerprint) {}
+
+    private record Ranked(Entry entry, double value) {}
+
+    private final DsEditorProperties.Stats settings;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<Memo> memo = new AtomicReferenceArray<>(MEMO_SIZE);
+    private final AtomicBoolean evicting = new AtomicBoolean();
+    private final LongAdder evictions = new LongAdder();
+    private volatile Instant since = Instant.now();
+
+    public QueryStatistics(DsEditorProperties properties) {
+        this.settings = properties.getStats();
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Records one execution.
+     *
+     * @param rows rows returned or affected, ignored for failed executions
+     */
+    public void record(String sql, long nanos, long rows, boolean failed) {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        String fingerprint = fingerprint(sql);
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            entry = entries.computeIfAbsent(fingerprint, Entry::new);
+            if (entries.size() > Math.max(1, settings.getMaxFingerprints())) {
+                evict();
+            }
+        }
+        entry.record(nanos, rows, failed);
+    }
+
+    /**
+     * The top entries by the given ordering: total, calls, mean, max, p99, rows or errors.
+     */
+    public Map<String, Object> top(String orderBy, int limit) {
+        ToDoubleFunction<Entry> ordering = ORDERINGS.get(orderBy.toLowerCase(Locale.ROOT));
+        if (ordering == null) {
+            throw new IllegalArgumentException("Unknown ordering '" + orderBy + "', expected one of "
+                    + ORDERINGS.keySet().stream().sorted().toList());
+        }
+        // sort on values read once, recording goes on while we sort
+        List<Ranked> ranked = new ArrayList<>(entries.size());
+        entries.values().forEach(e -> ranked.add(new Ranked(e, ordering.applyAsDouble(e))));
+        ranked.sort(Comparator.comparingDouble(Ranked::value).reversed());
+
+        List<Map<String, Object>> statements = new ArrayList<>();
+        for (Ranked r : ranked.subList(0, Math.min(Math.max(0, limit), ranked.size()))) {
+            statements.add(r.entry().snapshot());
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("since", since);
+        result.put("fingerprints", entries.size());
+        result.put("maxFingerprints", settings.getMaxFingerprints());
+        result.put("evicted", evictions.sum());
+        result.put("statements", statements);
+        return result;
+    }
+
+    public void reset() {
+        entries.clear();
+        evictions.reset();
+        since = Instant.now();
+    }
+
+    // internal helpers
+
+    private String fingerprint(String sql) {
+        int slot = sql.hashCode() & (MEMO_SIZE - 1);
+        Memo cached = memo.get(slot);
+        if (cached != null && cached.sql().equals(sql)) {
+            return cached.fingerprint();
+        }
+        String fingerprint = SqlLexer.fingerprint(sql);
+        memo.set(slot, new Memo(sql, fingerprint));
+        return fingerprint;
+    }
+
+    private void evict() {
+        // one thread evicts, the others carry on; the map may overshoot the limit briefly
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int max = Math.max(1, settings.getMaxFingerprints());
+            int excess = entries.size() - max;
+            if (excess <= 0) {
+                return;
+            }
+            int count = Math.max(excess, (int) (max * EVICT_FRACTION));
+            List<Ranked> cheapest = new ArrayList<>(entries.size());
+            entries.values().forEach(e -> cheapest.add(new Ranked(e, e.totalNanos.sum())));
+            cheapest.sort(Comparator.comparingDouble(Ranked::value));
+            int removed = 0;
+            for (Ranked r : cheapest.subList(0, Math.min(count, cheapest.size()))) {
+                if (entries.remove(r.entry().fingerprint, r.entry())) {
+                    removed++;
+                }
+            }
+            evictions.add(removed);
+            log.debug("Evicted {} statement fingerprint(s) with the lowest total time", removed);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /**
+     * Statistics of one fingerprint. Latencies are bucketed in microseconds: exact up to
+     * 7us, then four buckets per power of two up to 2^36us (about 19 hours).
+     */
+    private static final class Entry {
+        private static final int LINEAR = 8;
+        private static final int MAX_EXPONENT = 36;
+        private static final int BUCKETS = LINEAR + (MAX_EXPONENT - 2) * 4;
+
+        private final String fingerprint;
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator minNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+        private volatile long lastCalledAt;
+
+        Entry(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void record(long nanos, long rowCount, boolean failed) {
+            calls.increment();
+            totalNanos.add(nanos);
+            minNanos.accumulate(nanos);
+            maxNanos.accumulate(nanos);
+            histogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(nanos)));
+            if (failed) {
+                errors.increment();
+            } else {
+                rows.add(rowCount);
+            }
+            lastCalledAt = System.currentTimeMillis();
+        }
+
+        double meanNanos() {
+            long n = calls.sum();
+            return n == 0 ? 0 : (double) totalNanos.sum() / n;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, in microseconds.
+         */
+        long percentileMicros(double quantile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+
+        Map<String, Object> snapshot() {
+            long n = calls.sum();
+            long max = maxNanos.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("fingerprint", fingerprint);
+            stats.put("calls", n);
+            stats.put("errors", errors.sum());
+            stats.put("rows", rows.sum());
+            stats.put("totalMs", totalNanos.sum() / 1e6);
+            stats.put("meanMs", meanNanos() / 1e6);
+            stats.put("minMs", n == 0 ? 0.0 : minNanos.get() / 1e6);
+            stats.put("maxMs", max / 1e6);
+            // the bucket bound can overshoot the largest value actually seen
+            stats.put("p99Ms", Math.min(percentileMicros(0.99) * 1000L, max) / 1e6);
+            stats.put("lastCalledAt", Instant.ofEpochMilli(lastCalledAt));
+            return stats;
+        }
+
+        private static int bucket(long micros) {
+            if (micros < LINEAR) {
+                return (int) Math.max(0, micros);
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(micros);
+            if (exponent > MAX_EXPONENT) {
+                return BUCKETS - 1;
+            }
+            int sub = (int) (micros >>> (exponent - 2)) & 3;
+            return LINEAR + (exponent - 3) * 4 + sub;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < LINEAR) {
+                return bucket;
+            }
+            int exponent = (bucket - LINEAR) / 4 + 3;
+            int sub = (bucket - LINEAR) % 4;
+            return ((4L + sub) << (exponent - 2)) + (1L << (exponent - 2)) - 1;
+        }
+    }
+}
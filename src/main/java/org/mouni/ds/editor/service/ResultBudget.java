@@ -0,0 +1,134 @@
+package org.mouni.ds.editor.service;
+
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Locale;
+
+/**
+ * Rows and approximate heap bytes one SELECT response may still take, consumed row by
+ * row while its result set is read. Reading stops at the first row that does not fit,
+ * so a huge result costs at most the budget instead of the heap.
+ * <p>
+ * Byte sizes are rough estimates of the materialized Java objects, meant to stop a
+ * runaway result rather than to account memory exactly.
+ */
+final class ResultBudget {
+
+    /**
+     * The cap that cut a result off.
+     */
+    enum Limit {
+        ROWS, BYTES;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final ResultBudget UNLIMITED = new ResultBudget(0, 0);
+
+    // object header plus array or map entry overhead per row and per value
+    private static final int ROW_OVERHEAD = 48;
+    private static final int VALUE_OVERHEAD = 16;
+
+    private final int maxRows;
+    private final long maxBytes;
+    private int rows;
+    private long bytes;
+    private Limit exceeded;
+
+    /**
+     * @param maxRows  0 for no row cap
+     * @param maxBytes 0 for no byte cap
+     */
+    ResultBudget(int maxRows, long maxBytes) {
+        this.maxRows = Math.max(0, maxRows);
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    static ResultBudget of(DsEditorProperties.Limits limits) {
+        return new ResultBudget(limits.getMaxRows(), limits.getMaxBytes() == null ? 0 : limits.getMaxBytes().toBytes());
+    }
+
+    /**
+     * A budget that admits every row; it is shared, so nothing is tracked.
+     */
+    static ResultBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Max rows to set on the statement: one more than the cap, so that a cut-off
+     * result can be told from one that fits exactly. 0 when rows are not capped.
+     */
+    int statementMaxRows() {
+        return maxRows == 0 || maxRows == Integer.MAX_VALUE ? 0 : maxRows + 1;
+    }
+
+    /**
+     * Accounts for one more row, unless it exceeds a cap; then the budget is marked
+     * exceeded and the row must be dropped.
+     */
+    boolean admit(Object[] values) {
+        if (this == UNLIMITED) {
+            return true;
+        }
+        if (maxRows > 0 && rows >= maxRows) {
+            exceeded = Limit.ROWS;
+            return false;
+        }
+        long size = ROW_OVERHEAD;
+        for (Object value : values) {
+            size += estimate(value);
+        }
+        if (maxBytes > 0 && bytes + size > maxBytes && rows > 0) {
+            // the first row always fits, so that a response is never empty for its size alone
+            exceeded = Limit.BYTES;
+            return false;
+        }
+        rows++;
+        bytes += size;
+        return true;
+    }
+
+    boolean truncated() {
+        return exceeded != null;
+    }
+
+    Limit exceeded() {
+        return exceeded;
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    static long estimate(Object value) {
+        if (value == null) {
+            return 8;
+        }
+        if (value instanceof String s) {
+            return VALUE_OVERHEAD + 24 + s.length();
+        }
+        if (value instanceof byte[] b) {
+            return VALUE_OVERHEAD + b.length;
+        }
+        if (value instanceof BigDecimal d) {
+            return VALUE_OVERHEAD + 32 + d.unscaledValue().bitLength() / 8;
+        }
+        if (value instanceof BigInteger i) {
+            return VALUE_OVERHEAD + 24 + i.bitLength() / 8;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return VALUE_OVERHEAD + 8;
+        }
+        // dates, times, UUIDs, JSON and driver objects
+        return VALUE_OVERHEAD + 48 + Math.min(value.toString().length(), 4096);
+    }
+}
@@ -0,0 +1,381 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mouni.ds.editor.model.ColumnMeta;
+import org.mouni.ds.editor.model.ColumnarResult;
+import org.mouni.ds.editor.model.ResultFormat;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a JDBC {@link ResultSet} into the wire formats described by {@link ResultFormat}.
+ * <p>
+ * Binary layout ({@link ResultFormat#BINARY}), all integers big-endian as written by
+ * {@link DataOutputStream}:
+ * <pre>
+ *   "DSR1"                                  magic
+ *   int columnCount
+ *   columnCount x (UTF name, int jdbcType)   header
+ *   per row: byte 1, then one tagged value per column
+ *   byte 0                                  end of rows
+ * </pre>
+ * Value tags: 0 null, 1 long, 2 double, 3 boolean, 4 string (int length + UTF-8),
+ * 5 bytes (int length + raw), 6 decimal (as string), 7 timestamp (epoch millis).
+ * Any other type is sent as its string form.
+ */
+final class ResultSetEncoder {
+
+    private static final byte[] MAGIC = {'D', 'S', 'R', '1'};
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_LONG = 1;
+    private static final byte TAG_DOUBLE = 2;
+    private static final byte TAG_BOOLEAN = 3;
+    private static final byte TAG_STRING = 4;
+    private static final byte TAG_BYTES = 5;
+    private static final byte TAG_DECIMAL = 6;
+    private static final byte TAG_TIMESTAMP = 7;
+
+    private final ObjectMapper objectMapper;
+
+    ResultSetEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    static List<ColumnMeta> columns(ResultSetMetaData meta) throws SQLException {
+        int columnCount = meta.getColumnCount();
+        List<ColumnMeta> columns = new ArrayList<>(columnCount);
+        for (int i = 1; i <= columnCount; i++) {
+            columns.add(new ColumnMeta(JdbcUtils.lookupColumnName(meta, i),
+                    meta.getColumnType(i), meta.getColumnTypeName(i)));
+        }
+        return columns;
+    }
+
+    /**
+     * Reads rows into row maps keyed by column label, in column order, until the result
+     * set ends or a row exceeds the budget; pass {@link ResultBudget#unlimited()} to read
+     * the whole result set.
+     */
+    List<Map<String, Object>> readRows(ResultSet rs, ResultBudget budget) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<ColumnMeta> columns = columns(meta);
+        ColumnReaders.ColumnReader[] readers = ColumnReaders.forMetaData(meta);
+        int columnCount = columns.size();
+
+        ColumnReaders.ArraySink sink = new ColumnReaders.ArraySink();
+        sink.row = new Object[columnCount];
+        int capacity = (int) (columnCount / 0.75f) + 1;
+        List<Map<String, Object>> rows = new ArrayList<>();
+        while (rs.next()) {
+            readRow(rs, readers, sink);
+            if (!budget.admit(sink.row)) {
+                break;
+            }
+            Map<String, Object> row = new LinkedHashMap<>(capacity);
+            for (int i = 0; i < columnCount; i++) {
+                row.put(columns.get(i).name(), sink.row[i]);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Reads rows into a {@link ColumnarResult} until the result set ends or a row
+     * exceeds the budget.
+     */
+    ColumnarResult readColumnar(ResultSet rs, ResultBudget budget) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<ColumnMeta> columns = columns(meta);
+        ColumnReaders.ColumnReader[] readers = ColumnReaders.forMetaData(meta);
+        int columnCount = columns.size();
+
+        ColumnReaders.ArraySink sink = new ColumnReaders.ArraySink();
+        List<Object[]> rows = new ArrayList<>();
+        while (rs.next()) {
+            sink.row = new Object[columnCount];
+            readRow(rs, readers, sink);
+            if (!budget.admit(sink.row)) {
+                break;
+            }
+            rows.add(sink.row);
+        }
+        return new ColumnarResult(columns, rows);
+    }
+
+    /**
+     * Writes rows to {@code out} as they are read, flushing after the first row and
+     * then every {@code flushEvery} rows.
+     *
+     * @return number of rows written
+     */
+    long write(ResultSet rs, OutputStream out, ResultFormat format, int flushEvery) throws SQLException {
+        try {
+            return format == ResultFormat.BINARY
+                    ? writeBinary(rs, out, flushEvery)
+                    : writeNdjson(rs, out, format == ResultFormat.COLUMNAR, flushEvery);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write streamed rows", e);
+        }
+    }
+
+    private static void readRow(ResultSet rs, ColumnReaders.ColumnReader[] readers, ColumnReaders.ValueSink sink)
+            throws SQLException {
+        try {
+            for (int i = 0; i < readers.length; i++) {
+                readers[i].read(rs, i, sink);
+            }
+        } catch (IOException e) {
+            // ArraySink never throws
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long writeNdjson(ResultSet rs, OutputStream out, boolean arrays, int flushEvery)
+            throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<ColumnMeta> columns = columns(meta);
+        ColumnReaders.ColumnReader[] readers = ColumnReaders.forMetaData(meta);
+        int columnCount = columns.size();
+
+        long rows = 0;
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.setRootValueSeparator(null);
+            SerializedString[] names = new SerializedString[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                names[i] = new SerializedString(columns.get(i).name());
+            }
+            JsonSink sink = new JsonSink(gen, arrays ? null : names);
+
+            if (arrays) {
+                // header line, so rows can be plain arrays
+                gen.writeStartObject();
+                gen.writeFieldName("columns");
+                gen.writeObject(columns);
+                gen.writeEndObject();
+                gen.writeRaw('\n');
+            }
+            while (rs.next()) {
+                if (arrays) {
+                    gen.writeStartArray();
+                } else {
+                    gen.writeStartObject();
+                }
+                for (int i = 0; i < columnCount; i++) {
+                    readers[i].read(rs, i, sink);
+                }
+                if (arrays) {
+                    gen.writeEndArray();
+                } else {
+                    gen.writeEndObject();
+                }
+                gen.writeRaw('\n');
+                rows++;
+                // flush the first row immediately so the client sees data early
+                if (rows == 1 || rows % flushEvery == 0) {
+                    gen.flush();
+                }
+            }
+            gen.flush();
+        }
+        return rows;
+    }
+
+    private long writeBinary(ResultSet rs, OutputStream out, int flushEvery) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        List<ColumnMeta> columns = columns(meta);
+        ColumnReaders.ColumnReader[] readers = ColumnReaders.forMetaData(meta);
+        int columnCount = columns.size();
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        data.write(MAGIC);
+        data.writeInt(columnCount);
+        for (ColumnMeta column : columns) {
+            data.writeUTF(column.name());
+            data.writeInt(column.jdbcType());
+        }
+
+        BinarySink sink = new BinarySink(data);
+        long rows = 0;
+        while (rs.next()) {
+            data.writeByte(1);
+            for (int i = 0; i < columnCount; i++) {
+                readers[i].read(rs, i, sink);
+            }
+            rows++;
+            if (rows == 1 || rows % flushEvery == 0) {
+                data.flush();
+            }
+        }
+        data.writeByte(0);
+        data.flush();
+        return rows;
+    }
+
+    private static void writeBinaryValue(DataOutputStream data, Object value) throws IOException {
+        if (value == null) {
+            data.writeByte(TAG_NULL);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            data.writeByte(TAG_LONG);
+            data.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            data.writeByte(TAG_DOUBLE);
+            data.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean b) {
+            data.writeByte(TAG_BOOLEAN);
+            data.writeBoolean(b);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            data.writeByte(TAG_DECIMAL);
+            writeString(data, value instanceof BigDecimal bd ? bd.toPlainString() : value.toString());
+        } else if (value instanceof Timestamp ts) {
+            data.writeByte(TAG_TIMESTAMP);
+            data.writeLong(ts.getTime());
+        } else if (value instanceof byte[] bytes) {
+            data.writeByte(TAG_BYTES);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        } else {
+            data.writeByte(TAG_STRING);
+            writeString(data, value.toString());
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    /**
+     * Writes cells straight to the JSON generator; field names are pre-serialized.
+     */
+    private static final class JsonSink implements ColumnReaders.ValueSink {
+        private final JsonGenerator gen;
+        private final SerializedString[] names; // null when writing arrays
+
+        JsonSink(JsonGenerator gen, SerializedString[] names) {
+            this.gen = gen;
+            this.names = names;
+        }
+
+        private void name(int column) throws IOException {
+            if (names != null) {
+                gen.writeFieldName(names[column]);
+            }
+        }
+
+        @Override
+        public void writeNull(int column) throws IOException {
+            name(column);
+            gen.writeNull();
+        }
+
+        @Override
+        public void writeInt(int column, int value) throws IOException {
+            name(column);
+            gen.writeNumber(value);
+        }
+
+        @Override
+        public void writeLong(int column, long value) throws IOException {
+            name(column);
+            gen.writeNumber(value);
+        }
+
+        @Override
+        public void writeDouble(int column, double value) throws IOException {
+            name(column);
+            gen.writeNumber(value);
+        }
+
+        @Override
+        public void writeBoolean(int column, boolean value) throws IOException {
+            name(column);
+            gen.writeBoolean(value);
+        }
+
+        @Override
+        public void writeString(int column, String value) throws IOException {
+            name(column);
+            gen.writeString(value);
+        }
+
+        @Override
+        public void writeObject(int column, Object value) throws IOException {
+            name(column);
+            gen.writeObject(value);
+        }
+    }
+
+    /**
+     * Writes tagged cells in the binary layout described on the class.
+     */
+    private static final class BinarySink implements ColumnReaders.ValueSink {
+        private final DataOutputStream data;
+
+        BinarySink(DataOutputStream data) {
+            this.data = data;
+        }
+
+        @Override
+        public void writeNull(int column) throws IOException {
+            data.writeByte(TAG_NULL);
+        }
+
+        @Override
+        public void writeInt(int column, int value) throws IOException {
+            data.writeByte(TAG_LONG);
+            data.writeLong(value);
+        }
+
+        @Override
+        public void writeLong(int column, long value) throws IOException {
+            data.writeByte(TAG_LONG);
+            data.writeLong(value);
+        }
+
+        @Override
+        public void writeDouble(int column, double value) throws IOException {
+            data.writeByte(TAG_DOUBLE);
+            data.writeDouble(value);
+        }
+
+        @Override
+        public void writeBoolean(int column, boolean value) throws IOException {
+            data.writeByte(TAG_BOOLEAN);
+            data.writeBoolean(value);
+        }
+
+        @Override
+        public void writeString(int column, String value) throws IOException {
+            data.writeByte(TAG_STRING);
+            ResultSetEncoder.writeString(data, value);
+        }
+
+        @Override
+        public void writeObject(int column, Object value) throws IOException {
+            writeBinaryValue(data, value);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package org.mouni.ds.editor.service;
+
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical concurrent SELECTs. The first request for a
+ * {@link SelectResultCache.Key} executes it; identical requests arriving while it runs
+ * wait for it and share its result instead of taking their own slot and connection.
+ * The key names the datasource the read was routed to, so a read from a replica is
+ * never shared with one meant for the primary. Only plain reads get here: locking
+ * reads and SELECTs calling state-changing functions are classified as writes. Nothing
+ * is kept once the execution completes, that is what {@link SelectResultCache} is for.
+ * <p>
+ * Per-caller limits still hold. A request only joins an execution whose timeout ends
+ * no earlier than its own, and while waiting it gives up at its own deadline or when
+ * it is cancelled. If the execution it joined was cancelled by its own caller, the
+ * waiting requests run the statement again themselves. A write through the editor
+ * detaches all running executions, so a client never gets a result read before its
+ * own write.
+ */
+@Component
+public class SelectCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(SelectCoalescer.class);
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+        private final QueryControl control;
+        private final long startedAt;
+        private final long timeoutNanos; // 0 for none
+        private final long generation;
+
+        Flight(QueryControl control, long startedAt, long timeoutNanos, long generation) {
+            this.control = control;
+            this.startedAt = startedAt;
+            this.timeoutNanos = timeoutNanos;
+            this.generation = generation;
+        }
+
+        /**
+         * Whether this execution may run at least until a caller starting now with the
+         * given timeout would give up.
+         */
+        boolean outlasts(long now, long callerTimeoutNanos) {
+            if (timeoutNanos == 0) {
+                return true;
+            }
+            return callerTimeoutNanos != 0 && (startedAt + timeoutNanos) - (now + callerTimeoutNanos) >= 0;
+        }
+    }
+
+    private final DsEditorProperties properties;
+    private final ConcurrentHashMap<SelectResultCache.Key, Flight> inFlight = new ConcurrentHashMap<>();
+
+    // bumped by every write; executions started before a bump are not joined
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder joined = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+
+    public SelectCoalescer(DsEditorProperties properties) {
+        this.properties = properties;
+    }
+
+    public boolean isEnabled() {
+        return properties.isCoalesceSelects();
+    }
+
+    /**
+     * Runs the query, or waits for an identical one that is already running.
+     *
+     * @param control the caller's control, for its timeout and cancellation
+     * @param query   executes the SELECT, including admission
+     */
+    Object execute(SelectResultCache.Key key, QueryControl control, Supplier<Object> query) {
+        long timeoutNanos = TimeUnit.SECONDS.toNanos(control.timeoutSeconds());
+        while (true) {
+            long now = System.nanoTime();
+            Flight flight = new Flight(control, now, timeoutNanos, generation.get());
+            Flight running = inFlight.putIfAbsent(key, flight);
+            if (running == null) {
+                return lead(key, flight, query);
+            }
+            if (running.generation != flight.generation && inFlight.replace(key, running, flight)) {
+                // started before a write, later identical requests must not see its result
+                return lead(key, flight, query);
+            }
+            if (running.generation != flight.generation || !running.outlasts(now, timeoutNanos)) {
+                executed.increment();
+                return query.get();
+            }
+            joined.increment();
+            log.debug("Joined running execution of an identical SELECT");
+            Object result = await(running, control, now, timeoutNanos);
+            if (result != Retry.INSTANCE) {
+                return result;
+            }
+            retried.increment();
+            inFlight.remove(key, running);
+        }
+    }
+
+    /**
+     * Stops requests from joining executions that are already running. Called after
+     * every write made through the editor.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("inFlight", inFlight.size());
+        stats.put("executed", executed.sum());
+        stats.put("joined", joined.sum());
+        stats.put("retried", retried.sum());
+        return stats;
+    }
+
+    // internal helpers
+
+    private enum Retry { INSTANCE }
+
+    private Object lead(SelectResultCache.Key key, Flight flight, Supplier<Object> query) {
+        executed.increment();
+        try {
+            Object result = query.get();
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Object await(Flight flight, QueryControl control, long start, long timeoutNanos) {
+        while (true) {
+            long wait = POLL_NANOS;
+            if (timeoutNanos > 0) {
+                long remaining = start + timeoutNanos - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new QueryTimeoutException("Query timed out waiting for an identical running query");
+                }
+                wait = Math.min(wait, remaining);
+            }
+            try {
+                return flight.result.get(wait, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // polling, so that a cancelled caller stops waiting
+                if (control.isCancelled()) {
+                    throw new QueryTimeoutException("Query was cancelled");
+                }
+            } catch (ExecutionException e) {
+                if (flight.control.isCancelled() && !control.isCancelled()) {
+                    return Retry.INSTANCE;
+                }
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw new IllegalStateException(cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new QueryTimeoutException("Interrupted while waiting for an identical running query");
+            }
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.mouni.ds.editor.service;
+
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.sql.SqlLexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of SELECT results with TTL expiry, keyed on the datasource and the
+ * normalized SQL plus everything that shapes the response (offset, size, format, cursor,
+ * total count mode, sort and filters).
+ * <p>
+ * Invalidation is deliberately conservative: each entry remembers every identifier
+ * that appears in its query, and a write drops all entries mentioning the written
+ * table. Writes whose target cannot be determined clear the whole cache. Changes
+ * not made through the editor (other applications, triggers, cascades, views over
+ * a written table) are only picked up when the entry expires.
+ */
+@Component
+public class SelectResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SelectResultCache.class);
+
+    private static final String IDENT = "(?:\"[^\"]+\"|[A-Za-z_][A-Za-z0-9_$]*)(?:\\s*\\.\\s*(?:\"[^\"]+\"|[A-Za-z_][A-Za-z0-9_$]*))*";
+
+    private static final Pattern WRITE_TARGET = Pattern.compile(
+            "^\\s*(?:INSERT\\s+INTO|MERGE\\s+INTO|UPDATE(?:\\s+ONLY)?|DELETE\\s+FROM(?:\\s+ONLY)?"
+                    + "|TRUNCATE(?:\\s+TABLE)?(?:\\s+ONLY)?"
+                    + "|(?:CREATE(?:\\s+OR\\s+REPLACE)?|ALTER|DROP)\\s+(?:TABLE|VIEW)(?:\\s+IF(?:\\s+NOT)?\\s+EXISTS)?)"
+                    + "\\s+(" + IDENT + "(?:\\s*,\\s*" + IDENT + ")*)",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern WORD = Pattern.compile("[^a-z0-9_$]+");
+
+    /**
+     * Identifies one cached response.
+     */
+    public record Key(String dataSource, String sql, long offset, int size, String format, boolean keyset, String cursor,
+                      String total, String view) {}
+
+    private record Entry(Object result, Set<String> words, long expiresAt) {}
+
+    private final DsEditorProperties.Cache settings;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    // bumped on every invalidation; results computed across a bump are not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public SelectResultCache(DsEditorProperties properties) {
+        this.settings = properties.getCache();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                boolean evict = size() > settings.getMaxEntries();
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Returns the cached result for the key, or computes and caches it.
+     *
+     * @param rowCount extracts the row count of a computed result (used for the size limit)
+     */
+    public Object get(Key key, Supplier<Object> loader, ToIntFunction<Object> rowCount) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > now) {
+                    hits.increment();
+                    log.debug("Result cache hit");
+                    return entry.result();
+                }
+                entries.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+
+        long startGeneration = generation.get();
+        Object result = loader.get();
+        if (result != null && rowCount.applyAsInt(result) <= settings.getMaxRows()) {
+            Entry entry = new Entry(result, words(key.sql()), now + settings.getTtl().toMillis());
+            synchronized (entries) {
+                if (generation.get() == startGeneration) {
+                    entries.put(key, entry);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops entries that may be affected by the given write statement.
+     */
+    public void invalidateFor(String writeSql) {
+        Set<String> tables = writeTargets(writeSql);
+        synchronized (entries) {
+            generation.incrementAndGet();
+            if (entries.isEmpty()) {
+                return;
+            }
+            int before = entries.size();
+            if (tables.isEmpty()) {
+                entries.clear();
+            } else {
+                entries.values().removeIf(e -> e.words().stream().anyMatch(tables::contains));
+            }
+            int removed = before - entries.size();
+            invalidations.add(removed);
+            log.debug("Result cache invalidated {} entr(ies) for tables {}", removed, tables.isEmpty() ? "*" : tables);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            invalidations.add(entries.size());
+            entries.clear();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", settings.isEnabled());
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxEntries", settings.getMaxEntries());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    // internal helpers
+
+    /**
+     * Lower-cased words of a statement, to match it against the tables a write touches.
+     */
+    static Set<String> words(String sql) {
+        Set<String> words = new HashSet<>();
+        for (String word : WORD.split(sql.toLowerCase(Locale.ROOT))) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Words of the unqualified, lower-cased names of the tables a write statement
+     * modifies, or an empty set if they cannot be determined.
+     */
+    static Set<String> writeTargets(String sql) {
+        Set<String> tables = new HashSet<>();
+        // leading comments would hide the statement keyword from the pattern
+        Matcher m = WRITE_TARGET.matcher(SqlLexer.normalize(sql));
+        if (m.find()) {
+            for (String name : m.group(1).split(",")) {
+                String unqualified = name.substring(name.lastIndexOf('.') + 1).strip();
+                // a quoted name may hold spaces or symbols; entries only know its words
+                tables.addAll(words(unqualified.replace("\"", "")));
+            }
+        }
+        return tables;
+    }
+}
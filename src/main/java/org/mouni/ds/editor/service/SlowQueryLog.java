@@ -0,0 +1,156 @@
+package org.mouni.ds.editor.service;
+
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.SlowQuery;
+import org.mouni.ds.sql.SqlLexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded log of statements that ran longer than {@code ds.editor.slow-log.threshold}.
+ * <p>
+ * For SELECT and DML statements the plan is captured right after the slow execution,
+ * on a separate connection to the same datasource and off the request thread: {@code EXPLAIN (FORMAT JSON)}
+ * on PostgreSQL, plain {@code EXPLAIN} elsewhere (H2). Only one plan is captured at a
+ * time; when captures back up, further slow statements are logged without a plan
+ * rather than taking more pool connections.
+ */
+@Component
+public class SlowQueryLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final Set<String> EXPLAINABLE = Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "MERGE", "WITH");
+
+    private static final int EXPLAIN_TIMEOUT_SECONDS = 10;
+    private static final int MAX_PENDING_PLANS = 16;
+
+    private final DsEditorProperties.SlowLog settings;
+    private final ThreadPoolExecutor explainer;
+    private final ArrayDeque<SlowQuery> entries = new ArrayDeque<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<DataSource, Boolean> postgres = new ConcurrentHashMap<>();
+
+    public SlowQueryLog(DsEditorProperties properties) {
+        this.settings = properties.getSlowLog();
+        this.explainer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_PLANS),
+                Thread.ofPlatform().name("ds-editor-explain").daemon().factory());
+    }
+
+    /**
+     * Logs the execution if it reached the threshold; otherwise this is a single comparison.
+     *
+     * @param error the failure, or null if the statement succeeded
+     */
+    void record(EditorDataSources.Target target, String sql, SqlLexer.StatementInfo info, List<Object> params,
+                long nanos, long rows, Throwable error) {
+        if (!settings.isEnabled() || nanos < settings.getThreshold().toNanos()) {
+            return;
+        }
+        String statement = sql.substring(0, info.bodyEnd());
+        List<Object> boundParams = params == null ? List.of() : Collections.unmodifiableList(new ArrayList<>(params));
+        String message = error == null ? null : NestedExceptionUtils.getMostSpecificCause(error).getMessage();
+        SlowQuery entry = new SlowQuery(ids.incrementAndGet(), target.name(), statement, boundParams, info.keyword(),
+                Instant.now(), nanos / 1e6, rows, message);
+        log.warn("Slow {} statement took {} ms: {}", info.keyword(), TimeUnit.NANOSECONDS.toMillis(nanos), statement);
+
+        synchronized (entries) {
+            entries.addFirst(entry);
+            while (entries.size() > Math.max(1, settings.getMaxEntries())) {
+                entries.removeLast();
+            }
+        }
+
+        if (settings.isExplain() && EXPLAINABLE.contains(info.keyword())) {
+            try {
+                explainer.execute(() -> capturePlan(target.dataSource(), entry));
+            } catch (RejectedExecutionException e) {
+                entry.setPlanError("Not captured, too many plans pending");
+            }
+        }
+    }
+
+    /**
+     * Logged statements, newest first.
+     */
+    public List<SlowQuery> entries() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        explainer.shutdownNow();
+    }
+
+    // internal helpers
+
+    private void capturePlan(DataSource dataSource, SlowQuery entry) {
+        try (Connection conn = dataSource.getConnection()) {
+            boolean postgres = isPostgres(dataSource, conn);
+            String explain = (postgres ? "EXPLAIN (FORMAT JSON) " : "EXPLAIN ") + entry.getSql();
+            try (PreparedStatement ps = conn.prepareStatement(explain)) {
+                ps.setQueryTimeout(EXPLAIN_TIMEOUT_SECONDS);
+                List<Object> params = entry.getParams();
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (!plan.isEmpty()) {
+                            plan.append('\n');
+                        }
+                        plan.append(rs.getString(1));
+                    }
+                }
+                entry.setPlan(plan.toString(), postgres ? "json" : "text");
+                log.debug("Captured plan for slow query {}", entry.getId());
+            }
+        } catch (SQLException | RuntimeException e) {
+            entry.setPlanError(e.getMessage());
+            log.warn("Could not capture plan for slow query {}: {}", entry.getId(), e.getMessage());
+        }
+    }
+
+    private boolean isPostgres(DataSource dataSource, Connection conn) throws SQLException {
+        Boolean cached = postgres.get(dataSource);
+        if (cached == null) {
+            String product = conn.getMetaData().getDatabaseProductName();
+            cached = product != null && product.toLowerCase(Locale.ROOT).contains("postgres");
+            postgres.put(dataSource, cached);
+        }
+        return cached;
+    }
+}
@@ -0,0 +1,216 @@
+package org.mouni.ds.editor.service;
+
+import org.mouni.ds.editor.model.ColumnFilter;
+import org.mouni.ds.editor.model.ColumnSort;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.mouni.ds.sql.SqlLexer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Sort and filter pushdown for paged SELECTs: the statement is wrapped as
+ * {@code SELECT * FROM ( statement ) AS sub WHERE ... ORDER BY ...} so that the
+ * database sorts and filters the whole result, with its indexes where it can, and
+ * pages and counts the filtered rows, instead of the grid sorting the one page it has.
+ * <p>
+ * Column names are only accepted if they are labels of the statement's result, read
+ * with a {@code WHERE 1 = 0} probe, and are emitted as quoted identifiers. Values are
+ * always bound as parameters.
+ */
+final class SortFilterPushdown {
+
+    private static final Pattern SIMPLE_TYPE = Pattern.compile("[A-Za-z][A-Za-z0-9_ ]*");
+
+    /**
+     * The row source of a paged SELECT.
+     *
+     * @param filtered statement without terminator, filters applied
+     * @param params   values bound by {@code filtered}
+     * @param orderBy  ORDER BY clause to append (with a leading space), or empty
+     * @param pushed   whether the statement was wrapped at all
+     */
+    record View(String filtered, List<Object> params, String orderBy, boolean pushed) {
+
+        String sorted() {
+            return filtered + orderBy;
+        }
+    }
+
+    private record Column(String label, String typeName, boolean character) {}
+
+    static boolean requested(SqlRequestDto request) {
+        return (request.getSort() != null && !request.getSort().isEmpty())
+                || (request.getFilters() != null && !request.getFilters().isEmpty());
+    }
+
+    /**
+     * Canonical form of the requested sort and filters, for cache keys; null if none.
+     */
+    static String describe(SqlRequestDto request) {
+        if (!requested(request)) {
+            return null;
+        }
+        StringBuilder sb = new StringBuilder();
+        if (request.getSort() != null) {
+            for (ColumnSort sort : request.getSort()) {
+                sb.append("sort:").append(sort.getColumn()).append(' ').append(sort.getDirection()).append(';');
+            }
+        }
+        if (request.getFilters() != null) {
+            for (ColumnFilter filter : request.getFilters()) {
+                Object value = filter.getValue();
+                sb.append("filter:").append(filter.getColumn()).append(' ').append(filter.getOp()).append(' ')
+                        .append(value == null ? "null" : value.getClass().getSimpleName() + ":" + value).append(';');
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds the row source for the request: the statement itself, or the statement
+     * wrapped with the requested filters and sort.
+     *
+     * @throws IllegalArgumentException for unknown columns, operators or directions
+     */
+    View view(JdbcTemplate jdbcTemplate, String sql, SqlLexer.StatementInfo info, SqlRequestDto request) {
+        String body = sql.substring(0, info.bodyEnd());
+        if (!requested(request)) {
+            return new View(body, List.of(), "", false);
+        }
+        Map<String, Column> columns = columns(jdbcTemplate, body);
+
+        StringBuilder where = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        if (request.getFilters() != null) {
+            for (ColumnFilter filter : request.getFilters()) {
+                where.append(where.isEmpty() ? " WHERE " : " AND ");
+                where.append(condition(column(columns, filter.getColumn()), filter, params));
+            }
+        }
+
+        StringBuilder orderBy = new StringBuilder();
+        if (request.getSort() != null) {
+            for (ColumnSort sort : request.getSort()) {
+                orderBy.append(orderBy.isEmpty() ? " ORDER BY " : ", ");
+                orderBy.append(quote(column(columns, sort.getColumn()).label())).append(direction(sort.getDirection()));
+            }
+        }
+        return new View("SELECT * FROM ( " + body + " ) AS sub" + where, List.copyOf(params), orderBy.toString(), true);
+    }
+
+    // internal helpers
+
+    private static Map<String, Column> columns(JdbcTemplate jdbcTemplate, String body) {
+        return jdbcTemplate.query("SELECT * FROM ( " + body + " ) AS sub WHERE 1 = 0",
+                (ResultSetExtractor<Map<String, Column>>) rs -> {
+                    ResultSetMetaData md = rs.getMetaData();
+                    Map<String, Column> columns = new LinkedHashMap<>();
+                    for (int i = 1; i <= md.getColumnCount(); i++) {
+                        String label = md.getColumnLabel(i);
+                        columns.putIfAbsent(label, new Column(label, md.getColumnTypeName(i),
+                                isCharacter(md.getColumnType(i))));
+                    }
+                    return columns;
+                });
+    }
+
+    private static Column column(Map<String, Column> columns, String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Sort and filter entries need a column");
+        }
+        Column column = columns.get(name);
+        if (column != null) {
+            return column;
+        }
+        List<Column> matches = columns.values().stream()
+                .filter(c -> c.label().equalsIgnoreCase(name))
+                .toList();
+        if (matches.size() != 1) {
+            throw new IllegalArgumentException("Unknown result column '" + name + "', expected one of "
+                    + columns.keySet());
+        }
+        return matches.get(0);
+    }
+
+    private static String condition(Column column, ColumnFilter filter, List<Object> params) {
+        String op = filter.getOp() == null ? "eq" : filter.getOp().toLowerCase(Locale.ROOT);
+        String name = quote(column.label());
+        switch (op) {
+            case "isnull":
+                return name + " IS NULL";
+            case "notnull":
+                return name + " IS NOT NULL";
+            case "contains":
+            case "startswith": {
+                String text = text(filter).toLowerCase(Locale.ROOT);
+                params.add(("contains".equals(op) ? "%" : "") + escapeLike(text) + "%");
+                String operand = column.character() ? name : "CAST(" + name + " AS VARCHAR(4000))";
+                return "LOWER(" + operand + ") LIKE ? ESCAPE '\\'";
+            }
+            default:
+                break;
+        }
+        String comparison = switch (op) {
+            case "eq" -> " = ";
+            case "ne" -> " <> ";
+            case "lt" -> " < ";
+            case "le" -> " <= ";
+            case "gt" -> " > ";
+            case "ge" -> " >= ";
+            default -> throw new IllegalArgumentException("Unknown filter operator '" + filter.getOp()
+                    + "', expected eq, ne, lt, le, gt, ge, contains, startsWith, isNull or notNull");
+        };
+        Object value = filter.getValue();
+        if (value == null) {
+            throw new IllegalArgumentException("Filter '" + op + "' on column '" + column.label() + "' needs a value");
+        }
+        params.add(value);
+        // text typed into the grid, compared with a date or number column; PostgreSQL will not coerce it
+        boolean cast = value instanceof String && !column.character() && column.typeName() != null
+                && SIMPLE_TYPE.matcher(column.typeName()).matches();
+        return name + comparison + (cast ? "CAST(? AS " + column.typeName() + ")" : "?");
+    }
+
+    private static String text(ColumnFilter filter) {
+        if (filter.getValue() == null) {
+            throw new IllegalArgumentException("Filter '" + filter.getOp() + "' on column '" + filter.getColumn()
+                    + "' needs a value");
+        }
+        return String.valueOf(filter.getValue());
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static String direction(String direction) {
+        if (direction == null || "asc".equalsIgnoreCase(direction)) {
+            return " ASC";
+        }
+        if ("desc".equalsIgnoreCase(direction)) {
+            return " DESC";
+        }
+        throw new IllegalArgumentException("Unknown sort direction '" + direction + "', expected asc or desc");
+    }
+
+    private static String quote(String label) {
+        return "\"" + label.replace("\"", "\"\"") + "\"";
+    }
+
+    private static boolean isCharacter(int jdbcType) {
+        return switch (jdbcType) {
+            case Types.CHAR, Types.VARCHAR, Types.LONGVARCHAR, Types.NCHAR, Types.NVARCHAR, Types.LONGNVARCHAR,
+                 Types.CLOB, Types.NCLOB -> true;
+            default -> false;
+        };
+    }
+}
@@ -0,0 +1,461 @@
+package org.mouni.ds.editor.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.BatchResult;
+import org.mouni.ds.editor.model.BatchTransactionMode;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+
+import java.sql.BatchUpdateException;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs batches of {@link SqlRequestDto}s: one after another, with consecutive
+ * read-only statements fanned out on virtual threads, or on a single connection
+ * inside one transaction with consecutive DML sent as JDBC batches.
+ */
+@Service
+public class SqlBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlBatchService.class);
+
+    private final SqlExecutorService sqlExecutorService;
+    private final DsEditorProperties properties;
+    private final EditorDataSources dataSources;
+    private final QueryGovernor queryGovernor;
+    private final EditorMetrics metrics;
+
+    public SqlBatchService(SqlExecutorService sqlExecutorService,
+                           DsEditorProperties properties,
+                           EditorDataSources dataSources,
+                           QueryGovernor queryGovernor,
+                           EditorMetrics metrics) {
+        this.sqlExecutorService = sqlExecutorService;
+        this.queryGovernor = queryGovernor;
+        this.metrics = metrics;
+        this.properties = properties;
+        this.dataSources = dataSources;
+    }
+
+    /**
+     * Executes the batch. Results and errors are reported per index in request order.
+     * <p>
+     * In parallel mode, each run of consecutive SELECTs executes concurrently, limited
+     * to {@link #parallelism()} statements at a time so the batch cannot take every
+     * pool connection. Any other statement is a barrier: it runs alone, after all
+     * earlier statements have finished and before any later one starts, so writes keep
+     * their order relative to the reads around them.
+     */
+    public BatchResult execute(List<SqlRequestDto> requests, boolean parallel) {
+        int n = requests.size();
+        Object[] results = new Object[n];
+        long[] durations = new long[n];
+        boolean[] failed = new boolean[n];
+        long start = System.nanoTime();
+        // resolved here, the virtual threads below have no request context
+        String client = queryGovernor.currentClient();
+
+        if (!parallel) {
+            for (int i = 0; i < n; i++) {
+                runOne(requests, i, client, results, durations, failed);
+            }
+        } else {
+            int permits = parallelism();
+            log.debug("Executing batch of {} queries in parallel mode, parallelism={}", n, permits);
+            Semaphore slots = new Semaphore(permits);
+            int i = 0;
+            while (i < n) {
+                if (!sqlExecutorService.isReadOnly(requests.get(i))) {
+                    runOne(requests, i, client, results, durations, failed);
+                    i++;
+                    continue;
+                }
+                int end = i;
+                while (end < n && sqlExecutorService.isReadOnly(requests.get(end))) {
+                    end++;
+                }
+                runConcurrently(requests, i, end, slots, client, results, durations, failed);
+                i = end;
+            }
+        }
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        int errorCount = 0;
+        List<Long> durationsMs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            durationsMs.add(durations[i] / 1_000_000);
+            if (failed[i]) {
+                errorCount++;
+            }
+        }
+        log.info("Batch execution completed in {} ms: {} successful, {} failed",
+                elapsedMs, n - errorCount, errorCount);
+        return new BatchResult(new ArrayList<>(Arrays.asList(results)), durationsMs, elapsedMs,
+                n - errorCount, errorCount);
+    }
+
+    /**
+     * Executes the batch on one connection inside one transaction.
+     * <p>
+     * Consecutive INSERT/UPDATE/DELETE statements are grouped into JDBC batches: runs
+     * of the same SQL text with bind parameters become one prepared
+     * {@code addBatch}/{@code executeBatch}, and runs without parameters become one
+     * static statement batch. Other statements execute individually, in order, on the
+     * same connection so they see the batch's own writes.
+     * <p>
+     * {@link BatchTransactionMode#ATOMIC}: the first failure rolls back everything and
+     * every index is reported as failed. {@link BatchTransactionMode#BEST_EFFORT}: each
+     * group runs under a savepoint; a failed group is rolled back and replayed one
+     * statement at a time to find the failing ones, and the rest is committed.
+     * <p>
+     * The whole batch holds one write slot of the {@link QueryGovernor} and runs under
+     * the global statement timeout. All statements must address the same datasource;
+     * reads run on its primary, never on a replica.
+     *
+     * @throws IllegalArgumentException if the statements address different datasources
+     */
+    public BatchResult executeInTransaction(List<SqlRequestDto> requests, BatchTransactionMode mode) {
+        if (mode == BatchTransactionMode.NONE) {
+            return execute(requests, false);
+        }
+        EditorDataSources.Target target = transactionTarget(requests);
+        int n = requests.size();
+        Object[] results = new Object[n];
+        long[] durations = new long[n];
+        boolean[] failed = new boolean[n];
+        long start = System.nanoTime();
+        log.debug("Executing batch of {} queries in a single transaction on '{}', mode={}", n, target.name(), mode);
+
+        QueryControl control = new QueryControl(sqlExecutorService.defaultTimeoutSeconds(), queryGovernor.currentClient());
+        control.call(() -> {
+            QueryGovernor.Permit permit = queryGovernor.admit(QueryGovernor.StatementClass.WRITE, control);
+            try (permit) {
+                runTransaction(target, requests, mode, results, durations, failed);
+            }
+            return null;
+        });
+
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        int errorCount = 0;
+        List<Long> durationsMs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            durationsMs.add(durations[i] / 1_000_000);
+            if (failed[i]) {
+                errorCount++;
+            }
+        }
+        log.info("Transactional batch completed in {} ms: {} successful, {} failed",
+                elapsedMs, n - errorCount, errorCount);
+        return new BatchResult(new ArrayList<>(Arrays.asList(results)), durationsMs, elapsedMs,
+                n - errorCount, errorCount);
+    }
+
+    private void runTransaction(EditorDataSources.Target target, List<SqlRequestDto> requests,
+                                BatchTransactionMode mode, Object[] results, long[] durations, boolean[] failed) {
+        int n = requests.size();
+        JdbcTemplate jdbcTemplate = sqlExecutorService.jdbcTemplate(target);
+        try {
+            target.transactionTemplate().executeWithoutResult(status -> {
+                int i = 0;
+                while (i < n) {
+                    int end = groupEnd(requests, i);
+                    if (mode == BatchTransactionMode.ATOMIC) {
+                        try {
+                            runGroup(jdbcTemplate, requests, i, end, results, durations);
+                        } catch (BatchGroupException e) {
+                            throw new BatchAbortedException(i + e.offset, e.failure);
+                        } catch (RuntimeException e) {
+                            throw new BatchAbortedException(i, e);
+                        }
+                    } else {
+                        runGroupWithSavepoint(jdbcTemplate, status, requests, i, end, results, durations, failed);
+                    }
+                    i = end;
+                }
+            });
+        } catch (BatchAbortedException e) {
+            String message = rootMessage(e.getCause());
+            log.error("Atomic batch rolled back, statement {} of {} failed: {}", e.index + 1, n, message);
+            for (int i = 0; i < n; i++) {
+                results[i] = error(i, i == e.index ? message : "Rolled back: statement " + e.index + " failed");
+                failed[i] = true;
+            }
+        } catch (RuntimeException e) {
+            // commit (or rollback) itself failed, nothing was applied
+            String message = rootMessage(e);
+            log.error("Batch transaction failed: {}", message);
+            for (int i = 0; i < n; i++) {
+                results[i] = error(i, "Transaction failed: " + message);
+                failed[i] = true;
+            }
+        }
+    }
+
+    /**
+     * Maximum concurrent statements for a parallel batch: the configured value, or
+     * the default connection pool size minus one (leaving a connection for other requests).
+     */
+    int parallelism() {
+        if (properties.getBatchParallelism() > 0) {
+            return properties.getBatchParallelism();
+        }
+        if (dataSources.resolve(EditorDataSources.DEFAULT).dataSource() instanceof HikariDataSource hikari && hikari.getMaximumPoolSize() > 0) {
+            return Math.max(1, hikari.getMaximumPoolSize() - 1);
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    // internal helpers
+
+    private EditorDataSources.Target transactionTarget(List<SqlRequestDto> requests) {
+        EditorDataSources.Target target = dataSources.resolve(requests.get(0).getDatasource());
+        for (SqlRequestDto request : requests) {
+            if (dataSources.resolve(request.getDatasource()) != target) {
+                throw new IllegalArgumentException("All statements of a transactional batch must use the same datasource");
+            }
+        }
+        return target;
+    }
+
+    /**
+     * End (exclusive) of the group starting at {@code from}: consecutive DML with the
+     * same SQL and bind parameters, consecutive DML without parameters, or a single
+     * other statement.
+     */
+    private int groupEnd(List<SqlRequestDto> requests, int from) {
+        SqlRequestDto first = requests.get(from);
+        if (!sqlExecutorService.isDml(first)) {
+            return from + 1;
+        }
+        boolean prepared = hasParams(first);
+        int end = from + 1;
+        while (end < requests.size()) {
+            SqlRequestDto next = requests.get(end);
+            if (!sqlExecutorService.isDml(next) || hasParams(next) != prepared) {
+                break;
+            }
+            if (prepared && !Objects.equals(first.getQuery().strip(), next.getQuery().strip())) {
+                break;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    private void runGroup(JdbcTemplate jdbcTemplate, List<SqlRequestDto> requests, int from, int to,
+                          Object[] results, long[] durations) {
+        long start = System.nanoTime();
+        if (to - from == 1) {
+            try {
+                results[from] = sqlExecutorService.execute(requests.get(from));
+            } finally {
+                durations[from] = System.nanoTime() - start;
+            }
+            return;
+        }
+
+        SqlRequestDto first = requests.get(from);
+        int[] counts;
+        Set<String> written = new LinkedHashSet<>();
+        // JdbcTemplate.batchUpdate translates a BatchUpdateException into the driver's nested
+        // exception, losing the update counts that tell which statement failed
+        BatchUpdateException[] batchFailure = new BatchUpdateException[1];
+        try {
+            if (hasParams(first)) {
+                counts = jdbcTemplate.execute(first.getQuery(), (PreparedStatementCallback<int[]>) ps -> {
+                    for (int i = from; i < to; i++) {
+                        new ArgumentPreparedStatementSetter(requests.get(i).getParams().toArray()).setValues(ps);
+                        ps.addBatch();
+                    }
+                    return executeBatch(ps, batchFailure);
+                });
+                written.add(first.getQuery());
+            } else {
+                for (int i = from; i < to; i++) {
+                    written.add(requests.get(i).getQuery());
+                }
+                counts = jdbcTemplate.execute((StatementCallback<int[]>) st -> {
+                    for (int i = from; i < to; i++) {
+                        st.addBatch(requests.get(i).getQuery());
+                    }
+                    return executeBatch(st, batchFailure);
+                });
+            }
+        } catch (RuntimeException e) {
+            metrics.recordStatement(QueryGovernor.StatementClass.WRITE, System.nanoTime() - start, 0, e);
+            throw batchFailure[0] == null ? e : new BatchGroupException(failedOffset(batchFailure[0], to - from), e);
+        } finally {
+            // cost of a JDBC batch is shared by its statements
+            long share = (System.nanoTime() - start) / (to - from);
+            for (int i = from; i < to; i++) {
+                durations[i] = share;
+            }
+        }
+        log.debug("Executed JDBC batch of {} statement(s) for batch queries {}..{}", to - from, from + 1, to);
+
+        for (int i = from; i < to; i++) {
+            Map<String, Object> result = new HashMap<>();
+            int count = counts[i - from];
+            // drivers may answer SUCCESS_NO_INFO instead of a row count
+            result.put("updated", count == Statement.SUCCESS_NO_INFO ? null : count);
+            results[i] = result;
+            metrics.recordStatement(QueryGovernor.StatementClass.WRITE, durations[i], Math.max(0, count), null);
+        }
+        written.forEach(sqlExecutorService::invalidateCacheFor);
+    }
+
+    private void runGroupWithSavepoint(JdbcTemplate jdbcTemplate, TransactionStatus status,
+                                       List<SqlRequestDto> requests, int from, int to,
+                                       Object[] results, long[] durations, boolean[] failed) {
+        Object savepoint = status.createSavepoint();
+        try {
+            runGroup(jdbcTemplate, requests, from, to, results, durations);
+            status.releaseSavepoint(savepoint);
+            return;
+        } catch (RuntimeException e) {
+            status.rollbackToSavepoint(savepoint);
+            if (to - from == 1) {
+                log.error("Error executing batch query {} of {}: {}", from + 1, requests.size(), rootMessage(e));
+                results[from] = error(from, rootMessage(e));
+                failed[from] = true;
+                return;
+            }
+            log.warn("JDBC batch for queries {}..{} failed, replaying one by one: {}", from + 1, to, rootMessage(e));
+        }
+
+        for (int i = from; i < to; i++) {
+            runGroupWithSavepoint(jdbcTemplate, status, requests, i, i + 1, results, durations, failed);
+        }
+    }
+
+    private static int[] executeBatch(Statement statement, BatchUpdateException[] failure) throws SQLException {
+        try {
+            return statement.executeBatch();
+        } catch (BatchUpdateException e) {
+            failure[0] = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Position of the failing statement within a group, from the update counts of a
+     * {@link BatchUpdateException} when the driver provides them.
+     */
+    private static int failedOffset(BatchUpdateException e, int groupSize) {
+        int[] counts = e.getUpdateCounts();
+        if (counts == null) {
+            return 0;
+        }
+        for (int k = 0; k < counts.length; k++) {
+            if (counts[k] == Statement.EXECUTE_FAILED) {
+                return k;
+            }
+        }
+        // drivers that stop at the first failure report the counts of the statements before it
+        return Math.min(counts.length, groupSize - 1);
+    }
+
+    private static boolean hasParams(SqlRequestDto request) {
+        return request.getParams() != null && !request.getParams().isEmpty();
+    }
+
+    private static String rootMessage(Throwable e) {
+        return NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+    }
+
+    private void runConcurrently(List<SqlRequestDto> requests, int from, int to, Semaphore slots, String client,
+                                 Object[] results, long[] durations, boolean[] failed) {
+        if (to - from == 1) {
+            runOne(requests, from, client, results, durations, failed);
+            return;
+        }
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = from; i < to; i++) {
+                int index = i;
+                executor.submit(() -> {
+                    try {
+                        slots.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        results[index] = error(index, "Interrupted while waiting for a connection slot");
+                        failed[index] = true;
+                        return;
+                    }
+                    try {
+                        runOne(requests, index, client, results, durations, failed);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            }
+        } // close() waits for all tasks; the array writes happen-before this point
+    }
+
+    private void runOne(List<SqlRequestDto> requests, int i, String client,
+                        Object[] results, long[] durations, boolean[] failed) {
+        long start = System.nanoTime();
+        try {
+            log.debug("Executing batch query {} of {}", i + 1, requests.size());
+            results[i] = sqlExecutorService.execute(requests.get(i), client);
+        } catch (Exception ex) {
+            log.error("Error executing batch query {} of {}: {}", i + 1, requests.size(), ex.getMessage());
+            results[i] = error(i, ex.getMessage());
+            failed[i] = true;
+        } finally {
+            durations[i] = System.nanoTime() - start;
+        }
+    }
+
+    private static Map<String, Object> error(int index, String message) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", message);
+        error.put("index", index);
+        return error;
+    }
+
+    /** A JDBC batch group failed at {@code offset}, the translated failure is the cause. */
+    private static final class BatchGroupException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int offset;
+        private final RuntimeException failure;
+
+        BatchGroupException(int offset, RuntimeException failure) {
+            super(failure.getMessage(), failure);
+            this.offset = offset;
+            this.failure = failure;
+        }
+    }
+
+    private static final class BatchAbortedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int index;
+
+        BatchAbortedException(int index, RuntimeException cause) {
+            super(cause);
+            this.index = index;
+        }
+    }
+}
@@ -1,48 +1,239 @@
 package org.mouni.ds.editor.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
+import org.mouni.ds.editor.model.ColumnarResult;
+import org.mouni.ds.editor.model.KeysetPage;
+import org.mouni.ds.editor.model.ResultFormat;
+import org.mouni.ds.editor.model.RowsPage;
 import org.mouni.ds.editor.model.SqlRequestDto;
+import org.mouni.ds.editor.model.TotalMode;
+import org.mouni.ds.sql.SqlLexer;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 @Service
 public class SqlExecutorService {
 
     private static final Logger log = LoggerFactory.getLogger(SqlExecutorService.class);
 
-    private final JdbcTemplate jdbcTemplate;
+    private final EditorDataSources dataSources;
+    private final Map<String, JdbcTemplate> jdbcTemplates = new ConcurrentHashMap<>();
+    private final DsEditorProperties properties;
+    private final ObjectMapper objectMapper;
+    private final KeysetPagination keysetPagination;
+    private final SortFilterPushdown sortFilterPushdown = new SortFilterPushdown();
+    private final ResultSetEncoder resultSetEncoder;
+    private final SelectResultCache selectResultCache;
+    private final QueryGovernor queryGovernor;
+    private final EditorMetrics metrics;
+    private final QueryStatistics queryStatistics;
+    private final SlowQueryLog slowQueryLog;
+    private final SelectCoalescer selectCoalescer;
+    private final TotalCounter totalCounter;
 
-    public SqlExecutorService(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public SqlExecutorService(EditorDataSources dataSources,
+                              DsEditorProperties properties,
+                              ObjectMapper objectMapper,
+                              SelectResultCache selectResultCache,
+                              QueryGovernor queryGovernor,
+                              EditorMetrics metrics,
+                              QueryStatistics queryStatistics,
+                              SlowQueryLog slowQueryLog,
+                              SelectCoalescer selectCoalescer,
+                              TotalCounter totalCounter) {
+        this.properties = properties;
+        this.dataSources = dataSources;
+        this.objectMapper = objectMapper;
+        this.selectResultCache = selectResultCache;
+        this.queryGovernor = queryGovernor;
+        this.metrics = metrics;
+        this.queryStatistics = queryStatistics;
+        this.slowQueryLog = slowQueryLog;
+        this.selectCoalescer = selectCoalescer;
+        this.totalCounter = totalCounter;
+        this.keysetPagination = new KeysetPagination(objectMapper);
+        this.resultSetEncoder = new ResultSetEncoder(objectMapper);
     }
 
+    /**
+     * Executes the request under its statement timeout. When the caller already bound a
+     * {@link QueryControl} (asynchronous jobs do, to be able to cancel), that one is used.
+     */
     public Object execute(SqlRequestDto request) {
+        return execute(request, null);
+    }
+
+    /**
+     * Like {@link #execute(SqlRequestDto)}, queueing as the given client; for callers off
+     * the request thread. A null client is resolved from the current request.
+     */
+    public Object execute(SqlRequestDto request, String client) {
+        if (QueryControl.current() != null) {
+            return executeStatement(request);
+        }
+        String caller = client != null ? client : queryGovernor.currentClient();
+        return new QueryControl(timeoutSeconds(request), caller).call(() -> executeStatement(request));
+    }
+
+    /**
+     * Effective statement timeout of a request in seconds, 0 for none. A per-request
+     * timeout can shorten, but never extend, {@code ds.editor.query-timeout}.
+     */
+    public int timeoutSeconds(SqlRequestDto request) {
+        int global = defaultTimeoutSeconds();
+        Integer requested = request.getTimeoutSeconds();
+        if (requested == null || requested <= 0) {
+            return global;
+        }
+        return global > 0 ? Math.min(requested, global) : requested;
+    }
+
+    int defaultTimeoutSeconds() {
+        Duration timeout = properties.getQueryTimeout();
+        if (timeout == null || timeout.isZero() || timeout.isNegative()) {
+            return 0;
+        }
+        // round up, JDBC timeouts are whole seconds and 0 would mean "no limit"
+        return (int) Math.min(Integer.MAX_VALUE, (timeout.toMillis() + 999) / 1000);
+    }
+
+    /**
+     * The target's JdbcTemplate, applying the thread's {@link QueryControl} to every statement.
+     */
+    JdbcTemplate jdbcTemplate(EditorDataSources.Target target) {
+        return jdbcTemplates.computeIfAbsent(target.name(),
+                name -> QueryControl.jdbcTemplate(target.jdbcTemplate(), this::defaultTimeoutSeconds));
+    }
+
+    private Object executeStatement(SqlRequestDto request) {
         String sql = request.getQuery();
         if (!StringUtils.hasText(sql)) {
             log.warn("Rejected empty SQL query");
             throw new IllegalArgumentException("SQL query must not be empty");
         }
 
-        String leading = leadingKeyword(sql);
+        SqlLexer.StatementInfo info = SqlLexer.analyze(sql);
+        String leading = info.keyword();
         log.debug("Executing SQL statement with leading keyword: {}", leading);
 
+        Object[] params = request.getParams() == null ? new Object[0] : request.getParams().toArray();
+        if (params.length > 0 && !isDml(leading)) {
+            throw new IllegalArgumentException("Bind parameters are only supported for INSERT/UPDATE/DELETE statements");
+        }
+
+        QueryGovernor.StatementClass statementClass = QueryGovernor.StatementClass.of(info);
+        EditorDataSources.Target addressed = dataSources.resolve(request.getDatasource());
+        QueryControl control = QueryControl.current();
+        EditorDataSources.Target target = route(addressed, statementClass, control, request);
+        // identical concurrent reads of the same target share one execution; inside a
+        // transaction they must see its writes
+        if (statementClass == QueryGovernor.StatementClass.READ && selectCoalescer.isEnabled()
+                && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return selectCoalescer.execute(selectKey(target.name(), sql, request), control,
+                    () -> executeWithPermit(statementClass, addressed, target, control, sql, leading, info, params, request));
+        }
+        return executeWithPermit(statementClass, addressed, target, control, sql, leading, info, params, request);
+    }
+
+    private Object executeWithPermit(QueryGovernor.StatementClass statementClass, EditorDataSources.Target addressed,
+                                     EditorDataSources.Target target, QueryControl control, String sql,
+                                     String leading, SqlLexer.StatementInfo info, Object[] params,
+                                     SqlRequestDto request) {
+        QueryGovernor.Permit permit = queryGovernor.admit(statementClass, control);
+        try (permit) {
+            // a replica may still serve rows a write has replaced; caching them would outlive the lag
+            boolean cacheable = statementClass == QueryGovernor.StatementClass.READ && !target.isReplica();
+            long start = System.nanoTime();
+            try {
+                Object result = withFallback(target,
+                        jdbc -> executeAdmitted(jdbc, addressed.name(), sql, leading, info, params, request, cacheable));
+                long elapsed = System.nanoTime() - start;
+                long rows = affectedRows(result);
+                metrics.recordStatement(statementClass, elapsed, rows, null);
+                queryStatistics.record(sql, elapsed, rows, false);
+                slowQueryLog.record(target, sql, info, request.getParams(), elapsed, rows, null);
+                return result;
+            } catch (RuntimeException e) {
+                long elapsed = System.nanoTime() - start;
+                metrics.recordStatement(statementClass, elapsed, 0, e);
+                queryStatistics.record(sql, elapsed, 0, true);
+                slowQueryLog.record(target, sql, info, request.getParams(), elapsed, 0, e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Where the statement runs: the addressed datasource, or one of its replicas for
+     * reads, unless the request asks for the primary.
+     */
+    private EditorDataSources.Target route(EditorDataSources.Target addressed,
+                                           QueryGovernor.StatementClass statementClass,
+                                           QueryControl control, SqlRequestDto request) {
+        if (Boolean.TRUE.equals(request.getPrimary()) && statementClass == QueryGovernor.StatementClass.READ) {
+            return addressed;
+        }
+        return dataSources.route(addressed, statementClass, control != null ? control.client() : null);
+    }
+
+    /**
+     * Runs the action on the routed target. A replica that cannot hand out a connection
+     * is taken out of rotation and the action runs on its primary instead.
+     */
+    private <T> T withFallback(EditorDataSources.Target target, Function<JdbcTemplate, T> action) {
+        try {
+            return action.apply(jdbcTemplate(target));
+        } catch (CannotGetJdbcConnectionException e) {
+            if (!target.isReplica()) {
+                throw e;
+            }
+            dataSources.markUnavailable(target, e);
+            return action.apply(jdbcTemplate(dataSources.primaryOf(target)));
+        }
+    }
+
+    private Object executeAdmitted(JdbcTemplate jdbc, String dataSource, String sql, String leading,
+                                   SqlLexer.StatementInfo info, Object[] params, SqlRequestDto request,
+                                   boolean cacheable) {
         switch (leading) {
             case "SELECT":
                 log.debug("Executing SELECT query");
-                return executeSelect(sql, request);
+                return executeSelectRequest(jdbc, dataSource, sql, info, request, cacheable);
             case "INSERT":
             case "UPDATE":
             case "DELETE":
                 log.debug("Executing {} statement", leading);
-                return executeUpdateCount(sql);
+                try {
+                    return executeUpdateCount(jdbc, sql, params);
+                } finally {
+                    invalidateCacheFor(sql);
+                }
             case "CREATE":
             case "ALTER":
             case "DROP":
@@ -51,31 +242,181 @@ public class SqlExecutorService {
             case "GRANT":
             case "REVOKE":
                 log.debug("Executing DDL statement: {}", leading);
-                return executeDdl(sql);
+                try {
+                    return executeDdl(jdbc, sql);
+                } finally {
+                    invalidateCacheFor(sql);
+                }
             default:
                 log.debug("Unknown keyword '{}', attempting as UPDATE first", leading);
                 // Try update first, then DDL execute as fallback
                 try {
-                    return executeUpdateCount(sql);
+                    return executeUpdateCount(jdbc, sql, params);
                 } catch (DataAccessException e) {
                     log.error("UPDATE failed, trying as DDL: {}", e.getMessage(), e);
-                    return executeDdl(sql);
+                    return executeDdl(jdbc, sql);
+                } finally {
+                    invalidateCacheFor(sql);
+                }
+        }
+    }
+
+    /**
+     * Whether the request is a read-only statement that may run concurrently with others.
+     * A SELECT locking rows or changing state ({@code FOR UPDATE}, {@code nextval(...)})
+     * or a data-modifying CTE is not.
+     */
+    public boolean isReadOnly(SqlRequestDto request) {
+        String sql = request.getQuery();
+        return StringUtils.hasText(sql)
+                && QueryGovernor.StatementClass.of(SqlLexer.analyze(sql)) == QueryGovernor.StatementClass.READ;
+    }
+
+    /**
+     * Whether the request is an INSERT, UPDATE or DELETE statement.
+     */
+    public boolean isDml(SqlRequestDto request) {
+        String sql = request.getQuery();
+        return StringUtils.hasText(sql) && isDml(SqlLexer.analyze(sql).keyword());
+    }
+
+    /**
+     * Drops cached SELECT results that the given write may have changed. Inside a
+     * transaction this is deferred until after commit, so a concurrent reader cannot
+     * re-cache the old data in between.
+     */
+    public void invalidateCacheFor(String sql) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(sql);
                 }
+            });
+        } else {
+            invalidateNow(sql);
         }
     }
 
-    private String leadingKeyword(String sql) {
-        String trimmed = sql.stripLeading();
-        // take first token
-        int spaceIdx = trimmed.indexOf(' ');
-        String first = (spaceIdx < 0 ? trimmed : trimmed.substring(0, spaceIdx))
-                .replaceAll("[^A-Za-z]", "");
-        return first.toUpperCase(Locale.ROOT);
+    private void invalidateNow(String sql) {
+        if (selectResultCache.isEnabled()) {
+            selectResultCache.invalidateFor(sql);
+        }
+        selectCoalescer.invalidate();
+        totalCounter.invalidateFor(sql);
+    }
+
+    public Map<String, Object> cacheStats() {
+        return selectResultCache.stats();
+    }
+
+    public Map<String, Object> coalescingStats() {
+        return selectCoalescer.stats();
+    }
+
+    public void clearCache() {
+        selectResultCache.clear();
+        log.info("SELECT result cache cleared");
+    }
+
+    /**
+     * Validates that the request can be streamed. Called before the response is
+     * committed so that bad requests still get a proper 400.
+     */
+    public void validateStreamable(SqlRequestDto request) {
+        String sql = request.getQuery();
+        if (!StringUtils.hasText(sql)) {
+            log.warn("Rejected empty SQL query");
+            throw new IllegalArgumentException("SQL query must not be empty");
+        }
+        if (!"SELECT".equals(SqlLexer.analyze(sql).keyword())) {
+            throw new IllegalArgumentException("Streaming is only supported for SELECT statements");
+        }
+        ResultFormat.from(request.getFormat());
+        dataSources.resolve(request.getDatasource());
+    }
+
+    /**
+     * Streams the full result of a SELECT as NDJSON (one JSON object per line, or a
+     * column header line followed by one array per row for the columnar format), or
+     * in the binary format. Rows are written as they are read from a forward-only
+     * cursor, so memory use does not depend on the size of the result.
+     *
+     * @return number of rows written
+     */
+    public long streamSelect(SqlRequestDto request, String client, OutputStream out) {
+        QueryControl control = new QueryControl(timeoutSeconds(request), client);
+        return control.call(() -> {
+            QueryGovernor.Permit permit = queryGovernor.admit(QueryGovernor.StatementClass.READ, control);
+            try (permit) {
+                ResultFormat format = ResultFormat.from(request.getFormat());
+                long start = System.nanoTime();
+                CountingOutputStream counting = new CountingOutputStream(out);
+                try {
+                    long rows = streamSelectRows(request, counting);
+                    metrics.recordStatement(QueryGovernor.StatementClass.READ, System.nanoTime() - start, rows, null);
+                    return rows;
+                } catch (RuntimeException e) {
+                    metrics.recordStatement(QueryGovernor.StatementClass.READ, System.nanoTime() - start, 0, e);
+                    throw e;
+                } finally {
+                    metrics.recordStreamedBytes(format.name(), counting.count);
+                }
+            }
+        });
+    }
+
+    private long streamSelectRows(SqlRequestDto request, OutputStream out) {
+        validateStreamable(request);
+        EditorDataSources.Target target = route(dataSources.resolve(request.getDatasource()),
+                QueryGovernor.StatementClass.of(SqlLexer.analyze(request.getQuery())), QueryControl.current(), request);
+        // nothing has been written when acquiring the connection fails, so the fallback is safe
+        return withFallback(target, jdbc -> streamSelectRows(jdbc, request, out));
+    }
+
+    private long streamSelectRows(JdbcTemplate jdbc, SqlRequestDto request, OutputStream out) {
+        String sql = request.getQuery();
+        ResultFormat format = ResultFormat.from(request.getFormat());
+        int fetchSize = Math.max(1, properties.getFetchSize());
+        log.debug("Streaming SELECT query with fetchSize={}, format={}", fetchSize, format);
+
+        try {
+            Long rows = jdbc.execute((ConnectionCallback<Long>) conn -> {
+                boolean autoCommit = conn.getAutoCommit();
+                // PostgreSQL only uses a server-side cursor (and honours fetchSize) outside autocommit
+                if (autoCommit) {
+                    conn.setAutoCommit(false);
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(fetchSize);
+                    QueryControl.apply(ps, defaultTimeoutSeconds());
+                    try (ResultSet rs = ps.executeQuery()) {
+                        long written = resultSetEncoder.write(rs, out, format, fetchSize);
+                        if (autoCommit) {
+                            conn.commit();
+                        }
+                        return written;
+                    } finally {
+                        QueryControl.release(ps);
+                    }
+                } finally {
+                    if (autoCommit) {
+                        conn.setAutoCommit(true);
+                    }
+                }
+            });
+            log.info("Streamed SELECT query successfully, wrote {} row(s)", rows);
+            return rows == null ? 0 : rows;
+        } catch (DataAccessException e) {
+            log.error("Failed to stream SELECT query: {}", e.getMessage());
+            throw e;
+        }
     }
 
-    private Map<String, Object> executeUpdateCount(String sql) {
+    private Map<String, Object> executeUpdateCount(JdbcTemplate jdbc, String sql, Object[] params) {
         try {
-            int updated = jdbcTemplate.update(sql);
+            int updated = params.length == 0 ? jdbc.update(sql) : jdbc.update(sql, params);
             log.info("Update statement executed: {} row(s) affected", updated);
             Map<String, Object> result = new HashMap<>();
             result.put("updated", updated);
@@ -86,9 +427,9 @@ public class SqlExecutorService {
         }
     }
 
-    private Map<String, Object> executeDdl(String sql) {
+    private Map<String, Object> executeDdl(JdbcTemplate jdbc, String sql) {
         try {
-            jdbcTemplate.execute(sql);
+            jdbc.execute(sql);
             log.info("DDL statement executed successfully");
             Map<String, Object> result = new HashMap<>();
             result.put("message", "Executed");
@@ -99,41 +440,353 @@ public class SqlExecutorService {
         }
     }
 
-    private List<Map<String, Object>> executeSelect(String sql, SqlRequestDto req) {
-        int page = req.getPage() == null || req.getPage() < 0 ? 0 : req.getPage();
-        int size = req.getSize() == null || req.getSize() <= 0 ? 20 : req.getSize();
-        int offset = page * size;
+    private Object executeSelectRequest(JdbcTemplate jdbc, String dataSource, String sql,
+                                        SqlLexer.StatementInfo info, SqlRequestDto request, boolean cacheable) {
+        ResultFormat format = ResultFormat.from(request.getFormat());
+        if (format == ResultFormat.BINARY) {
+            throw new IllegalArgumentException("The binary format is only supported by the streaming endpoint");
+        }
+        boolean keyset = isKeyset(request);
+        if (keyset && format != ResultFormat.ROWS) {
+            throw new IllegalArgumentException("Keyset pagination only supports the rows format");
+        }
+        if (keyset && Boolean.TRUE.equals(request.getWithTotal())) {
+            throw new IllegalArgumentException("Total counts are only supported with page/size pagination");
+        }
+        if (keyset && SortFilterPushdown.requested(request)) {
+            throw new IllegalArgumentException("Sort and filters are only supported with page/size pagination");
+        }
+
+        // results read inside a transaction may include uncommitted writes, never cache them
+        if (!cacheable || !selectResultCache.isEnabled()
+                || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return keyset
+                    ? executeKeysetSelect(jdbc, sql, info, request)
+                    : executeSelect(jdbc, dataSource, sql, info, request, format);
+        }
+
+        return selectResultCache.get(selectKey(dataSource, sql, request),
+                () -> keyset
+                        ? executeKeysetSelect(jdbc, sql, info, request)
+                        : executeSelect(jdbc, dataSource, sql, info, request, format),
+                SqlExecutorService::rowCount);
+    }
+
+    /**
+     * Identifies a SELECT response: datasource, normalized SQL and everything that shapes the result.
+     */
+    private static SelectResultCache.Key selectKey(String dataSource, String sql, SqlRequestDto request) {
+        boolean keyset = isKeyset(request);
+        String total = Boolean.TRUE.equals(request.getWithTotal()) ? TotalMode.from(request.getTotalMode()).name() : null;
+        return new SelectResultCache.Key(dataSource, SqlLexer.normalize(sql), keyset ? 0 : offsetOf(request),
+                sizeOf(request), ResultFormat.from(request.getFormat()).name(), keyset, request.getCursor(), total,
+                SortFilterPushdown.describe(request));
+    }
+
+    private static boolean isKeyset(SqlRequestDto request) {
+        return Boolean.TRUE.equals(request.getKeyset()) || StringUtils.hasText(request.getCursor());
+    }
+
+    private static boolean isDml(String leading) {
+        return "INSERT".equals(leading) || "UPDATE".equals(leading) || "DELETE".equals(leading);
+    }
+
+    private static int rowCount(Object result) {
+        if (result instanceof List<?> list) {
+            return list.size();
+        }
+        if (result instanceof ColumnarResult columnar) {
+            return columnar.getRows().size();
+        }
+        if (result instanceof KeysetPage page) {
+            return page.getRows().size();
+        }
+        if (result instanceof RowsPage page) {
+            return page.getRows().size();
+        }
+        return 0;
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Map<?, ?> map && map.get("updated") instanceof Number updated) {
+            return updated.longValue();
+        }
+        return rowCount(result);
+    }
+
+    private static int pageOf(SqlRequestDto req) {
+        return req.getPage() == null || req.getPage() < 0 ? 0 : req.getPage();
+    }
+
+    private static long offsetOf(SqlRequestDto req) {
+        if (req.getOffset() != null) {
+            return Math.max(0, req.getOffset());
+        }
+        return (long) pageOf(req) * sizeOf(req);
+    }
+
+    private static int sizeOf(SqlRequestDto req) {
+        return req.getSize() == null || req.getSize() <= 0 ? 20 : req.getSize();
+    }
+
+    /**
+     * Executes one page, plus the total row count if requested. An uncached count runs
+     * concurrently on a second connection when a read slot is free right away, otherwise
+     * after the page on the same one. A failed count leaves the total out, it does not
+     * fail the page.
+     */
+    private Object executeSelect(JdbcTemplate jdbc, String dataSource, String sql, SqlLexer.StatementInfo info,
+                                 SqlRequestDto req, ResultFormat format) {
+        SortFilterPushdown.View view = sortFilterPushdown.view(jdbc, sql, info, req);
+        if (!Boolean.TRUE.equals(req.getWithTotal())) {
+            return executePage(jdbc, sql, info, view, req, format);
+        }
+        TotalMode mode = TotalMode.from(req.getTotalMode());
+        TotalCounter.Total total = totalCounter.cached(dataSource, view.filtered(), view.params(), mode);
+        if (total != null) {
+            log.debug("Using cached total of {} row(s)", total.rows());
+            return withTotal(executePage(jdbc, sql, info, view, req, format), total);
+        }
+        // a second connection would not see the transaction's own writes
+        QueryGovernor.Permit permit = TransactionSynchronizationManager.isActualTransactionActive()
+                ? null
+                : queryGovernor.tryAdmit(QueryGovernor.StatementClass.READ);
+        if (permit == null) {
+            Object page = executePage(jdbc, sql, info, view, req, format);
+            return withTotal(page, countQuietly(jdbc, dataSource, view, mode));
+        }
+
+        QueryControl control = QueryControl.current();
+        CompletableFuture<TotalCounter.Total> counting = new CompletableFuture<>();
+        Thread.ofVirtual().name("ds-editor-count").start(() -> {
+            try (permit) {
+                counting.complete(control.call(() -> countQuietly(jdbc, dataSource, view, mode)));
+            } catch (Throwable e) {
+                counting.completeExceptionally(e);
+            }
+        });
+        // if the page fails, the count still finishes in the background and is cached
+        Object page = executePage(jdbc, sql, info, view, req, format);
+        return withTotal(page, counting.join());
+    }
+
+    private TotalCounter.Total countQuietly(JdbcTemplate jdbc, String dataSource, SortFilterPushdown.View view,
+                                            TotalMode mode) {
+        try {
+            return totalCounter.count(jdbc, dataSource, view.filtered(), view.params(), mode);
+        } catch (RuntimeException e) {
+            log.warn("Failed to count the rows of a paged SELECT: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object withTotal(Object page, TotalCounter.Total total) {
+        Long rows = total == null ? null : total.rows();
+        if (page instanceof ColumnarResult columnar) {
+            columnar.setTotal(rows);
+            columnar.setTotalEstimated(total == null ? null : total.estimated());
+            return columnar;
+        }
+        if (page instanceof RowsPage rowsPage) {
+            rowsPage.setTotal(rows);
+            rowsPage.setTotalEstimated(total != null && total.estimated());
+            return rowsPage;
+        }
+        return new RowsPage((List<Map<String, Object>>) page, rows, total != null && total.estimated());
+    }
 
-        log.debug("SELECT query pagination: page={}, size={}, offset={}", page, size, offset);
+    private Object executePage(JdbcTemplate jdbc, String sql, SqlLexer.StatementInfo info,
+                               SortFilterPushdown.View view, SqlRequestDto req, ResultFormat format) {
+        int size = sizeOf(req);
+        long offset = offsetOf(req);
 
-        String lower = sql.toLowerCase(Locale.ROOT);
-        boolean hasLimit = lower.contains(" limit ");
-        boolean hasOffset = lower.contains(" offset ");
+        log.debug("SELECT query pagination: size={}, offset={}", size, offset);
 
         String pagedSql;
-        Object[] params;
+        List<Object> params = new ArrayList<>(view.params());
 
-        if (hasLimit || hasOffset) {
-            log.debug("Query already contains LIMIT/OFFSET, using as-is");
-            // Trust user-provided pagination; do not wrap
-            pagedSql = sql;
-            params = new Object[]{};
+        if (info.limited() && req.getOffset() == null) {
+            log.debug("Query already contains LIMIT/OFFSET/FETCH, using as-is");
+            // Trust user-provided pagination; do not page, only sort and filter what it returns
+            pagedSql = view.pushed() ? view.sorted() : sql;
+            offset = 0;
+        } else if (info.limited()) {
+            log.debug("Continuing a truncated LIMIT/OFFSET/FETCH query at offset {}", offset);
+            pagedSql = "SELECT * FROM ( " + view.sorted() + " ) AS sub LIMIT ? OFFSET ?";
+            params.add(Integer.MAX_VALUE);
+            params.add(offset);
+        } else if (view.pushed()) {
+            log.debug("Pushing sort and filters into the query");
+            pagedSql = view.sorted() + " LIMIT ? OFFSET ?";
+            params.add(size);
+            params.add(offset);
         } else {
             log.debug("Wrapping query with pagination");
             // Portable enough for PostgreSQL/H2/MySQL/MariaDB
-            pagedSql = "SELECT * FROM ( " + sql + " ) AS sub LIMIT ? OFFSET ?";
-            params = new Object[]{size, offset};
+            // without trailing semicolons and comments, which would break the wrapper
+            pagedSql = "SELECT * FROM ( " + view.filtered() + " ) AS sub LIMIT ? OFFSET ?";
+            params.add(size);
+            params.add(offset);
         }
 
+        ResultBudget budget = ResultBudget.of(properties.getLimits());
         try {
-            List<Map<String, Object>> results = params.length == 0
-                    ? jdbcTemplate.queryForList(pagedSql)
-                    : jdbcTemplate.queryForList(pagedSql, params);
-            log.info("SELECT query executed successfully, returned {} row(s)", results.size());
+            if (format == ResultFormat.COLUMNAR) {
+                ColumnarResult result = queryBounded(jdbc, pagedSql, params.toArray(), budget,
+                        rs -> resultSetEncoder.readColumnar(rs, budget));
+                log.info("SELECT query executed successfully, returned {} row(s) in columnar format",
+                        result == null ? 0 : result.getRows().size());
+                if (result != null && budget.truncated()) {
+                    result.setTruncated(true);
+                    result.setTruncatedBy(budget.exceeded().label());
+                    result.setNextOffset(offset + budget.rows());
+                }
+                return result;
+            }
+            List<Map<String, Object>> results = queryBounded(jdbc, pagedSql, params.toArray(), budget,
+                    rs -> resultSetEncoder.readRows(rs, budget));
+            log.info("SELECT query executed successfully, returned {} row(s)",
+                    results == null ? 0 : results.size());
+            if (results != null && budget.truncated()) {
+                RowsPage truncated = new RowsPage(results, null, false);
+                truncated.setTruncated(true);
+                truncated.setTruncatedBy(budget.exceeded().label());
+                truncated.setNextOffset(offset + budget.rows());
+                return truncated;
+            }
             return results;
         } catch (DataAccessException e) {
             log.error("Failed to execute SELECT query: {}", e.getMessage());
             throw e;
         }
     }
+
+    /**
+     * Runs a SELECT with the fetch size and the budget's max rows set on the statement.
+     * Outside a transaction it runs with autocommit off, as PostgreSQL only streams
+     * rows through a cursor then and otherwise buffers the whole result in the driver
+     * before the budget is ever checked.
+     */
+    private <T> T queryBounded(JdbcTemplate jdbc, String sql, Object[] params, ResultBudget budget,
+                               ResultSetExtractor<T> extractor) {
+        int fetchSize = Math.max(1, properties.getFetchSize());
+        int maxRows = budget.statementMaxRows();
+        if (jdbc.getMaxRows() > 0 && (maxRows == 0 || jdbc.getMaxRows() < maxRows)) {
+            maxRows = jdbc.getMaxRows();
+        }
+        int statementMaxRows = maxRows;
+        return jdbc.execute((ConnectionCallback<T>) conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+            try (PreparedStatement ps = conn.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                if (statementMaxRows > 0) {
+                    ps.setMaxRows(statementMaxRows);
+                }
+                QueryControl.apply(ps, defaultTimeoutSeconds());
+                try {
+                    new ArgumentPreparedStatementSetter(params).setValues(ps);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        T result = extractor.extractData(rs);
+                        if (autoCommit) {
+                            conn.commit();
+                        }
+                        return result;
+                    }
+                } finally {
+                    QueryControl.release(ps);
+                }
+            } finally {
+                if (autoCommit) {
+                    conn.setAutoCommit(true);
+                }
+            }
+        });
+    }
+
+    private KeysetPage executeKeysetSelect(JdbcTemplate jdbc, String sql, SqlLexer.StatementInfo info,
+                                           SqlRequestDto req) {
+        int size = sizeOf(req);
+
+        List<KeysetPagination.OrderKey> keys = keysetPagination.orderKeys(sql, info);
+        KeysetPagination.Cursor cursor = StringUtils.hasText(req.getCursor())
+                ? keysetPagination.decode(sql, keys, req.getCursor())
+                : null;
+        boolean backward = cursor != null && cursor.backward();
+
+        log.debug("SELECT query keyset pagination: size={}, keys={}, cursor={}, backward={}",
+                size, keys.size(), cursor != null, backward);
+
+        // fetch one extra row to know whether another page exists in this direction
+        String pagedSql = keysetPagination.pageSql(sql, info, keys, cursor);
+        Object[] params = keysetPagination.pageParams(keys, cursor, size + 1);
+
+        try {
+            ResultBudget budget = ResultBudget.of(properties.getLimits());
+            List<Map<String, Object>> rows = queryBounded(jdbc, pagedSql, params, budget,
+                    rs -> resultSetEncoder.readRows(rs, budget));
+            // a budget that only stopped the look-ahead row leaves the page complete
+            boolean truncated = budget.truncated() && rows.size() < size;
+            boolean more = rows.size() > size || budget.truncated();
+            // a cut-off page is shorter than size; its cursor continues after the last row read
+            if (rows.size() > size) {
+                rows = new ArrayList<>(rows.subList(0, size));
+            }
+            if (backward) {
+                Collections.reverse(rows);
+            }
+
+            String next = null;
+            String prev = null;
+            if (!rows.isEmpty()) {
+                Map<String, Object> first = rows.get(0);
+                Map<String, Object> last = rows.get(rows.size() - 1);
+                if (backward) {
+                    next = keysetPagination.encode(sql, keys, last, false);
+                    prev = more ? keysetPagination.encode(sql, keys, first, true) : null;
+                } else {
+                    next = more ? keysetPagination.encode(sql, keys, last, false) : null;
+                    prev = cursor != null ? keysetPagination.encode(sql, keys, first, true) : null;
+                }
+            }
+
+            log.info("SELECT query executed successfully with keyset pagination, returned {} row(s)", rows.size());
+            KeysetPage result = new KeysetPage(rows, next, prev);
+            if (truncated) {
+                result.setTruncated(true);
+                result.setTruncatedBy(budget.exceeded().label());
+            }
+            return result;
+        } catch (DataAccessException e) {
+            log.error("Failed to execute keyset SELECT query: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Counts the bytes written to the response by {@code /stream}.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
 }
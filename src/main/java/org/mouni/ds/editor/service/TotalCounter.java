@@ -0,0 +1,159 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.TotalMode;
+import org.mouni.ds.sql.SqlLexer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Total row counts for paged SELECTs, cached per datasource, normalized statement and
+ * bound filter values so that paging through a result counts only once.
+ * <p>
+ * {@link TotalMode#EXACT} runs {@code SELECT count(*)} over the statement.
+ * {@link TotalMode#ESTIMATE} reads the planner's row estimate from
+ * {@code EXPLAIN (FORMAT JSON)} on PostgreSQL, which costs no scan at all but can be
+ * far off for selective filters; other databases count exactly.
+ * <p>
+ * Cached counts are invalidated like {@link SelectResultCache} entries: by writes
+ * through the editor to a table the statement mentions, otherwise when they expire.
+ */
+@Component
+public class TotalCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(TotalCounter.class);
+
+    /**
+     * Row count of a statement, and whether it is a planner estimate.
+     */
+    public record Total(long rows, boolean estimated) {}
+
+    private record Key(String dataSource, String sql, List<Object> params, TotalMode mode) {}
+
+    private record Entry(Total total, Set<String> words, long expiresAt) {}
+
+    private final DsEditorProperties.Totals settings;
+    private final ObjectMapper objectMapper;
+    private final LinkedHashMap<Key, Entry> entries;
+    private final Map<DataSource, Boolean> postgres = new ConcurrentHashMap<>();
+
+    // bumped on every invalidation; counts computed across a bump are not stored
+    private final AtomicLong generation = new AtomicLong();
+
+    public TotalCounter(DsEditorProperties properties, ObjectMapper objectMapper) {
+        this.settings = properties.getTotals();
+        this.objectMapper = objectMapper;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > Math.max(1, settings.getMaxEntries());
+            }
+        };
+    }
+
+    /**
+     * The cached count of the statement, or null.
+     */
+    Total cached(String dataSource, String body, List<Object> params, TotalMode mode) {
+        Key key = new Key(dataSource, SqlLexer.normalize(body), params, mode);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() <= now) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.total();
+        }
+    }
+
+    /**
+     * Counts the rows of the statement and caches the count.
+     *
+     * @param body   the statement without terminator
+     * @param params values bound by the statement
+     */
+    Total count(JdbcTemplate jdbcTemplate, String dataSource, String body, List<Object> params, TotalMode mode) {
+        long startGeneration = generation.get();
+        Total total = null;
+        if (mode == TotalMode.ESTIMATE && isPostgres(jdbcTemplate)) {
+            total = estimate(jdbcTemplate, body, params);
+        }
+        if (total == null) {
+            Long rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ( " + body + " ) AS sub_count", Long.class,
+                    params.toArray());
+            total = new Total(rows == null ? 0 : rows, false);
+        }
+        log.debug("Counted {} row(s){} for paged SELECT", total.rows(), total.estimated() ? " (estimate)" : "");
+
+        String normalized = SqlLexer.normalize(body);
+        Entry entry = new Entry(total, SelectResultCache.words(normalized),
+                System.currentTimeMillis() + settings.getTtl().toMillis());
+        synchronized (entries) {
+            if (generation.get() == startGeneration) {
+                entries.put(new Key(dataSource, normalized, params, mode), entry);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Drops counts that the given write statement may have changed.
+     */
+    void invalidateFor(String writeSql) {
+        Set<String> tables = SelectResultCache.writeTargets(writeSql);
+        synchronized (entries) {
+            generation.incrementAndGet();
+            if (tables.isEmpty()) {
+                entries.clear();
+            } else {
+                entries.values().removeIf(e -> e.words().stream().anyMatch(tables::contains));
+            }
+        }
+    }
+
+    // internal helpers
+
+    private Total estimate(JdbcTemplate jdbcTemplate, String body, List<Object> params) {
+        String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) " + body, String.class, params.toArray());
+        try {
+            JsonNode rows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            if (rows.isNumber()) {
+                return new Total(rows.asLong(), true);
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Could not read the row estimate from the plan, counting instead: {}", e.getOriginalMessage());
+        }
+        return null;
+    }
+
+    private boolean isPostgres(JdbcTemplate jdbcTemplate) {
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        Boolean cached = postgres.get(dataSource);
+        if (cached == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) conn -> conn.getMetaData().getDatabaseProductName());
+            cached = product != null && product.toLowerCase(Locale.ROOT).contains("postgres");
+            postgres.put(dataSource, cached);
+        }
+        return cached;
+    }
+}
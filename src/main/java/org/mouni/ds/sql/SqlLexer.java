@@ -0,0 +1,538 @@
+package org.mouni.ds.sql;
+
+import java.util.Locale;
+
+/**
+ * Single-pass SQL tokenizer shared by the editor and the script runner.
+ * <p>
+ * The lexer is a cursor over a {@link CharSequence}: {@link #next()} advances to the
+ * next token and exposes its type and bounds, without allocating a token object or
+ * substring. Whitespace is skipped; comments are returned as {@link Token#COMMENT} so
+ * callers can decide whether they matter.
+ * <p>
+ * Recognized lexical forms: {@code 'string'} with {@code ''} escapes,
+ * {@code E'string'} with backslash escapes, {@code "identifier"} and
+ * {@code `identifier`}, PostgreSQL dollar quotes ({@code $$...$$}, {@code $tag$...$tag$}),
+ * {@code --} line comments and (nested) {@code /* *}{@code /} block comments.
+ * Backslash escapes in plain {@code '...'} strings (MySQL's default) are not supported.
+ * <p>
+ * In partial mode ({@link #reset(CharSequence, int, int, boolean)} with
+ * {@code partial = true}) the input is known to continue past {@code limit}; a token
+ * that runs into the limit is reported as {@link Token#INCOMPLETE} so that a streaming
+ * caller can read more input and resume from {@link #start()}.
+ */
+public final class SqlLexer {
+
+    // functions that change state even when called from a SELECT
+    private static final String[] STATE_FUNCTIONS = {
+            "NEXTVAL", "SETVAL", "PG_ADVISORY_LOCK", "PG_ADVISORY_LOCK_SHARED", "PG_ADVISORY_XACT_LOCK",
+            "PG_ADVISORY_XACT_LOCK_SHARED", "PG_TRY_ADVISORY_LOCK", "PG_TRY_ADVISORY_LOCK_SHARED",
+            "PG_TRY_ADVISORY_XACT_LOCK", "PG_TRY_ADVISORY_XACT_LOCK_SHARED", "PG_ADVISORY_UNLOCK",
+            "PG_ADVISORY_UNLOCK_ALL", "PG_NOTIFY", "SET_CONFIG", "LO_CREATE", "LO_IMPORT", "LO_UNLINK",
+            "TXID_CURRENT", "PG_CURRENT_XACT_ID"};
+
+    public enum Token {
+        /** Keyword or unquoted identifier. */
+        WORD,
+        /** Quoted identifier. */
+        QUOTED,
+        /** String literal, including dollar-quoted bodies. */
+        STRING,
+        NUMBER,
+        COMMENT,
+        /** Any other single character: operators, parentheses, commas, semicolons. */
+        SYMBOL,
+        /** Partial mode only: the token continues past the available input. */
+        INCOMPLETE,
+        /** No more tokens in the available input. */
+        END
+    }
+
+    /**
+     * What the editor needs to know about a single statement, collected in one pass.
+     *
+     * @param keyword             statement type: the first keyword, upper-cased; for
+     *                            {@code WITH} the keyword of the main statement, or
+     *                            {@code WITH} if a CTE itself modifies data
+     * @param bodyEnd             end of the statement text without trailing semicolons and comments
+     * @param orderByEnd          index just after the last top-level {@code ORDER BY}, or -1
+     * @param limited             whether a top-level {@code LIMIT}, {@code OFFSET} or {@code FETCH} is present
+     * @param limitedAfterOrderBy whether such a clause follows the top-level {@code ORDER BY}
+     * @param sideEffects         whether the statement locks rows ({@code FOR UPDATE},
+     *                            {@code FOR SHARE}, ...) or calls a function known to change
+     *                            state ({@code nextval}, advisory locks, ...), which makes even
+     *                            a SELECT a write
+     */
+    public record StatementInfo(String keyword, int bodyEnd, int orderByEnd,
+                                boolean limited, boolean limitedAfterOrderBy, boolean sideEffects) {
+
+        public boolean hasOrderBy() {
+            return orderByEnd >= 0;
+        }
+    }
+
+    private CharSequence src;
+    private int pos;
+    private int limit;
+    private boolean partial;
+
+    private Token token;
+    private int start;
+    private int end;
+
+    public SqlLexer(CharSequence src) {
+        reset(src, 0, src.length(), false);
+    }
+
+    /**
+     * Restarts the lexer on {@code src[from, to)}.
+     *
+     * @param partial whether more input follows {@code to}
+     */
+    public void reset(CharSequence src, int from, int to, boolean partial) {
+        this.src = src;
+        this.pos = from;
+        this.limit = to;
+        this.partial = partial;
+        this.token = null;
+        this.start = from;
+        this.end = from;
+    }
+
+    public Token next() {
+        while (pos < limit && Character.isWhitespace(src.charAt(pos))) {
+            pos++;
+        }
+        if (pos >= limit) {
+            return set(Token.END, pos, pos);
+        }
+        int from = pos;
+        char c = src.charAt(pos);
+        if (c == '\'') {
+            return quoted(Token.STRING, from, from + 1, '\'', false);
+        }
+        if (c == '"' || c == '`') {
+            return quoted(Token.QUOTED, from, from + 1, c, false);
+        }
+        if (c == '-' || c == '/' || c == '$') {
+            if (pos + 1 >= limit && partial) {
+                return set(Token.INCOMPLETE, from, limit);
+            }
+            char d = pos + 1 < limit ? src.charAt(pos + 1) : 0;
+            if (c == '-' && d == '-') {
+                return lineComment(from);
+            }
+            if (c == '/' && d == '*') {
+                return blockComment(from);
+            }
+            if (c == '$' && (d == '$' || isIdentifierStart(d))) {
+                return dollarQuoted(from);
+            }
+            return symbol(from);
+        }
+        if (isIdentifierStart(c)) {
+            int i = pos + 1;
+            while (i < limit && isIdentifierPart(src.charAt(i))) {
+                i++;
+            }
+            if (i >= limit && partial) {
+                return set(Token.INCOMPLETE, from, limit);
+            }
+            // E'...' (PostgreSQL escape string)
+            if (i == from + 1 && (c == 'E' || c == 'e') && i < limit && src.charAt(i) == '\'') {
+                return quoted(Token.STRING, from, i + 1, '\'', true);
+            }
+            return set(Token.WORD, from, i);
+        }
+        if (isDigit(c) || (c == '.' && pos + 1 < limit && isDigit(src.charAt(pos + 1)))) {
+            return number(from);
+        }
+        return symbol(from);
+    }
+
+    public Token token() {
+        return token;
+    }
+
+    public int start() {
+        return start;
+    }
+
+    public int end() {
+        return end;
+    }
+
+    public String text() {
+        return src.subSequence(start, end).toString();
+    }
+
+    /**
+     * The character of a {@link Token#SYMBOL} token.
+     */
+    public char symbol() {
+        return src.charAt(start);
+    }
+
+    public boolean isSymbol(char c) {
+        return token == Token.SYMBOL && src.charAt(start) == c;
+    }
+
+    /**
+     * Whether the current token is the given word, compared case-insensitively
+     * without allocating. {@code upper} must be upper case.
+     */
+    public boolean isWord(String upper) {
+        if (token != Token.WORD || end - start != upper.length()) {
+            return false;
+        }
+        for (int i = 0; i < upper.length(); i++) {
+            if (Character.toUpperCase(src.charAt(start + i)) != upper.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Classifies a statement and locates its top-level clauses in one pass.
+     */
+    public static StatementInfo analyze(CharSequence sql) {
+        SqlLexer lexer = new SqlLexer(sql);
+        String keyword = null;
+        String mainKeyword = null;
+        boolean with = false;
+        boolean nestedWrite = false;
+        boolean afterOpen = false;
+        boolean afterOrder = false;
+        int depth = 0;
+        int bodyEnd = 0;
+        int orderByEnd = -1;
+        boolean limited = false;
+        boolean limitedAfterOrderBy = false;
+        boolean sideEffects = false;
+        boolean afterFor = false;
+        boolean afterValue = false;
+        boolean afterStateFunction = false;
+
+        for (Token t = lexer.next(); t != Token.END; t = lexer.next()) {
+            if (t == Token.COMMENT) {
+                continue;
+            }
+            boolean semicolon = lexer.isSymbol(';');
+            if (!semicolon) {
+                bodyEnd = lexer.end();
+            }
+            if (t == Token.SYMBOL) {
+                sideEffects |= afterStateFunction && lexer.symbol() == '(';
+                afterFor = false;
+                afterValue = false;
+                afterStateFunction = false;
+                if (lexer.symbol() == '(') {
+                    depth++;
+                    afterOpen = true;
+                } else {
+                    if (lexer.symbol() == ')' && depth > 0) {
+                        depth--;
+                    }
+                    afterOpen = false;
+                }
+                afterOrder = false;
+                continue;
+            }
+            if (t == Token.WORD) {
+                if (keyword == null) {
+                    keyword = lexer.text().toUpperCase(Locale.ROOT);
+                    with = "WITH".equals(keyword);
+                } else if (with) {
+                    if (depth == 0 && mainKeyword == null && isStatementWord(lexer)) {
+                        mainKeyword = lexer.text().toUpperCase(Locale.ROOT);
+                    } else if (depth > 0 && afterOpen && isWriteWord(lexer)) {
+                        nestedWrite = true;
+                    }
+                }
+                if (depth == 0) {
+                    if (afterOrder && lexer.isWord("BY")) {
+                        orderByEnd = lexer.end();
+                        limitedAfterOrderBy = false;
+                    } else if (lexer.isWord("LIMIT") || lexer.isWord("OFFSET") || lexer.isWord("FETCH")) {
+                        limited = true;
+                        limitedAfterOrderBy |= orderByEnd >= 0;
+                    }
+                }
+                afterOrder = depth == 0 && lexer.isWord("ORDER");
+                // FOR UPDATE, FOR NO KEY UPDATE, FOR SHARE, FOR KEY SHARE; NEXT VALUE FOR
+                sideEffects |= afterFor && (lexer.isWord("UPDATE") || lexer.isWord("SHARE")
+                        || lexer.isWord("NO") || lexer.isWord("KEY"));
+                sideEffects |= afterValue && lexer.isWord("FOR");
+                afterFor = lexer.isWord("FOR");
+                afterValue = lexer.isWord("VALUE");
+                afterStateFunction = isStateFunction(lexer);
+            } else {
+                afterOrder = false;
+                afterFor = false;
+                afterValue = false;
+                afterStateFunction = false;
+            }
+            afterOpen = false;
+        }
+
+        if (keyword == null) {
+            keyword = "";
+        } else if (with && !nestedWrite && mainKeyword != null) {
+            keyword = mainKeyword;
+        }
+        return new StatementInfo(keyword, bodyEnd, orderByEnd, limited, limitedAfterOrderBy, sideEffects);
+    }
+
+    /**
+     * Drops comments and trailing semicolons and collapses whitespace outside quoted
+     * text to single spaces, so trivially different spellings of a statement compare equal.
+     */
+    public static String normalize(CharSequence sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        SqlLexer lexer = new SqlLexer(sql);
+        int previousEnd = 0;
+        int keep = 0;
+        for (Token t = lexer.next(); t != Token.END; t = lexer.next()) {
+            if (t == Token.COMMENT) {
+                // leaves a gap before the next token, so it becomes a space like whitespace
+                continue;
+            }
+            if (sb.length() > 0 && lexer.start() != previousEnd) {
+                sb.append(' ');
+            }
+            sb.append(sql, lexer.start(), lexer.end());
+            previousEnd = lexer.end();
+            if (!lexer.isSymbol(';')) {
+                keep = sb.length();
+            }
+        }
+        sb.setLength(keep);
+        return sb.toString();
+    }
+
+    /**
+     * Reduces a statement to its shape, like {@code pg_stat_statements} does: string and
+     * numeric literals become {@code ?}, unquoted words are upper-cased, comments and
+     * trailing semicolons are dropped and spacing is made canonical. A comma-separated
+     * run of placeholders collapses to one, so {@code IN} lists of any length share a
+     * fingerprint. Statements that differ only in their constants map to the same text.
+     */
+    public static String fingerprint(CharSequence sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        SqlLexer lexer = new SqlLexer(sql);
+        // last emitted character class: 0 none, 'w' word-like, 'o' operator, 'p' punctuation
+        char previous = 0;
+        char beforePrevious = 0;
+        int signAt = -1;
+        int keep = 0;
+        for (Token t = lexer.next(); t != Token.END; t = lexer.next()) {
+            if (t == Token.COMMENT) {
+                continue;
+            }
+            boolean literal = t == Token.STRING || t == Token.NUMBER || lexer.isSymbol('?');
+            if (literal && signAt >= 0) {
+                // a unary sign belongs to the constant: "= -1" -> "= ?"
+                sb.setLength(signAt);
+                previous = beforePrevious;
+            }
+            if (literal && endsWithPlaceholderList(sb)) {
+                // "?, ?" -> "?": drop the comma just written
+                sb.setLength(sb.length() - 1);
+                previous = 'w';
+                continue;
+            }
+            char c = t == Token.SYMBOL && !literal ? lexer.symbol() : 0;
+            char current = c == 0 ? 'w' : "(),.;:[]".indexOf(c) >= 0 ? 'p' : 'o';
+            boolean space = previous != 0
+                    && ",)].;:".indexOf(c) < 0
+                    && !(previous == 'p' && "([.:".indexOf(sb.charAt(sb.length() - 1)) >= 0)
+                    && !(c == '(' && previous == 'w')
+                    && !(c == '[' && previous == 'w')
+                    && !(previous == 'o' && current == 'o');
+            // a sign directly after an operator, an opening bracket or a comma is unary
+            signAt = (c == '-' || c == '+')
+                    && (previous == 0 || previous == 'o' || (previous == 'p' && "([,".indexOf(sb.charAt(sb.length() - 1)) >= 0))
+                    ? sb.length() : -1;
+            if (space) {
+                sb.append(' ');
+            }
+            if (literal) {
+                sb.append('?');
+            } else if (t == Token.WORD) {
+                for (int i = lexer.start(); i < lexer.end(); i++) {
+                    sb.append(Character.toUpperCase(sql.charAt(i)));
+                }
+            } else {
+                sb.append(sql, lexer.start(), lexer.end());
+            }
+            beforePrevious = previous;
+            previous = current;
+            if (c != ';') {
+                keep = sb.length();
+            }
+        }
+        sb.setLength(keep);
+        return sb.toString();
+    }
+
+    // internal helpers
+
+    private static boolean endsWithPlaceholderList(StringBuilder sb) {
+        int n = sb.length();
+        return n >= 2 && sb.charAt(n - 1) == ',' && sb.charAt(n - 2) == '?';
+    }
+
+    private Token set(Token type, int from, int to) {
+        this.token = type;
+        this.start = from;
+        this.end = to;
+        this.pos = to;
+        return type;
+    }
+
+    private Token symbol(int from) {
+        return set(Token.SYMBOL, from, from + 1);
+    }
+
+    private Token quoted(Token type, int from, int bodyStart, char close, boolean backslashEscapes) {
+        int i = bodyStart;
+        while (i < limit) {
+            char c = src.charAt(i);
+            if (backslashEscapes && c == '\\') {
+                i += 2;
+            } else if (c == close) {
+                if (i + 1 < limit && src.charAt(i + 1) == close) {
+                    i += 2;
+                } else if (i + 1 >= limit && partial) {
+                    // could be the first half of a doubled quote
+                    return set(Token.INCOMPLETE, from, limit);
+                } else {
+                    return set(type, from, i + 1);
+                }
+            } else {
+                i++;
+            }
+        }
+        return unterminated(type, from);
+    }
+
+    private Token lineComment(int from) {
+        for (int i = from + 2; i < limit; i++) {
+            if (src.charAt(i) == '\n') {
+                return set(Token.COMMENT, from, i + 1);
+            }
+        }
+        return unterminated(Token.COMMENT, from);
+    }
+
+    private Token blockComment(int from) {
+        int nesting = 1;
+        int i = from + 2;
+        while (i < limit) {
+            char c = src.charAt(i);
+            char d = i + 1 < limit ? src.charAt(i + 1) : 0;
+            if (c == '*' && d == '/') {
+                i += 2;
+                if (--nesting == 0) {
+                    return set(Token.COMMENT, from, i);
+                }
+            } else if (c == '/' && d == '*') {
+                nesting++;
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        return unterminated(Token.COMMENT, from);
+    }
+
+    private Token dollarQuoted(int from) {
+        int i = from + 1;
+        while (i < limit && src.charAt(i) != '$' && isIdentifierPart(src.charAt(i))) {
+            i++;
+        }
+        if (i >= limit) {
+            return partial ? set(Token.INCOMPLETE, from, limit) : symbol(from);
+        }
+        if (src.charAt(i) != '$') {
+            // $1-style parameter or a lone $
+            return symbol(from);
+        }
+        int tagLength = i + 1 - from;
+        for (int j = i + 1; j + tagLength <= limit; j++) {
+            if (src.charAt(j) == '$' && regionEquals(j, from, tagLength)) {
+                return set(Token.STRING, from, j + tagLength);
+            }
+        }
+        return unterminated(Token.STRING, from);
+    }
+
+    private Token number(int from) {
+        int i = from;
+        while (i < limit && (isDigit(src.charAt(i)) || src.charAt(i) == '.')) {
+            i++;
+        }
+        if (i < limit && (src.charAt(i) == 'e' || src.charAt(i) == 'E')) {
+            int j = i + 1;
+            if (j < limit && (src.charAt(j) == '+' || src.charAt(j) == '-')) {
+                j++;
+            }
+            if (j < limit && isDigit(src.charAt(j))) {
+                i = j;
+                while (i < limit && isDigit(src.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        if (i >= limit && partial) {
+            return set(Token.INCOMPLETE, from, limit);
+        }
+        return set(Token.NUMBER, from, i);
+    }
+
+    private Token unterminated(Token type, int from) {
+        return set(partial ? Token.INCOMPLETE : type, from, limit);
+    }
+
+    private boolean regionEquals(int at, int other, int length) {
+        for (int k = 0; k < length; k++) {
+            if (src.charAt(at + k) != src.charAt(other + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isStatementWord(SqlLexer lexer) {
+        return lexer.isWord("SELECT") || lexer.isWord("VALUES") || isWriteWord(lexer);
+    }
+
+    private static boolean isStateFunction(SqlLexer lexer) {
+        if (lexer.end() - lexer.start() < 6) {
+            return false;
+        }
+        for (String name : STATE_FUNCTIONS) {
+            if (lexer.isWord(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWriteWord(SqlLexer lexer) {
+        return lexer.isWord("INSERT") || lexer.isWord("UPDATE") || lexer.isWord("DELETE") || lexer.isWord("MERGE");
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
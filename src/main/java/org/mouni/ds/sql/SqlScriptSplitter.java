@@ -0,0 +1,216 @@
+package org.mouni.ds.sql;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits a SQL script into statements while reading it, using {@link SqlLexer}.
+ * <p>
+ * Statements end at a semicolon outside string literals, quoted identifiers, comments,
+ * dollar-quoted bodies and parentheses. Inside {@code CREATE FUNCTION}, {@code PROCEDURE},
+ * {@code TRIGGER}, {@code PACKAGE} and {@code EVENT} statements, semicolons within
+ * {@code BEGIN ... END} blocks outside parentheses (routine bodies, PostgreSQL
+ * {@code BEGIN ATOMIC}) do not end the statement either; elsewhere {@code begin} and
+ * {@code end} may be plain column names.
+ * <p>
+ * Returned statements have leading and trailing comments, whitespace and the
+ * terminating semicolon removed; fragments that contain only comments are skipped.
+ * Only the statement currently being read is buffered.
+ */
+public final class SqlScriptSplitter {
+
+    private static final int CHUNK = 8192;
+
+    // statements that may hold BEGIN ... END bodies
+    private static final Set<String> ROUTINE_KINDS = Set.of("FUNCTION", "PROCEDURE", "TRIGGER", "PACKAGE", "EVENT");
+
+    // not IS: PL/SQL routine headers read "PROCEDURE p IS BEGIN"; "x IS NOT begin" is covered by NOT
+    private static final Set<String> OPERAND_BEFORE = Set.of("SELECT", "WHERE", "AND", "OR", "NOT", "BY", "SET",
+            "ON", "WHEN", "DISTINCT", "RETURNING", "IN", "LIKE", "BETWEEN");
+
+    // words that may come between CREATE and the kind of object: CREATE OR REPLACE, CREATE DEFINER = ...
+    private static final Set<String> HEADER_MODIFIERS = Set.of("OR", "REPLACE", "DEFINER", "CONSTRAINT",
+            "EDITIONABLE", "NONEDITIONABLE", "CURRENT_USER");
+
+    private final Reader reader;
+    private final char[] chunk = new char[CHUNK];
+    private final StringBuilder buf = new StringBuilder(CHUNK);
+    private final SqlLexer lexer = new SqlLexer(buf);
+    private boolean eof;
+
+    // position in buf up to which input has been tokenized
+    private int scan;
+    // current statement: first and last non-comment token, -1 while there is none
+    private int contentStart = -1;
+    private int contentEnd = -1;
+    private boolean firstWordSeen;
+    // CREATE statement whose header has not been read past yet
+    private boolean createHeader;
+    private boolean routineStatement;
+    // the last token was an operator or a keyword followed by an operand, where BEGIN is a column name
+    private boolean operandExpected;
+    private int parenDepth;
+    private int blockDepth;
+    private boolean pendingEnd;
+
+    public SqlScriptSplitter(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Splits a script held in memory.
+     */
+    public static List<String> split(String script) {
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new StringReader(script));
+        List<String> statements = new ArrayList<>();
+        try {
+            for (String sql = splitter.next(); sql != null; sql = splitter.next()) {
+                statements.add(sql);
+            }
+        } catch (IOException e) {
+            // StringReader does not throw
+            throw new UncheckedIOException(e);
+        }
+        return statements;
+    }
+
+    /**
+     * Returns the next statement, or null at the end of the script.
+     */
+    public String next() throws IOException {
+        while (true) {
+            lexer.reset(buf, scan, buf.length(), !eof);
+            SqlLexer.Token t;
+            while ((t = lexer.next()) != SqlLexer.Token.END && t != SqlLexer.Token.INCOMPLETE) {
+                scan = lexer.end();
+                if (t == SqlLexer.Token.COMMENT) {
+                    continue;
+                }
+                if (lexer.isSymbol(';') && endsStatement()) {
+                    String statement = take();
+                    if (statement != null) {
+                        return statement;
+                    }
+                    continue;
+                }
+                track(t);
+                if (contentStart < 0) {
+                    contentStart = lexer.start();
+                }
+                contentEnd = lexer.end();
+            }
+            if (!eof) {
+                fill();
+                continue;
+            }
+            // end of input: whatever is left is the last statement
+            return take();
+        }
+    }
+
+    // internal helpers
+
+    private void track(SqlLexer.Token t) {
+        if (t == SqlLexer.Token.SYMBOL) {
+            char c = lexer.symbol();
+            if (c == '(') {
+                parenDepth++;
+            } else if (c == ')' && parenDepth > 0) {
+                parenDepth--;
+            }
+            operandExpected = c != ';' && c != ')';
+            closePendingEnd();
+            return;
+        }
+        if (t != SqlLexer.Token.WORD) {
+            operandExpected = false;
+            closePendingEnd();
+            return;
+        }
+        boolean inExpression = operandExpected;
+        operandExpected = OPERAND_BEFORE.contains(upper());
+        if (!firstWordSeen) {
+            firstWordSeen = true;
+            createHeader = lexer.isWord("CREATE");
+            return;
+        }
+        if (createHeader) {
+            if (ROUTINE_KINDS.contains(upper())) {
+                routineStatement = true;
+                createHeader = false;
+            } else if (!HEADER_MODIFIERS.contains(upper())) {
+                // CREATE TABLE, VIEW, INDEX, ...
+                createHeader = false;
+            }
+            return;
+        }
+        if (!routineStatement || parenDepth > 0) {
+            return;
+        }
+        if (pendingEnd) {
+            pendingEnd = false;
+            // END IF / END LOOP / ... close constructs that were never counted
+            if (!lexer.isWord("IF") && !lexer.isWord("LOOP") && !lexer.isWord("WHILE") && !lexer.isWord("REPEAT")) {
+                blockDepth = Math.max(0, blockDepth - 1);
+            }
+            // END CASE closes the CASE counted below
+            return;
+        }
+        if ((lexer.isWord("BEGIN") && !inExpression) || lexer.isWord("CASE")) {
+            blockDepth++;
+        } else if (lexer.isWord("END")) {
+            pendingEnd = true;
+        }
+    }
+
+    private String upper() {
+        return lexer.text().toUpperCase(Locale.ROOT);
+    }
+
+    private void closePendingEnd() {
+        if (pendingEnd) {
+            pendingEnd = false;
+            blockDepth = Math.max(0, blockDepth - 1);
+        }
+    }
+
+    private boolean endsStatement() {
+        closePendingEnd();
+        return parenDepth == 0 && blockDepth == 0;
+    }
+
+    /**
+     * Ends the current statement at the scan position and returns its text, or null
+     * if it had no content.
+     */
+    private String take() {
+        String statement = contentStart < 0 ? null : buf.substring(contentStart, contentEnd);
+        buf.delete(0, scan);
+        scan = 0;
+        contentStart = -1;
+        contentEnd = -1;
+        firstWordSeen = false;
+        createHeader = false;
+        routineStatement = false;
+        operandExpected = false;
+        parenDepth = 0;
+        blockDepth = 0;
+        pendingEnd = false;
+        return statement;
+    }
+
+    private void fill() throws IOException {
+        int n = reader.read(chunk);
+        if (n < 0) {
+            eof = true;
+        } else {
+            buf.append(chunk, 0, n);
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package org.mouni.ds.sqlrunner.autoconfig;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.mouni.ds.sqlrunner.config.RunnerProperties;
 import org.mouni.ds.sqlrunner.config.ScriptProperties;
+import org.mouni.ds.sqlrunner.repo.AdvisoryLockRepository;
 import org.mouni.ds.sqlrunner.repo.LockRepository;
 import org.mouni.ds.sqlrunner.repo.ScriptHistoryRepository;
+import org.mouni.ds.sqlrunner.repo.ScriptLockBackend;
 import org.mouni.ds.sqlrunner.service.ScriptExecutionService;
 import org.mouni.ds.sqlrunner.web.ScriptController;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
@@ -30,8 +35,13 @@ public class SqlRunnerAutoConfiguration {
             ScriptHistoryRepository historyRepository,
             LockRepository lockRepository,
             RunnerProperties runnerProperties,
-            DataSource dataSource) {
-        return new ScriptExecutionService(scriptProperties, historyRepository, lockRepository, runnerProperties, dataSource);
+            DataSource dataSource,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        ScriptLockBackend lockBackend = runnerProperties.getLockBackend() == RunnerProperties.LockBackend.ADVISORY
+                ? new AdvisoryLockRepository(dataSource)
+                : lockRepository;
+        return new ScriptExecutionService(scriptProperties, historyRepository, lockBackend, runnerProperties, dataSource,
+                meterRegistry.getIfAvailable(() -> Metrics.globalRegistry));
     }
 
     @Bean
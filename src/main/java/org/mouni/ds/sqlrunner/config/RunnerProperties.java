@@ -2,15 +2,51 @@ package org.mouni.ds.sqlrunner.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @ConfigurationProperties(prefix = "runner")
 public class RunnerProperties {
 
+    /**
+     * How the script lock is held across nodes.
+     */
+    public enum LockBackend {
+        /** A lease row in script_lock, renewed while running; works on any database. */
+        TABLE,
+        /** A PostgreSQL session advisory lock, released by the server when the session ends. */
+        ADVISORY
+    }
+
     /**
      * Logical node id, used for distributed lock diagnostics.
      * Default is 'local-node', but in k8s you can map to HOSTNAME.
+     * Locks are held under the node id plus a random token per lease, so nodes sharing
+     * an id still exclude each other, but distinct ids tell the holders apart.
      */
     private String nodeId = "local-node";
 
+    /**
+     * Lock backend; ADVISORY requires PostgreSQL.
+     */
+    private LockBackend lockBackend = LockBackend.TABLE;
+
+    /**
+     * How long a lock lease lasts without renewal. Another node takes over a lease
+     * that was not renewed for this long, so it must be well above the heartbeat.
+     */
+    private Duration lockTtl = Duration.ofSeconds(60);
+
+    /**
+     * How often a held lock is renewed while scripts run.
+     */
+    private Duration lockHeartbeat = Duration.ofSeconds(15);
+
+    /**
+     * How long to wait for a lock held by another node, retrying with growing pauses.
+     * 0 (the default) gives up at once.
+     */
+    private Duration lockWait = Duration.ZERO;
+
     public String getNodeId() {
         return nodeId;
     }
@@ -18,4 +54,36 @@ public class RunnerProperties {
     public void setNodeId(String nodeId) {
         this.nodeId = nodeId;
     }
+
+    public LockBackend getLockBackend() {
+        return lockBackend;
+    }
+
+    public void setLockBackend(LockBackend lockBackend) {
+        this.lockBackend = lockBackend;
+    }
+
+    public Duration getLockTtl() {
+        return lockTtl;
+    }
+
+    public void setLockTtl(Duration lockTtl) {
+        this.lockTtl = lockTtl;
+    }
+
+    public Duration getLockHeartbeat() {
+        return lockHeartbeat;
+    }
+
+    public void setLockHeartbeat(Duration lockHeartbeat) {
+        this.lockHeartbeat = lockHeartbeat;
+    }
+
+    public Duration getLockWait() {
+        return lockWait;
+    }
+
+    public void setLockWait(Duration lockWait) {
+        this.lockWait = lockWait;
+    }
 }
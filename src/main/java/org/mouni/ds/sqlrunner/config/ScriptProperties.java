@@ -17,6 +17,17 @@ public class ScriptProperties {
      */
     private String dir = "./scripts";
 
+    /**
+     * Maximum number of scripts run at the same time, each on its own connection; the
+     * pool needs one more for script_history updates. 1 (the default) runs the scripts
+     * one after another in file order. With more, a script waits only for the earlier
+     * scripts it shares a table with, or a table related by a foreign key, DDL and other
+     * scripts whose effects cannot be told from their text, and the scripts named in its
+     * {@code -- depends-on:} header. Foreign keys of tables created in the same run are
+     * not known when the run is planned; order scripts on them with {@code depends-on}.
+     */
+    private int parallelism = 1;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -32,4 +43,12 @@ public class ScriptProperties {
     public void setDir(String dir) {
         this.dir = dir;
     }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
 }
@@ -11,5 +11,6 @@ public record ScriptRecord(
         String checksum,
         String status,
         Instant executedAt,
-        String errorMessage
+        String errorMessage,
+        int committedStatements // statements committed by a chunked run, see the commit-every directive
 ) {}
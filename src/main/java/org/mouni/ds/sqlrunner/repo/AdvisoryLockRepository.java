@@ -0,0 +1,107 @@
+package org.mouni.ds.sqlrunner.repo;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Locks as PostgreSQL session advisory locks ({@code pg_try_advisory_lock}). A held
+ * lock keeps its own connection open; the server releases the lock as soon as that
+ * session ends, so there is no lease to expire and no row to clean up after a node
+ * dies. Renewing only checks that the session is still alive.
+ * <p>
+ * Locks are keyed by a fixed class id and the lock name's {@link String#hashCode()},
+ * keeping them apart from advisory locks the application takes itself.
+ */
+public class AdvisoryLockRepository implements ScriptLockBackend {
+
+    // "DSRR"
+    private static final int LOCK_CLASS = 0x44535252;
+
+    private static final int VALID_TIMEOUT_SECONDS = 5;
+
+    private final DataSource dataSource;
+    private final Map<String, Connection> sessions = new ConcurrentHashMap<>();
+
+    public AdvisoryLockRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public boolean tryAcquire(String lockName, String lockedBy, Duration ttl) {
+        Connection conn = null;
+        try {
+            conn = dataSource.getConnection();
+            conn.setAutoCommit(true);
+            if (call(conn, "SELECT pg_try_advisory_lock(?, ?)", lockName)) {
+                sessions.put(lockName, conn);
+                return true;
+            }
+            conn.close();
+            return false;
+        } catch (SQLException e) {
+            closeQuietly(conn);
+            throw new DataAccessResourceFailureException("Could not take advisory lock " + lockName, e);
+        }
+    }
+
+    @Override
+    public boolean renew(String lockName, String lockedBy, Duration ttl) {
+        Connection conn = sessions.get(lockName);
+        try {
+            return conn != null && conn.isValid(VALID_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void release(String lockName, String lockedBy) {
+        Connection conn = sessions.remove(lockName);
+        if (conn == null) {
+            return;
+        }
+        try {
+            call(conn, "SELECT pg_advisory_unlock(?, ?)", lockName);
+        } catch (SQLException e) {
+            // a pooled session would keep the lock; end it instead of returning it to the pool
+            try {
+                conn.abort(Runnable::run);
+            } catch (SQLException ignored) {
+                // nothing left to release it with
+            }
+        } finally {
+            closeQuietly(conn);
+        }
+    }
+
+    // internal helpers
+
+    private static boolean call(Connection conn, String sql, String lockName) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, LOCK_CLASS);
+            ps.setInt(2, lockName.hashCode());
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException ignored) {
+            // the pool discards broken connections
+        }
+    }
+}
@@ -4,10 +4,19 @@ import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
 import java.time.Instant;
 
+/**
+ * Locks as rows of script_lock, held as leases: the holder renews {@code locked_at}
+ * while it runs, and a row not renewed within the lease time is taken over by the next
+ * node that asks, so a node that died mid-run does not block the others.
+ * <p>
+ * Lease times are compared with the nodes' clocks, which must agree to well within
+ * the lease time.
+ */
 @Repository
-public class LockRepository {
+public class LockRepository implements ScriptLockBackend {
 
     private final JdbcTemplate jdbcTemplate;
 
@@ -15,21 +24,43 @@ public class LockRepository {
         this.jdbcTemplate = jdbcTemplate;
     }
 
-    public boolean tryAcquireLock(String lockName, String lockedBy) {
+    @Override
+    public boolean tryAcquire(String lockName, String lockedBy, Duration ttl) {
+        Instant now = Instant.now();
         try {
             int updated = jdbcTemplate.update(
                     "INSERT INTO script_lock (lock_name, locked_by, locked_at) VALUES (?, ?, ?)",
                     lockName,
                     lockedBy,
-                    java.sql.Timestamp.from(Instant.now())
+                    java.sql.Timestamp.from(now)
             );
             return updated == 1;
         } catch (DuplicateKeyException ex) {
-            return false;
+            // held; take it over if the holder stopped renewing it
+            int taken = jdbcTemplate.update(
+                    "UPDATE script_lock SET locked_by = ?, locked_at = ? WHERE lock_name = ? AND locked_at < ?",
+                    lockedBy,
+                    java.sql.Timestamp.from(now),
+                    lockName,
+                    java.sql.Timestamp.from(now.minus(ttl))
+            );
+            return taken == 1;
         }
     }
 
-    public void releaseLock(String lockName, String lockedBy) {
+    @Override
+    public boolean renew(String lockName, String lockedBy, Duration ttl) {
+        int updated = jdbcTemplate.update(
+                "UPDATE script_lock SET locked_at = ? WHERE lock_name = ? AND locked_by = ?",
+                java.sql.Timestamp.from(Instant.now()),
+                lockName,
+                lockedBy
+        );
+        return updated == 1;
+    }
+
+    @Override
+    public void release(String lockName, String lockedBy) {
         jdbcTemplate.update(
                 "DELETE FROM script_lock WHERE lock_name = ? AND locked_by = ?",
                 lockName,
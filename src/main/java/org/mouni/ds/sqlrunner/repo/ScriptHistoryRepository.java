@@ -6,21 +6,37 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Access to script_history. The committed_statements column, which lets chunked
+ * scripts resume, is optional:
+ * <pre>
+ *   ALTER TABLE script_history ADD COLUMN committed_statements INT NOT NULL DEFAULT 0;
+ * </pre>
+ * Without it chunked scripts still commit in chunks, but a failed run starts over.
+ */
 @Repository
 public class ScriptHistoryRepository {
 
+    private static final int BATCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
 
+    // whether script_history has committed_statements, looked up once
+    private volatile Boolean progressColumn;
+
     public ScriptHistoryRepository(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
 
-    private static final RowMapper<ScriptRecord> ROW_MAPPER = new RowMapper<>() {
+    private final RowMapper<ScriptRecord> rowMapper = new RowMapper<>() {
         @Override
         public ScriptRecord mapRow(ResultSet rs, int rowNum) throws SQLException {
             return new ScriptRecord(
@@ -34,7 +50,8 @@ public class ScriptHistoryRepository {
                     rs.getTimestamp("executed_at") != null
                             ? rs.getTimestamp("executed_at").toInstant()
                             : null,
-                    rs.getString("error_message")
+                    rs.getString("error_message"),
+                    supportsProgress() ? rs.getInt("committed_statements") : 0
             );
         }
     };
@@ -42,14 +59,14 @@ public class ScriptHistoryRepository {
     public Optional<ScriptRecord> findByScriptName(String scriptName) {
         List<ScriptRecord> list = jdbcTemplate.query(
                 "SELECT * FROM script_history WHERE script_name = ?",
-                ROW_MAPPER,
+                rowMapper,
                 scriptName
         );
         return list.stream().findFirst();
     }
 
     public List<ScriptRecord> findAll() {
-        return jdbcTemplate.query("SELECT * FROM script_history ORDER BY script_name", ROW_MAPPER);
+        return jdbcTemplate.query("SELECT * FROM script_history ORDER BY script_name", rowMapper);
     }
 
     public void insert(String scriptName,
@@ -78,4 +95,83 @@ public class ScriptHistoryRepository {
                 scriptName
         );
     }
+
+    /**
+     * Inserts the records in JDBC batches; ids, execution times and error messages are
+     * left to the defaults.
+     */
+    public void insertAll(List<ScriptRecord> records) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO script_history (script_name, script_type, major_version, minor_version, checksum, status) VALUES (?, ?, ?, ?, ?, ?)",
+                records, BATCH_SIZE, (ps, rec) -> {
+                    ps.setString(1, rec.scriptName());
+                    ps.setString(2, rec.scriptType());
+                    ps.setInt(3, rec.majorVersion());
+                    ps.setInt(4, rec.minorVersion());
+                    ps.setString(5, rec.checksum());
+                    ps.setString(6, rec.status());
+                });
+    }
+
+    /**
+     * {@link #updateStatus} for each record, in JDBC batches.
+     */
+    public void updateStatuses(List<ScriptRecord> records) {
+        jdbcTemplate.batchUpdate(
+                "UPDATE script_history SET checksum = ?, status = ?, executed_at = ?, error_message = ? WHERE script_name = ?",
+                records, BATCH_SIZE, (ps, rec) -> {
+                    ps.setString(1, rec.checksum());
+                    ps.setString(2, rec.status());
+                    ps.setTimestamp(3, rec.executedAt() != null ? java.sql.Timestamp.from(rec.executedAt()) : null);
+                    ps.setString(4, rec.errorMessage());
+                    ps.setString(5, rec.scriptName());
+                });
+    }
+
+    /**
+     * Whether the committed statement count of chunked scripts can be recorded.
+     */
+    public boolean supportsProgress() {
+        Boolean supported = progressColumn;
+        if (supported == null) {
+            supported = jdbcTemplate.query("SELECT * FROM script_history WHERE 1 = 0", rs -> {
+                ResultSetMetaData meta = rs.getMetaData();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    if ("committed_statements".equalsIgnoreCase(meta.getColumnLabel(i))) {
+                        return true;
+                    }
+                }
+                return false;
+            });
+            progressColumn = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * Records how many statements of a chunked script are committed. Runs on the
+     * script's own connection, so the count commits together with the statements.
+     */
+    public void updateProgress(Connection conn,
+                               String scriptName,
+                               String checksum,
+                               int committedStatements) throws SQLException {
+        if (!supportsProgress()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE script_history SET checksum = ?, committed_statements = ? WHERE script_name = ?")) {
+            ps.setString(1, checksum);
+            ps.setInt(2, committedStatements);
+            ps.setString(3, scriptName);
+            ps.executeUpdate();
+        }
+    }
+
+    public void resetProgress(String scriptName) {
+        if (!supportsProgress()) {
+            return;
+        }
+        jdbcTemplate.update("UPDATE script_history SET committed_statements = 0 WHERE script_name = ?", scriptName);
+    }
 }
@@ -0,0 +1,28 @@
+package org.mouni.ds.sqlrunner.repo;
+
+import java.time.Duration;
+
+/**
+ * A named lock held by at most one node at a time, guarding script runs across the
+ * nodes sharing a database. Implementations: {@link LockRepository} (a lease row in
+ * script_lock) and {@link AdvisoryLockRepository} (a PostgreSQL advisory lock).
+ */
+public interface ScriptLockBackend {
+
+    /**
+     * Takes the lock if it is free, or if its holder let its lease expire.
+     *
+     * @param ttl how long the lease lasts without a {@link #renew}
+     * @return whether {@code lockedBy} holds the lock now
+     */
+    boolean tryAcquire(String lockName, String lockedBy, Duration ttl);
+
+    /**
+     * Extends the lease of a held lock.
+     *
+     * @return false if the lock is no longer held by {@code lockedBy}
+     */
+    boolean renew(String lockName, String lockedBy, Duration ttl);
+
+    void release(String lockName, String lockedBy);
+}
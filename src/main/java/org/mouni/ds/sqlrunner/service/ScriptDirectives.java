@@ -0,0 +1,116 @@
+package org.mouni.ds.sqlrunner.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-script settings from {@code -- name: value} comment lines at the top of a script,
+ * before its first statement:
+ * <pre>
+ *   -- depends-on: dml_V1.2_customers.sql, dml_V1.3_orders
+ *   -- batch-size: 500
+ *   -- commit-every: 10000
+ * </pre>
+ * {@code depends-on} names scripts that must have run first, see {@link ScriptPlan}.
+ * {@code batch-size} sends consecutive INSERT/UPDATE/DELETE/MERGE statements to the
+ * database in JDBC batches of that size. {@code commit-every} commits after every that
+ * many statements instead of once at the end, and records the committed count in
+ * script_history so that a failed run resumes after the last commit.
+ *
+ * @param dependsOn   script names, without {@code .sql}
+ * @param batchSize   statements per JDBC batch, 1 for none
+ * @param commitEvery statements per transaction, 0 for the whole script
+ */
+record ScriptDirectives(List<String> dependsOn, int batchSize, int commitEvery) {
+
+    static final ScriptDirectives NONE = new ScriptDirectives(List.of(), 1, 0);
+
+    private static final Pattern DIRECTIVE = Pattern.compile("^--\\s*([a-z-]+)\\s*:(.*)$", Pattern.CASE_INSENSITIVE);
+
+    // the header is read through mark/reset; a header longer than this is cut off
+    private static final int MAX_HEADER_CHARS = 64 * 1024;
+
+    /**
+     * Parses the header of a script and rewinds the reader to where it started.
+     */
+    static ScriptDirectives read(BufferedReader reader) throws IOException {
+        reader.mark(MAX_HEADER_CHARS);
+        List<String> lines = new ArrayList<>();
+        int chars = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            chars += line.length() + 1;
+            if (chars >= MAX_HEADER_CHARS) {
+                break;
+            }
+            String trimmed = line.strip();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("--")) {
+                break;
+            }
+            lines.add(line);
+        }
+        reader.reset();
+        return parse(lines);
+    }
+
+    boolean batched() {
+        return batchSize > 1;
+    }
+
+    boolean chunked() {
+        return commitEvery > 0;
+    }
+
+    // internal helpers
+
+    private static ScriptDirectives parse(List<String> lines) {
+        List<String> dependsOn = new ArrayList<>();
+        int batchSize = 1;
+        int commitEvery = 0;
+        for (String line : lines) {
+            String trimmed = line.strip();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!trimmed.startsWith("--")) {
+                break;
+            }
+            Matcher m = DIRECTIVE.matcher(trimmed);
+            if (!m.matches()) {
+                continue;
+            }
+            String value = m.group(2).strip();
+            switch (m.group(1).toLowerCase(Locale.ROOT)) {
+                case "depends-on" -> {
+                    for (String name : value.split(",")) {
+                        if (!name.isBlank()) {
+                            dependsOn.add(baseName(name.strip()));
+                        }
+                    }
+                }
+                case "batch-size" -> batchSize = Math.max(1, number(line, value));
+                case "commit-every" -> commitEvery = Math.max(0, number(line, value));
+                default -> {
+                    // an ordinary comment that happens to contain a colon
+                }
+            }
+        }
+        return new ScriptDirectives(List.copyOf(dependsOn), batchSize, commitEvery);
+    }
+
+    static String baseName(String fileName) {
+        return fileName.endsWith(".sql") ? fileName.substring(0, fileName.length() - 4) : fileName;
+    }
+
+    private static int number(String line, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid script directive, expected a number: " + line.strip());
+        }
+    }
+}
@@ -1,29 +1,52 @@
 package org.mouni.ds.sqlrunner.service;
 
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.mouni.ds.sql.SqlLexer;
+import org.mouni.ds.sql.SqlScriptSplitter;
 import org.mouni.ds.sqlrunner.config.RunnerProperties;
 import org.mouni.ds.sqlrunner.config.ScriptProperties;
 import org.mouni.ds.sqlrunner.model.ScriptMeta;
 import org.mouni.ds.sqlrunner.model.ScriptRecord;
-import org.mouni.ds.sqlrunner.repo.LockRepository;
 import org.mouni.ds.sqlrunner.repo.ScriptHistoryRepository;
+import org.mouni.ds.sqlrunner.repo.ScriptLockBackend;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import javax.sql.DataSource;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -40,37 +63,58 @@ public class ScriptExecutionService {
 
     private static final String GLOBAL_LOCK_NAME = "GLOBAL_SCRIPT_RUN";
 
+    // mapped per step when checksumming; a single mapping cannot exceed 2 GB
+    private static final long CHECKSUM_WINDOW = 64L * 1024 * 1024;
+
+    private static final Pattern RETURNING = Pattern.compile("\\bRETURNING\\b", Pattern.CASE_INSENSITIVE);
+
     private final ScriptProperties scriptProperties;
     private final ScriptHistoryRepository historyRepository;
-    private final LockRepository lockRepository;
+    private final ScriptLockBackend lockBackend;
     private final RunnerProperties runnerProperties;
     private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    private final ScriptFingerprints fingerprints = new ScriptFingerprints(ScriptExecutionService::fileChecksum);
 
     public ScriptExecutionService(ScriptProperties scriptProperties,
                                   ScriptHistoryRepository historyRepository,
-                                  LockRepository lockRepository,
+                                  ScriptLockBackend lockBackend,
                                   RunnerProperties runnerProperties,
-                                  DataSource dataSource) {
+                                  DataSource dataSource,
+                                  MeterRegistry meterRegistry) {
         this.scriptProperties = scriptProperties;
         this.historyRepository = historyRepository;
-        this.lockRepository = lockRepository;
+        this.lockBackend = lockBackend;
         this.runnerProperties = runnerProperties;
         this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
     }
 
     public void runAllScripts() throws Exception {
         String nodeId = runnerProperties.getNodeId();
 
-        boolean acquired = lockRepository.tryAcquireLock(GLOBAL_LOCK_NAME, nodeId);
-        if (!acquired) {
+        ScriptLease lease = ScriptLease.acquire(lockBackend, GLOBAL_LOCK_NAME, runnerProperties);
+        if (lease == null) {
             log.info("[LOCK] Another node holds the script lock. nodeId={} skipping run.", nodeId);
             return;
         }
 
-        log.info("[LOCK] Lock acquired by nodeId={} for running all scripts.", nodeId);
+        log.info("[LOCK] Lock acquired by {} for running all scripts.", lease.owner());
 
         try {
+            long scanStart = System.nanoTime();
             List<Path> scripts = listSqlFiles(scriptProperties.getDir());
+            int parallelism = Math.max(1, scriptProperties.getParallelism());
+            long hashedBefore = fingerprints.hashed();
+
+            // one query for the whole history instead of one per script
+            Map<String, ScriptRecord> history = new HashMap<>();
+            for (ScriptRecord rec : historyRepository.findAll()) {
+                history.put(rec.scriptName(), rec);
+            }
+            List<ScriptRecord> inserts = new ArrayList<>();
+            List<ScriptRecord> statusUpdates = new ArrayList<>();
+            List<ScriptPlan.ScriptTask> tasks = new ArrayList<>();
 
             for (Path scriptPath : scripts) {
                 String fileName = scriptPath.getFileName().toString();
@@ -80,22 +124,50 @@ public class ScriptExecutionService {
                     continue;
                 }
 
-                String content = Files.readString(scriptPath, StandardCharsets.UTF_8);
-                String checksum = computeChecksum(content);
+                String checksum = fingerprints.checksum(scriptPath);
+                ScriptRecord rec = history.get(fileName);
 
-                Optional<ScriptRecord> maybeRec = historyRepository.findByScriptName(fileName);
-
-                if (maybeRec.isEmpty()) {
+                boolean run;
+                if (rec == null) {
                     log.info("[NEW] type={} script={}", meta.type(), fileName);
-                    historyRepository.insert(fileName, meta.type(), meta.majorVersion(),
-                            meta.minorVersion(), checksum, "PENDING");
-                    executeAndUpdate(scriptPath, fileName, meta.type(), checksum);
+                    inserts.add(new ScriptRecord(null, fileName, meta.type(), meta.majorVersion(),
+                            meta.minorVersion(), checksum, "PENDING", null, null, 0));
+                    run = true;
                 } else {
-                    handleExistingScript(scriptPath, checksum, meta, maybeRec.get());
+                    run = handleExistingScript(checksum, meta, rec, statusUpdates);
+                }
+
+                if (!run) {
+                    continue;
                 }
+                int resumeFrom = rec == null ? 0 : resumePoint(rec, checksum);
+                // the footprint is only needed to plan a parallel run
+                tasks.add(new ScriptPlan.ScriptTask(scriptPath, meta, checksum, resumeFrom,
+                        parallelism == 1 ? null : ScriptPlan.footprint(meta, scriptPath)));
+            }
+            fingerprints.retain(scripts);
+
+            if (!inserts.isEmpty()) {
+                historyRepository.insertAll(inserts);
+            }
+            if (!statusUpdates.isEmpty()) {
+                historyRepository.updateStatuses(statusUpdates);
+            }
+            log.info("[SCAN] {} script(s), {} hashed, {} to run, in {} ms", scripts.size(),
+                    fingerprints.hashed() - hashedBefore, tasks.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scanStart));
+
+            if (parallelism == 1) {
+                for (ScriptPlan.ScriptTask task : tasks) {
+                    lease.checkHeld();
+                    executeAndUpdate(task.path(), task.meta().fileName(), task.meta().type(), task.checksum(),
+                            task.resumeFrom());
+                }
+            } else if (!tasks.isEmpty()) {
+                runInParallel(new ScriptPlan(tasks, relatedTables(tasks)), parallelism, lease);
             }
         } finally {
-            lockRepository.releaseLock(GLOBAL_LOCK_NAME, nodeId);
+            lease.close();
             log.info("[LOCK] Lock released by nodeId={}", nodeId);
         }
     }
@@ -103,13 +175,13 @@ public class ScriptExecutionService {
     public void rerunScript(String scriptName) throws Exception {
         String nodeId = runnerProperties.getNodeId();
 
-        boolean acquired = lockRepository.tryAcquireLock(GLOBAL_LOCK_NAME, nodeId);
-        if (!acquired) {
+        ScriptLease lease = ScriptLease.acquire(lockBackend, GLOBAL_LOCK_NAME, runnerProperties);
+        if (lease == null) {
             log.info("[LOCK] Another node holds the script lock. nodeId={} cannot rerun {}", nodeId, scriptName);
             throw new IllegalStateException("Another node is running scripts. Try again later.");
         }
 
-        log.info("[LOCK] Lock acquired by nodeId={} for rerun of {}.", nodeId, scriptName);
+        log.info("[LOCK] Lock acquired by {} for rerun of {}.", lease.owner(), scriptName);
 
         try {
             Path path = Paths.get(scriptProperties.getDir()).resolve(scriptName);
@@ -122,21 +194,22 @@ public class ScriptExecutionService {
                 throw new IllegalArgumentException("Invalid script name pattern: " + scriptName);
             }
 
-            String content = Files.readString(path, StandardCharsets.UTF_8);
-            String checksum = computeChecksum(content);
+            String checksum = computeChecksum(path);
 
             Optional<ScriptRecord> maybeRec = historyRepository.findByScriptName(scriptName);
+            int resumeFrom = 0;
             if (maybeRec.isEmpty()) {
                 log.info("[RERUN] No record found, inserting as new: {}", scriptName);
                 historyRepository.insert(scriptName, meta.type(), meta.majorVersion(),
                         meta.minorVersion(), checksum, "PENDING");
             } else {
                 log.info("[RERUN] Existing status={} for {}", maybeRec.get().status(), scriptName);
+                resumeFrom = resumePoint(maybeRec.get(), checksum);
             }
 
-            executeAndUpdate(path, scriptName, meta.type(), checksum);
+            executeAndUpdate(path, scriptName, meta.type(), checksum, resumeFrom);
         } finally {
-            lockRepository.releaseLock(GLOBAL_LOCK_NAME, nodeId);
+            lease.close();
             log.info("[LOCK] Lock released by nodeId={} after rerun of {}", nodeId, scriptName);
         }
     }
@@ -147,10 +220,16 @@ public class ScriptExecutionService {
 
     // internal helpers
 
-    private void handleExistingScript(Path scriptPath,
-                                      String checksum,
-                                      ScriptMeta meta,
-                                      ScriptRecord rec) throws IOException, SQLException {
+    /**
+     * Decides what to do with a script that has a history record, adding it to
+     * {@code statusUpdates} when it has to be marked for a manual rerun.
+     *
+     * @return whether the script should run now
+     */
+    private boolean handleExistingScript(String checksum,
+                                         ScriptMeta meta,
+                                         ScriptRecord rec,
+                                         List<ScriptRecord> statusUpdates) {
 
         String name = rec.scriptName();
         String currentStatus = rec.status();
@@ -158,37 +237,142 @@ public class ScriptExecutionService {
         if ("DDL".equals(meta.type())) {
             if ("SUCCESS".equals(currentStatus)) {
                 if (checksum.equals(rec.checksum())) {
-                    log.info("[SKIP] DDL already applied and unchanged: {}", name);
+                    log.debug("[SKIP] DDL already applied and unchanged: {}", name);
                 } else {
                     log.info("[MARK] DDL changed, marking NEEDS_RERUN (manual only): {}", name);
-                    historyRepository.updateStatus(name, checksum, "NEEDS_RERUN", null, null);
+                    statusUpdates.add(new ScriptRecord(rec.id(), name, rec.scriptType(), rec.majorVersion(),
+                            rec.minorVersion(), checksum, "NEEDS_RERUN", null, null, rec.committedStatements()));
                 }
             } else if ("FAILED".equals(currentStatus) || "NEEDS_RERUN".equals(currentStatus)) {
                 log.info("[HOLD] DDL {} is {}, requires manual rerun", name, currentStatus);
             } else if ("PENDING".equals(currentStatus)) {
                 log.info("[PENDING] Running DDL: {}", name);
-                executeAndUpdate(scriptPath, name, meta.type(), checksum);
+                return true;
             }
         } else {
             if ("SUCCESS".equals(currentStatus)) {
                 if (checksum.equals(rec.checksum())) {
-                    log.info("[SKIP] DML already applied and unchanged: {}", name);
+                    log.debug("[SKIP] DML already applied and unchanged: {}", name);
                 } else {
                     log.info("[RUN] DML changed, re-running automatically: {}", name);
-                    executeAndUpdate(scriptPath, name, meta.type(), checksum);
+                    return true;
                 }
             } else if ("FAILED".equals(currentStatus) || "NEEDS_RERUN".equals(currentStatus)) {
                 if (!checksum.equals(rec.checksum())) {
                     log.info("[RETRY] DML changed after {}, re-running: {}", currentStatus, name);
-                    executeAndUpdate(scriptPath, name, meta.type(), checksum);
+                    return true;
                 } else {
                     log.info("[HOLD] DML {} is {} with same checksum, requires manual rerun", name, currentStatus);
                 }
             } else if ("PENDING".equals(currentStatus)) {
                 log.info("[PENDING] Running DML: {}", name);
-                executeAndUpdate(scriptPath, name, meta.type(), checksum);
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Runs the planned scripts, each on its own connection, starting a script once all
+     * scripts it depends on have succeeded and at most {@code parallelism} at a time.
+     * After a failure no further script is started; the running ones finish, and the
+     * first failure is rethrown. Scripts not started keep their PENDING status and run
+     * with the next run. The same happens when the lease on the script lock is lost.
+     */
+    private void runInParallel(ScriptPlan plan, int parallelism, ScriptLease lease) throws Exception {
+        int[] waiting = plan.dependencyCounts();
+        // among the runnable scripts, the earliest in run order goes first
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < plan.size(); i++) {
+            if (waiting[i] == 0) {
+                ready.add(i);
+            }
+        }
+        log.info("[PLAN] {} script(s), {} runnable at once initially, parallelism={}",
+                plan.size(), ready.size(), parallelism);
+
+        Exception failure = null;
+        int running = 0;
+        int finished = 0;
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("ds-runner-script-", 0).factory())) {
+            CompletionService<Integer> completions = new ExecutorCompletionService<>(executor);
+            while (true) {
+                while (failure == null && running < parallelism && !ready.isEmpty()) {
+                    try {
+                        lease.checkHeld();
+                    } catch (IllegalStateException e) {
+                        failure = e;
+                        break;
+                    }
+                    int index = ready.poll();
+                    ScriptPlan.ScriptTask task = plan.task(index);
+                    completions.submit(() -> {
+                        executeAndUpdate(task.path(), task.meta().fileName(), task.meta().type(), task.checksum(),
+                                task.resumeFrom());
+                        return index;
+                    });
+                    running++;
+                }
+                if (running == 0) {
+                    break;
+                }
+                Future<Integer> done = completions.take();
+                running--;
+                try {
+                    int index = done.get();
+                    finished++;
+                    for (int dependent : plan.dependents(index)) {
+                        if (--waiting[dependent] == 0) {
+                            ready.add(dependent);
+                        }
+                    }
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ex ? ex : e;
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+        }
+        if (failure != null) {
+            log.error("[STOP] {} of {} script(s) succeeded, the rest were not started after a failure",
+                    finished, plan.size());
+            throw failure;
+        }
+    }
+
+    /**
+     * Foreign key relations among the tables the scripts touch, so that scripts seeding
+     * or deleting related rows are not run at the same time.
+     */
+    private Map<String, Set<String>> relatedTables(List<ScriptPlan.ScriptTask> tasks) throws SQLException {
+        Set<String> tables = new HashSet<>();
+        for (ScriptPlan.ScriptTask task : tasks) {
+            tables.addAll(task.footprint().tables());
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            return ScriptPlan.relatedTables(conn.getMetaData(), tables);
+        }
+    }
+
+    /**
+     * Number of statements to skip because an earlier chunked run of the same script
+     * content committed them. Counts left from other content or from a completed run
+     * are cleared, so that they cannot be picked up later.
+     */
+    int resumePoint(ScriptRecord rec, String checksum) {
+        if (rec.committedStatements() <= 0) {
+            return 0;
+        }
+        if (checksum.equals(rec.checksum())
+                && !"SUCCESS".equals(rec.status()) && !"NEEDS_RERUN".equals(rec.status())) {
+            return rec.committedStatements();
+        }
+        historyRepository.resetProgress(rec.scriptName());
+        return 0;
     }
 
     private List<Path> listSqlFiles(String dir) throws IOException {
@@ -218,54 +402,166 @@ public class ScriptExecutionService {
         return new ScriptMeta(type, major, minor, logicalName, fileName);
     }
 
-    private String computeChecksum(String content) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
+    String computeChecksum(String content) {
+        MessageDigest digest = sha256();
+        return HexFormat.of().formatHex(digest.digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checksum of a script file, read through memory-mapped windows so that neither the
+     * file nor a decoded copy of it is held on the heap. Equal to
+     * {@link #computeChecksum(String)} of the file's UTF-8 content.
+     */
+    String computeChecksum(Path script) throws IOException {
+        return fileChecksum(script);
+    }
+
+    private static String fileChecksum(Path script) throws IOException {
+        MessageDigest digest = sha256();
+        try (FileChannel channel = FileChannel.open(script, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHECKSUM_WINDOW) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(CHECKSUM_WINDOW, size - position)));
             }
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Could not compute checksum", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Could not compute checksum", e);
         }
     }
 
     private void executeAndUpdate(Path scriptPath,
                                   String scriptName,
                                   String scriptType,
-                                  String checksum) throws IOException, SQLException {
-
-        String sqlContent = Files.readString(scriptPath, StandardCharsets.UTF_8);
+                                  String checksum,
+                                  int resumeFrom) throws IOException, SQLException {
 
-        try (Connection conn = dataSource.getConnection()) {
+        long start = System.nanoTime();
+        String outcome = "failure";
+        try (Connection conn = dataSource.getConnection();
+             BufferedReader reader = Files.newBufferedReader(scriptPath, StandardCharsets.UTF_8)) {
             conn.setAutoCommit(false);
             try {
-                executeSqlScript(conn, sqlContent);
+                ScriptDirectives directives = ScriptDirectives.read(reader);
+                if (resumeFrom > 0) {
+                    log.info("[RESUME] {} after {} committed statement(s)", scriptName, resumeFrom);
+                }
+                int statements = executeSqlScript(conn, reader, directives, resumeFrom, committed -> {
+                    historyRepository.updateProgress(conn, scriptName, checksum, committed);
+                    conn.commit();
+                    log.info("[CHUNK] {} committed through statement {}", scriptName, committed);
+                });
+                if (directives.chunked()) {
+                    // complete: nothing to resume
+                    historyRepository.updateProgress(conn, scriptName, checksum, 0);
+                }
                 conn.commit();
                 historyRepository.updateStatus(scriptName, checksum, "SUCCESS", Instant.now(), null);
-                log.info("[OK] {} ({})", scriptName, scriptType);
-            } catch (SQLException e) {
+                outcome = "success";
+                DistributionSummary.builder("ds.runner.script.statements")
+                        .description("Statements executed per script")
+                        .tag("type", scriptType)
+                        .register(meterRegistry)
+                        .record(statements);
+                log.info("[OK] {} ({}), {} statement(s) in {} ms", scriptName, scriptType, statements,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            } catch (SQLException | IOException | IllegalArgumentException e) {
+                // only the current chunk is rolled back, committed chunks stay recorded
                 conn.rollback();
                 historyRepository.updateStatus(scriptName, checksum, "FAILED", Instant.now(), e.getMessage());
-                log.error("[FAIL] {} ({}): {}", scriptName, scriptType, e.getMessage());
+                log.error("[FAIL] {} ({}) after {} ms: {}", scriptName, scriptType,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), e.getMessage());
                 throw e;
             }
+        } finally {
+            // no per-script tag: script directories grow without bound, each script's time is logged above
+            Timer.builder("ds.runner.script")
+                    .description("Script execution time, including commit")
+                    .tag("type", scriptType)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
     }
 
-    private void executeSqlScript(Connection conn, String sqlContent) throws SQLException {
-        String[] statements = sqlContent
-                .replace("\r", "")
-                .split(";");
+    /**
+     * Commits a chunk of a script and records how far it got.
+     */
+    @FunctionalInterface
+    interface ChunkCommit {
+        void committed(int statements) throws SQLException;
+    }
 
+    int executeSqlScript(Connection conn, Reader script) throws SQLException, IOException {
+        return executeSqlScript(conn, script, ScriptDirectives.NONE, 0, null);
+    }
+
+    /**
+     * Executes the statements of a script as the directives say: consecutive
+     * INSERT/UPDATE/DELETE/MERGE statements in JDBC batches, and a commit through
+     * {@code commit} after every {@code commitEvery} statements.
+     * <p>
+     * The first {@code skip} statements were committed by an earlier run and are only
+     * read; SET and RESET statements among them run again, since session settings do
+     * not survive the earlier run's connection.
+     *
+     * @return number of statements in the script, skipped ones included
+     */
+    int executeSqlScript(Connection conn, Reader script, ScriptDirectives directives, int skip, ChunkCommit commit)
+            throws SQLException, IOException {
+        // statements are split as they are read; literals, comments and $$ bodies keep their semicolons
+        SqlScriptSplitter splitter = new SqlScriptSplitter(script);
+
+        int executed = 0;
+        int batched = 0;
         try (Statement st = conn.createStatement()) {
-            for (String raw : statements) {
-                String sql = raw.trim();
-                if (sql.isEmpty()) continue;
-                st.execute(sql);
+            for (String sql = splitter.next(); sql != null; sql = splitter.next()) {
+                String keyword = SqlLexer.analyze(sql).keyword();
+                if (executed < skip) {
+                    if ("SET".equals(keyword) || "RESET".equals(keyword)) {
+                        st.execute(sql);
+                    }
+                    executed++;
+                    continue;
+                }
+                if (directives.batched() && isBatchable(keyword, sql)) {
+                    st.addBatch(sql);
+                    if (++batched == directives.batchSize()) {
+                        st.executeBatch();
+                        batched = 0;
+                    }
+                } else {
+                    if (batched > 0) {
+                        st.executeBatch();
+                        batched = 0;
+                    }
+                    st.execute(sql);
+                }
+                executed++;
+                if (commit != null && directives.chunked() && executed % directives.commitEvery() == 0) {
+                    if (batched > 0) {
+                        st.executeBatch();
+                        batched = 0;
+                    }
+                    commit.committed(executed);
+                }
+            }
+            if (batched > 0) {
+                st.executeBatch();
             }
         }
+        return executed;
+    }
+
+    private static boolean isBatchable(String keyword, String sql) {
+        // a batch cannot return rows
+        return ("INSERT".equals(keyword) || "UPDATE".equals(keyword) || "DELETE".equals(keyword)
+                || "MERGE".equals(keyword)) && !RETURNING.matcher(sql).find();
     }
 }
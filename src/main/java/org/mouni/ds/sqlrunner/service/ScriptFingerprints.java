@@ -0,0 +1,89 @@
+package org.mouni.ds.sqlrunner.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checksums of script files, kept per path with the size and modification time of the
+ * file they were computed for, so that a scan hashes only the files that changed since
+ * the previous scan of this process.
+ * <p>
+ * A file hashed within {@link #RACY_WINDOW} of its last modification may be changed
+ * again without a visible change of its modification time (coarse file system
+ * timestamps); its checksum is not kept, and it is hashed again on the next scan.
+ */
+final class ScriptFingerprints {
+
+    private static final Duration RACY_WINDOW = Duration.ofSeconds(2);
+
+    /**
+     * Computes the checksum of a file.
+     */
+    @FunctionalInterface
+    interface Hasher {
+        String checksum(Path file) throws IOException;
+    }
+
+    private record Entry(long size, long modifiedMillis, String checksum) {}
+
+    private final ConcurrentMap<Path, Entry> entries = new ConcurrentHashMap<>();
+    private final Hasher hasher;
+    private final AtomicLong hashed = new AtomicLong();
+
+    ScriptFingerprints(Hasher hasher) {
+        this.hasher = hasher;
+    }
+
+    /**
+     * The checksum of the file, from the index if its size and modification time are
+     * unchanged.
+     */
+    String checksum(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        BasicFileAttributes attrs = Files.readAttributes(key, BasicFileAttributes.class);
+        long size = attrs.size();
+        long modified = attrs.lastModifiedTime().toMillis();
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.size() == size && entry.modifiedMillis() == modified) {
+            return entry.checksum();
+        }
+        Instant hashedAt = Instant.now();
+        String checksum = hasher.checksum(key);
+        hashed.incrementAndGet();
+        if (modified < hashedAt.minus(RACY_WINDOW).toEpochMilli()) {
+            entries.put(key, new Entry(size, modified, checksum));
+        } else {
+            entries.remove(key);
+        }
+        return checksum;
+    }
+
+    /**
+     * Number of files read for their checksum so far.
+     */
+    long hashed() {
+        return hashed.get();
+    }
+
+    /**
+     * Drops the entries of files that are no longer among the given ones.
+     */
+    void retain(Collection<Path> files) {
+        Set<Path> keys = new HashSet<>();
+        for (Path file : files) {
+            keys.add(file.toAbsolutePath().normalize());
+        }
+        entries.keySet().retainAll(keys);
+    }
+}
@@ -0,0 +1,141 @@
+package org.mouni.ds.sqlrunner.service;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.mouni.ds.sqlrunner.config.RunnerProperties;
+import org.mouni.ds.sqlrunner.repo.ScriptLockBackend;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A held script lock, renewed by a background heartbeat until it is closed.
+ * <p>
+ * The lease counts as lost when a renewal finds the lock taken over, or when renewals
+ * kept failing for the lease time, after which another node may take it over. Scripts
+ * check {@link #checkHeld()} before each script they start; a script already running
+ * is not interrupted.
+ * <p>
+ * Each lease holds the lock under a token of its own, the node id followed by a random
+ * UUID, so a renewal or release can only ever touch the lease it belongs to: not one
+ * taken over by another node configured with the same node id, nor a later lease of
+ * the same node.
+ */
+final class ScriptLease implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(ScriptLease.class);
+
+    private static final long FIRST_BACKOFF_MILLIS = 200;
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+
+    private final ScriptLockBackend backend;
+    private final String lockName;
+    private final String owner;
+    private final Duration ttl;
+    private final Thread heartbeat;
+    private volatile long renewedAt = System.nanoTime();
+    private volatile boolean lost;
+    private volatile boolean closed;
+
+    private ScriptLease(ScriptLockBackend backend, String lockName, String owner, Duration ttl, Duration interval) {
+        this.backend = backend;
+        this.lockName = lockName;
+        this.owner = owner;
+        this.ttl = ttl;
+        this.heartbeat = Thread.ofVirtual().name("ds-runner-lock-heartbeat").start(() -> beat(interval));
+    }
+
+    /**
+     * Takes the lock, waiting for up to {@code runner.lock-wait} while another node
+     * holds it. Retries back off exponentially with jitter, so that nodes that lost the
+     * same race do not retry in step.
+     *
+     * @return the lease, or null if the lock was still held by another node
+     */
+    static ScriptLease acquire(ScriptLockBackend backend, String lockName, RunnerProperties properties)
+            throws InterruptedException {
+        String owner = properties.getNodeId() + "/" + UUID.randomUUID();
+        Duration ttl = properties.getLockTtl();
+        long deadline = System.nanoTime() + properties.getLockWait().toNanos();
+        long backoff = FIRST_BACKOFF_MILLIS;
+        while (!backend.tryAcquire(lockName, owner, ttl)) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return null;
+            }
+            long pause = Math.min(remaining, ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+            log.info("[LOCK] {} is held by another node, retrying in {} ms", lockName, pause);
+            Thread.sleep(pause);
+            backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+        }
+        // renew well within the lease, whatever the configured heartbeat
+        Duration interval = properties.getLockHeartbeat();
+        if (interval.isZero() || interval.isNegative() || interval.compareTo(ttl.dividedBy(2)) > 0) {
+            interval = ttl.dividedBy(3);
+        }
+        return new ScriptLease(backend, lockName, owner, ttl, interval);
+    }
+
+    /**
+     * The token the lock is held under.
+     */
+    String owner() {
+        return owner;
+    }
+
+    /**
+     * @throws IllegalStateException if the lease was lost
+     */
+    void checkHeld() {
+        if (lost || System.nanoTime() - renewedAt > ttl.toNanos()) {
+            throw new IllegalStateException("Lost the script lock " + lockName
+                    + " to another node, not starting further scripts");
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        heartbeat.interrupt();
+        try {
+            // a renewal must not race the release
+            heartbeat.join(ttl.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        backend.release(lockName, owner);
+    }
+
+    // internal helpers
+
+    private void beat(Duration interval) {
+        while (!closed) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (closed) {
+                return;
+            }
+            try {
+                if (backend.renew(lockName, owner, ttl)) {
+                    renewedAt = System.nanoTime();
+                    continue;
+                }
+                log.error("[LOCK] {} was taken over by another node", lockName);
+                lost = true;
+                return;
+            } catch (RuntimeException e) {
+                log.warn("[LOCK] Could not renew {}: {}", lockName, e.getMessage());
+            }
+            if (System.nanoTime() - renewedAt > ttl.toNanos()) {
+                log.error("[LOCK] Lease on {} expired after failed renewals", lockName);
+                lost = true;
+                return;
+            }
+        }
+    }
+}
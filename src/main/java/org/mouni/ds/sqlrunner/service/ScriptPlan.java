@@ -0,0 +1,347 @@
+package org.mouni.ds.sqlrunner.service;
+
+import org.mouni.ds.sql.SqlLexer;
+import org.mouni.ds.sql.SqlScriptSplitter;
+import org.mouni.ds.sqlrunner.model.ScriptMeta;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dependency graph of the scripts of one run, for running independent scripts at the
+ * same time. A script depends on every earlier script (in run order) that
+ * <ul>
+ *   <li>references one of the same tables, or a table related to one of them by a
+ *       foreign key (see {@link #relatedTables}),</li>
+ *   <li>is a barrier, or is followed by one: DDL scripts, scripts with
+ *       {@code TRUNCATE ... CASCADE}, and scripts with a statement whose effects cannot
+ *       be told from its text (DDL, {@code DO}, {@code CALL}, {@code COPY},
+ *       {@code SELECT} without a table, ...),</li>
+ *   <li>or is named in its {@code -- depends-on:} header, see {@link ScriptDirectives}.</li>
+ * </ul>
+ * Tables are compared by their unqualified, case-folded name, so a conflict is never
+ * missed for a schema prefix or quoting. Side effects hidden in functions or triggers
+ * are not visible, and neither are foreign keys of tables created by DDL in the same
+ * run; scripts relying on them declare the dependency in the header.
+ */
+final class ScriptPlan {
+
+    // statements whose effect is limited to the tables they name, or to the session
+    private static final Set<String> TRANSPARENT = Set.of(
+            "SELECT", "WITH", "INSERT", "UPDATE", "DELETE", "MERGE", "TRUNCATE", "VALUES",
+            "SET", "RESET", "SHOW", "BEGIN", "START", "COMMIT", "END");
+
+    private static final Set<String> TABLE_KEYWORDS = Set.of("FROM", "JOIN", "INTO", "UPDATE", "TABLE", "USING",
+            "TRUNCATE");
+
+    private static final Set<String> SKIPPED_BEFORE_NAME = Set.of("ONLY", "LATERAL", "IF", "NOT", "EXISTS", "TABLE");
+
+    private static final Set<String> CLAUSE_KEYWORDS = Set.of("WHERE", "GROUP", "HAVING", "ORDER", "LIMIT", "OFFSET",
+            "FETCH", "UNION", "EXCEPT", "INTERSECT", "ON", "SET", "VALUES", "RETURNING", "WINDOW", "SELECT", "FOR",
+            "CASCADE", "RESTRICT", "RESTART", "CONTINUE");
+
+    /**
+     * What a script touches, read from its text.
+     *
+     * @param tables    unqualified, lower-cased names of the tables its statements reference
+     * @param barrier   whether it must run alone, after all earlier and before all later scripts
+     * @param dependsOn script names from its {@code depends-on} header, without {@code .sql}
+     */
+    record Footprint(Set<String> tables, boolean barrier, List<String> dependsOn) {}
+
+    /**
+     * A script to run.
+     */
+    record ScriptTask(Path path, ScriptMeta meta, String checksum, int resumeFrom, Footprint footprint) {}
+
+    private final List<ScriptTask> tasks;
+    private final List<List<Integer>> dependents = new ArrayList<>();
+    private final int[] dependencyCounts;
+
+    /**
+     * @param tasks the scripts to run, in run order
+     * @throws IllegalStateException if a header names a script that runs later
+     */
+    ScriptPlan(List<ScriptTask> tasks) {
+        this(tasks, Map.of());
+    }
+
+    /**
+     * @param tasks   the scripts to run, in run order
+     * @param related tables related by foreign keys to each table, see {@link #relatedTables}
+     * @throws IllegalStateException if a header names a script that runs later
+     */
+    ScriptPlan(List<ScriptTask> tasks, Map<String, Set<String>> related) {
+        this.tasks = tasks;
+        this.dependencyCounts = new int[tasks.size()];
+        Map<String, Integer> byName = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            byName.put(ScriptDirectives.baseName(tasks.get(i).meta().fileName()), i);
+            dependents.add(new ArrayList<>());
+        }
+        for (int j = 0; j < tasks.size(); j++) {
+            Footprint later = tasks.get(j).footprint();
+            Set<Integer> declared = new HashSet<>();
+            for (String name : later.dependsOn()) {
+                Integer i = byName.get(name);
+                // scripts that are not part of this run were applied (or are held) already
+                if (i == null) {
+                    continue;
+                }
+                if (i >= j) {
+                    throw new IllegalStateException(tasks.get(j).meta().fileName() + " depends on "
+                            + tasks.get(i).meta().fileName() + ", which runs after it");
+                }
+                declared.add(i);
+            }
+            for (int i = 0; i < j; i++) {
+                Footprint earlier = tasks.get(i).footprint();
+                if (declared.contains(i) || earlier.barrier() || later.barrier()
+                        || touchSameRows(earlier, later, related)) {
+                    dependents.get(i).add(j);
+                    dependencyCounts[j]++;
+                }
+            }
+        }
+    }
+
+    int size() {
+        return tasks.size();
+    }
+
+    ScriptTask task(int index) {
+        return tasks.get(index);
+    }
+
+    /**
+     * Scripts that depend on the given one.
+     */
+    List<Integer> dependents(int index) {
+        return dependents.get(index);
+    }
+
+    /**
+     * Number of scripts each script depends on; a fresh copy the caller may count down.
+     */
+    int[] dependencyCounts() {
+        return dependencyCounts.clone();
+    }
+
+    /**
+     * Reads the footprint of a script file, one statement at a time.
+     */
+    static Footprint footprint(ScriptMeta meta, Path script) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            return footprint(meta, reader);
+        }
+    }
+
+    /**
+     * Tables whose rows writes to each of the given tables may need or reach: the
+     * tables it references by foreign keys, and the tables referencing it, directly or
+     * through other tables (which {@code ON DELETE CASCADE} reaches).
+     *
+     * @param tables unqualified, lower-cased names
+     * @return related tables per given table, unqualified and lower-cased
+     */
+    static Map<String, Set<String>> relatedTables(DatabaseMetaData meta, Set<String> tables) throws SQLException {
+        Map<String, Set<String>> children = new HashMap<>();
+        Map<String, Set<String>> related = new HashMap<>();
+        for (String table : tables) {
+            Set<String> linked = new HashSet<>(keyTables(meta, table, false));
+            Deque<String> pending = new ArrayDeque<>(List.of(table));
+            Set<String> seen = new HashSet<>(pending);
+            while (!pending.isEmpty()) {
+                String parent = pending.pop();
+                Set<String> referencing = children.get(parent);
+                if (referencing == null) {
+                    referencing = keyTables(meta, parent, true);
+                    children.put(parent, referencing);
+                }
+                for (String child : referencing) {
+                    if (seen.add(child)) {
+                        pending.push(child);
+                    }
+                }
+            }
+            seen.remove(table);
+            linked.addAll(seen);
+            linked.remove(table);
+            if (!linked.isEmpty()) {
+                related.put(table, linked);
+            }
+        }
+        return related;
+    }
+
+    // internal helpers
+
+    private static boolean touchSameRows(Footprint a, Footprint b, Map<String, Set<String>> related) {
+        if (!Collections.disjoint(a.tables(), b.tables())) {
+            return true;
+        }
+        for (String table : a.tables()) {
+            Set<String> linked = related.get(table);
+            if (linked != null && !Collections.disjoint(linked, b.tables())) {
+                return true;
+            }
+        }
+        for (String table : b.tables()) {
+            Set<String> linked = related.get(table);
+            if (linked != null && !Collections.disjoint(linked, a.tables())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tables referenced by the table's foreign keys, or with {@code exported} the tables
+     * whose foreign keys reference it.
+     */
+    private static Set<String> keyTables(DatabaseMetaData meta, String table, boolean exported) throws SQLException {
+        String name = meta.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+        Set<String> result = new HashSet<>();
+        try (ResultSet rs = exported ? meta.getExportedKeys(null, null, name) : meta.getImportedKeys(null, null, name)) {
+            while (rs.next()) {
+                result.add(rs.getString(exported ? "FKTABLE_NAME" : "PKTABLE_NAME").toLowerCase(Locale.ROOT));
+            }
+        }
+        return result;
+    }
+
+    private static Footprint footprint(ScriptMeta meta, BufferedReader reader) throws IOException {
+        List<String> dependsOn = ScriptDirectives.read(reader).dependsOn();
+        Set<String> tables = new HashSet<>();
+        boolean barrier = "DDL".equals(meta.type());
+        if (!barrier) {
+            SqlScriptSplitter splitter = new SqlScriptSplitter(reader);
+            for (String statement = splitter.next(); statement != null; statement = splitter.next()) {
+                String keyword = SqlLexer.analyze(statement).keyword();
+                if (keyword == null) {
+                    continue;
+                }
+                Set<String> statementTables = new HashSet<>();
+                boolean cascade = collectTables(statement, statementTables);
+                // SELECT setval(...), SELECT backfill_orders() and the like
+                if (!TRANSPARENT.contains(keyword) || ("SELECT".equals(keyword) && statementTables.isEmpty())
+                        || ("TRUNCATE".equals(keyword) && cascade)) {
+                    barrier = true;
+                    break;
+                }
+                tables.addAll(statementTables);
+            }
+        }
+        return new Footprint(tables, barrier, dependsOn);
+    }
+
+    /**
+     * Adds the names following FROM, JOIN, INTO, UPDATE, TABLE, USING and TRUNCATE,
+     * including further entries of comma-separated FROM and TRUNCATE lists.
+     *
+     * @return whether the statement has a top-level CASCADE
+     */
+    private static boolean collectTables(String statement, Set<String> tables) {
+        SqlLexer lexer = new SqlLexer(statement);
+        boolean expectName = false;
+        boolean inFromList = false;
+        int fromDepth = 0;
+        int depth = 0;
+        StringBuilder name = null;
+        boolean afterDot = false;
+        boolean cascade = false;
+
+        for (SqlLexer.Token token = lexer.next(); token != SqlLexer.Token.END; token = lexer.next()) {
+            if (token == SqlLexer.Token.COMMENT) {
+                continue;
+            }
+            if (name != null) {
+                // reading a qualified name: keep the last part
+                if (lexer.isSymbol('.')) {
+                    afterDot = true;
+                    continue;
+                }
+                if (afterDot && (token == SqlLexer.Token.WORD || token == SqlLexer.Token.QUOTED)) {
+                    name.setLength(0);
+                    name.append(identifier(lexer));
+                    afterDot = false;
+                    continue;
+                }
+                tables.add(name.toString());
+                name = null;
+                afterDot = false;
+            }
+            if (token == SqlLexer.Token.SYMBOL) {
+                char c = lexer.symbol();
+                if (c == '(') {
+                    depth++;
+                    expectName = false;
+                } else if (c == ')') {
+                    depth--;
+                    if (depth < fromDepth) {
+                        inFromList = false;
+                    }
+                } else if (c == ',' && inFromList && depth == fromDepth) {
+                    expectName = true;
+                }
+                continue;
+            }
+            if (token == SqlLexer.Token.WORD) {
+                String word = lexer.text().toUpperCase(Locale.ROOT);
+                if (expectName && SKIPPED_BEFORE_NAME.contains(word)) {
+                    continue;
+                }
+                if ("CASCADE".equals(word) && depth == 0) {
+                    cascade = true;
+                }
+                if (TABLE_KEYWORDS.contains(word)) {
+                    expectName = true;
+                    if ("FROM".equals(word) || "TRUNCATE".equals(word)) {
+                        inFromList = true;
+                        fromDepth = depth;
+                    }
+                    continue;
+                }
+                if (CLAUSE_KEYWORDS.contains(word)) {
+                    if (depth == fromDepth) {
+                        inFromList = false;
+                    }
+                    expectName = false;
+                    continue;
+                }
+            }
+            if (expectName && (token == SqlLexer.Token.WORD || token == SqlLexer.Token.QUOTED)) {
+                name = new StringBuilder(identifier(lexer));
+            }
+            expectName = false;
+        }
+        if (name != null) {
+            tables.add(name.toString());
+        }
+        return cascade;
+    }
+
+    private static String identifier(SqlLexer lexer) {
+        String text = lexer.text();
+        if (lexer.token() == SqlLexer.Token.QUOTED) {
+            text = text.substring(1, text.length() - 1);
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,41 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ColumnReadersTest {
+
+    @Test
+    void readsSingleBitsAsBooleansAndBitStringsAsObjects() throws SQLException, IOException {
+        ResultSetMetaData meta = mock(ResultSetMetaData.class);
+        when(meta.getColumnCount()).thenReturn(2);
+        when(meta.getColumnType(1)).thenReturn(Types.BIT);
+        when(meta.getPrecision(1)).thenReturn(1);
+        when(meta.getColumnType(2)).thenReturn(Types.BIT);
+        when(meta.getPrecision(2)).thenReturn(8);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getBoolean(1)).thenReturn(true);
+        when(rs.getObject(2)).thenReturn("10110001");
+
+        ColumnReaders.ColumnReader[] readers = ColumnReaders.forMetaData(meta);
+        ColumnReaders.ArraySink sink = new ColumnReaders.ArraySink();
+        sink.row = new Object[2];
+        readers[0].read(rs, 0, sink);
+        readers[1].read(rs, 1, sink);
+
+        assertThat(sink.row).containsExactly(true, "10110001");
+        verify(rs).getBoolean(1);
+        verify(rs, never()).getBoolean(2);
+    }
+}
@@ -0,0 +1,65 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * The editor services wired by hand against an in-memory H2 database, for tests that
+ * need real statements without starting the application context.
+ */
+final class EditorFixture implements AutoCloseable {
+
+    final DsEditorProperties properties;
+    final JdbcTemplate jdbcTemplate;
+    final EditorDataSources dataSources;
+    final QueryGovernor queryGovernor;
+    final SelectResultCache selectResultCache;
+    final SqlExecutorService sqlExecutorService;
+    final SqlBatchService sqlBatchService;
+    private final SlowQueryLog slowQueryLog;
+
+    /**
+     * @param database name of the in-memory database, unique per test class
+     */
+    EditorFixture(String database, DsEditorProperties properties) {
+        this.properties = properties;
+        this.jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + database + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+        EditorMetrics metrics = mock(EditorMetrics.class);
+        ObjectMapper objectMapper = new ObjectMapper();
+        this.dataSources = new EditorDataSources(properties, jdbcTemplate, metrics);
+        this.queryGovernor = new QueryGovernor(properties, jdbcTemplate.getDataSource(), metrics);
+        this.selectResultCache = new SelectResultCache(properties);
+        this.slowQueryLog = new SlowQueryLog(properties);
+        this.sqlExecutorService = new SqlExecutorService(dataSources, properties, objectMapper, selectResultCache,
+                queryGovernor, metrics, new QueryStatistics(properties), slowQueryLog,
+                new SelectCoalescer(properties), new TotalCounter(properties, objectMapper));
+        this.sqlBatchService = new SqlBatchService(sqlExecutorService, properties, dataSources, queryGovernor, metrics);
+    }
+
+    EditorFixture(String database) {
+        this(database, new DsEditorProperties());
+    }
+
+    Object execute(SqlRequestDto request) {
+        return sqlExecutorService.execute(request, "test");
+    }
+
+    static SqlRequestDto request(String sql) {
+        SqlRequestDto request = new SqlRequestDto();
+        request.setQuery(sql);
+        return request;
+    }
+
+    @Override
+    public void close() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        slowQueryLog.destroy();
+        dataSources.destroy();
+    }
+}
@@ -0,0 +1,185 @@
+package org.mouni.ds.editor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.model.KeysetPage;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.mouni.ds.sql.SqlLexer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetPaginationTest {
+
+    private static final String SQL = "SELECT id, name, price, created, day, uid, active, score FROM items "
+            + "ORDER BY id, name, price, created, day, uid, active, score";
+
+    private final KeysetPagination pagination = new KeysetPagination(new ObjectMapper());
+
+    @Test
+    void roundTripsKeyValuesOfEachType() {
+        List<KeysetPagination.OrderKey> keys = keys(SQL);
+        Timestamp created = Timestamp.valueOf(LocalDateTime.of(2024, 2, 29, 23, 59, 58, 123_456_789));
+        UUID uid = UUID.randomUUID();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("ID", 42);
+        row.put("NAME", "O'Brien, \"quoted\" ✓");
+        row.put("PRICE", new BigDecimal("12345678901234567890.0100"));
+        row.put("CREATED", created);
+        row.put("DAY", java.sql.Date.valueOf(LocalDate.of(1999, 12, 31)));
+        row.put("UID", uid);
+        row.put("ACTIVE", true);
+        row.put("SCORE", 0.1);
+
+        String token = pagination.encode(SQL, keys, row, true);
+        KeysetPagination.Cursor cursor = pagination.decode(SQL, keys, token);
+
+        assertThat(token).matches("[A-Za-z0-9_-]+");
+        assertThat(cursor.backward()).isTrue();
+        assertThat(cursor.values()).containsExactly(42L, "O'Brien, \"quoted\" ✓",
+                new BigDecimal("12345678901234567890.0100"), created,
+                java.sql.Date.valueOf(LocalDate.of(1999, 12, 31)), uid, true, 0.1);
+    }
+
+    @Test
+    void stopsPagingAtANullKey() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", null);
+
+        assertThat(pagination.encode("SELECT id FROM t ORDER BY id", keys("SELECT id FROM t ORDER BY id"), row, false))
+                .isNull();
+    }
+
+    @Test
+    void rejectsCursorsOfAnotherQuery() {
+        String sql = "SELECT id FROM t ORDER BY id";
+        String token = pagination.encode(sql, keys(sql), Map.of("id", 1), false);
+        String other = "SELECT id FROM t WHERE owner = 'me' ORDER BY id";
+
+        assertThatThrownBy(() -> pagination.decode(other, keys(other), token))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cursor does not belong to this query");
+        // surrounding whitespace does not make it another query
+        assertThat(pagination.decode("  " + sql + "\n", keys(sql), token).values()).containsExactly(1L);
+    }
+
+    @Test
+    void rejectsMalformedAndTamperedCursors() {
+        String sql = "SELECT id, name FROM t ORDER BY id, name";
+        List<KeysetPagination.OrderKey> keys = keys(sql);
+        String token = pagination.encode(sql, keys, Map.of("id", 1, "name", "a"), false);
+        String json = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+
+        for (String tampered : List.of(
+                "not a cursor!",
+                encode("{\"h\":"),
+                encode(json.replace("[\"l\",1]", "[\"x\",1]")),
+                encode(json.replace("[\"l\",1]", "[\"ts\",\"yesterday\"]")),
+                encode(json.replace("[\"l\",1],", "")),
+                encode(json.replace("[\"l\",1]", "\"l\"")))) {
+            assertThatThrownBy(() -> pagination.decode(sql, keys, tampered))
+                    .as(tampered)
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Invalid cursor");
+        }
+    }
+
+    @Test
+    void readsPlainQualifiedAndQuotedOrderByColumns() {
+        List<KeysetPagination.OrderKey> keys =
+                keys("SELECT * FROM t ORDER BY t.created DESC NULLS LAST, \"Order Id\" ASC, s.t.id");
+
+        assertThat(keys).containsExactly(
+                new KeysetPagination.OrderKey("created", "created", true),
+                new KeysetPagination.OrderKey("\"Order Id\"", "Order Id", false),
+                new KeysetPagination.OrderKey("id", "id", false));
+    }
+
+    @Test
+    void rejectsOrderByItemsThatAreNotPlainColumns() {
+        for (String sql : List.of(
+                "SELECT * FROM t",
+                "SELECT * FROM t ORDER BY lower(name)",
+                "SELECT * FROM t ORDER BY 1",
+                "SELECT * FROM t ORDER BY a + b",
+                "SELECT * FROM t ORDER BY id LIMIT 10")) {
+            assertThatThrownBy(() -> keys(sql)).as(sql).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void pagesThroughMixedDirectionKeysWithTiesAcrossPageBoundaries() {
+        try (EditorFixture fixture = new EditorFixture("keyset_pagination")) {
+            fixture.jdbcTemplate.execute("CREATE TABLE scores (team INT, id INT PRIMARY KEY)");
+            List<Object[]> rows = new ArrayList<>();
+            for (int id = 1; id <= 20; id++) {
+                // long runs of equal team values, so pages end in the middle of a run
+                rows.add(new Object[] {id % 3, id});
+            }
+            fixture.jdbcTemplate.batchUpdate("INSERT INTO scores VALUES (?, ?)", rows);
+            String sql = "SELECT team, id FROM scores ORDER BY team DESC, id ASC";
+            List<Integer> expected = fixture.jdbcTemplate.queryForList(sql).stream()
+                    .map(row -> ((Number) row.get("id")).intValue())
+                    .toList();
+
+            List<List<Integer>> forward = new ArrayList<>();
+            String cursor = null;
+            String prev = null;
+            do {
+                KeysetPage page = (KeysetPage) fixture.execute(keyset(sql, cursor));
+                forward.add(ids(page));
+                prev = page.getPrevCursor();
+                cursor = page.getNextCursor();
+            } while (cursor != null && forward.size() < 20);
+
+            assertThat(forward.stream().flatMap(List::stream).toList()).isEqualTo(expected);
+            assertThat(forward).hasSize(7);
+
+            // back from the last page, the same pages come out in reverse
+            List<List<Integer>> backward = new ArrayList<>();
+            while (prev != null && backward.size() < 20) {
+                KeysetPage page = (KeysetPage) fixture.execute(keyset(sql, prev));
+                backward.add(ids(page));
+                prev = page.getPrevCursor();
+            }
+            Collections.reverse(backward);
+            assertThat(backward).isEqualTo(forward.subList(0, forward.size() - 1));
+        }
+    }
+
+    // internal helpers
+
+    private static List<KeysetPagination.OrderKey> keys(String sql) {
+        return new KeysetPagination(new ObjectMapper()).orderKeys(sql, SqlLexer.analyze(sql));
+    }
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SqlRequestDto keyset(String sql, String cursor) {
+        SqlRequestDto request = EditorFixture.request(sql);
+        request.setKeyset(true);
+        request.setSize(3);
+        request.setCursor(cursor);
+        return request;
+    }
+
+    private static List<Integer> ids(KeysetPage page) {
+        return page.getRows().stream().map(row -> ((Number) row.get("id")).intValue()).toList();
+    }
+}
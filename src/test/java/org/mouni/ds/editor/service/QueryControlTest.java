@@ -0,0 +1,90 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QueryControlTest {
+
+    @Test
+    void cancelsTheStatementThatIsRunning() throws SQLException {
+        QueryControl control = new QueryControl(0, "client");
+        Statement running = mock(Statement.class);
+
+        control.call(() -> {
+            apply(running);
+            control.cancel();
+            return null;
+        });
+
+        verify(running).cancel();
+        assertThat(control.isCancelled()).isTrue();
+    }
+
+    @Test
+    void doesNotCancelStatementsThatHaveFinished() throws SQLException {
+        QueryControl control = new QueryControl(0, "client");
+        Statement released = mock(Statement.class);
+        Statement finished = mock(Statement.class);
+
+        control.call(() -> {
+            apply(released);
+            QueryControl.release(released);
+            apply(finished);
+            return null;
+        });
+        control.cancel();
+
+        verify(released, never()).cancel();
+        verify(finished, never()).cancel();
+    }
+
+    @Test
+    void failsStatementsStartedAfterCancel() throws SQLException {
+        QueryControl control = new QueryControl(0, "client");
+        Statement late = mock(Statement.class);
+        control.cancel();
+
+        control.call(() -> {
+            assertThatThrownBy(() -> QueryControl.apply(late, 0))
+                    .isInstanceOf(SQLException.class)
+                    .hasMessage("Query was cancelled");
+            return null;
+        });
+
+        verify(late, never()).cancel();
+    }
+
+    @Test
+    void onlyShortensATimeoutAlreadySet() throws SQLException {
+        Statement shorter = mock(Statement.class);
+        when(shorter.getQueryTimeout()).thenReturn(10);
+        Statement longer = mock(Statement.class);
+        when(longer.getQueryTimeout()).thenReturn(60);
+
+        QueryControl.apply(shorter, 30);
+        QueryControl.apply(longer, 30);
+
+        verify(shorter, never()).setQueryTimeout(anyInt());
+        verify(longer).setQueryTimeout(30);
+    }
+
+    // internal helpers
+
+    private static void apply(Statement statement) {
+        try {
+            QueryControl.apply(statement, 0);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class QueryGovernorTest {
+
+    private static final QueryGovernor.StatementClass READ = QueryGovernor.StatementClass.READ;
+
+    private DsEditorProperties properties;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DsEditorProperties();
+        properties.getGovernor().setEnabled(true);
+        properties.getGovernor().setReadSlots(1);
+        properties.getGovernor().setMaxQueue(8);
+        properties.getGovernor().setMaxWait(Duration.ofSeconds(5));
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void grantsAFreedSlotToTheNextWaiter() throws Exception {
+        QueryGovernor governor = governor();
+        QueryGovernor.Permit held = governor.admit(READ, control("a"));
+        Future<QueryGovernor.Permit> waiting = executor.submit(() -> governor.admit(READ, control("b")));
+        awaitQueued(governor, 1);
+
+        assertThat(waiting.isDone()).isFalse();
+        held.close();
+
+        waiting.get(5, TimeUnit.SECONDS).close();
+        assertThat(lane(governor)).containsEntry("inUse", 0).containsEntry("admitted", 2L);
+    }
+
+    @Test
+    void servesQueuedClientsInTurn() throws Exception {
+        QueryGovernor governor = governor();
+        QueryGovernor.Permit held = governor.admit(READ, control("holder"));
+        List<String> order = new CopyOnWriteArrayList<>();
+        int queued = 0;
+        for (String client : List.of("a", "a", "b")) {
+            executor.submit(() -> {
+                QueryGovernor.Permit permit = governor.admit(READ, control(client));
+                order.add(client);
+                permit.close();
+                return null;
+            });
+            awaitQueued(governor, ++queued);
+        }
+        held.close();
+
+        awaitAdmitted(governor, 4);
+        // a's second statement waits for b's turn
+        assertThat(order).containsExactly("a", "b", "a");
+    }
+
+    @Test
+    void rejectsAStatementThatWaitedTooLong() {
+        properties.getGovernor().setMaxWait(Duration.ofMillis(100));
+        QueryGovernor governor = governor();
+        governor.admit(READ, control("a"));
+
+        assertThatThrownBy(() -> governor.admit(READ, control("b")))
+                .isInstanceOf(QueryGovernor.AdmissionRejectedException.class)
+                .hasMessageContaining("Timed out");
+        assertThat(lane(governor)).containsEntry("queued", 0).containsEntry("timedOut", 1L);
+    }
+
+    @Test
+    void rejectsAtOnceWhenTheQueueIsFull() throws Exception {
+        properties.getGovernor().setMaxQueue(1);
+        QueryGovernor governor = governor();
+        QueryGovernor.Permit held = governor.admit(READ, control("a"));
+        Future<QueryGovernor.Permit> waiting = executor.submit(() -> governor.admit(READ, control("b")));
+        awaitQueued(governor, 1);
+
+        assertThatThrownBy(() -> governor.admit(READ, control("c")))
+                .isInstanceOf(QueryGovernor.AdmissionRejectedException.class)
+                .hasMessageContaining("Too many queued");
+        assertThat(lane(governor)).containsEntry("rejected", 1L);
+
+        held.close();
+        waiting.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void leavesTheQueueWhenInterrupted() throws Exception {
+        QueryGovernor governor = governor();
+        QueryGovernor.Permit held = governor.admit(READ, control("a"));
+        AtomicBoolean interruptKept = new AtomicBoolean();
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                governor.admit(READ, control("b"));
+            } catch (QueryGovernor.AdmissionRejectedException e) {
+                interruptKept.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        awaitQueued(governor, 1);
+        waiter.interrupt();
+        waiter.join(5_000);
+
+        assertThat(interruptKept).isTrue();
+        assertThat(lane(governor)).containsEntry("queued", 0).containsEntry("inUse", 1);
+        held.close();
+        // the slot was not handed to the interrupted waiter
+        assertThat(lane(governor)).containsEntry("inUse", 0);
+        governor.admit(READ, control("c")).close();
+    }
+
+    @Test
+    void admitsNestedStatementsWithoutAnotherSlot() {
+        QueryGovernor governor = governor();
+        QueryControl control = control("a");
+        QueryGovernor.Permit outer = governor.admit(READ, control);
+        try (outer) {
+            governor.admit(READ, control).close();
+            assertThat(lane(governor)).containsEntry("inUse", 1);
+        }
+        assertThat(control.admitted).isFalse();
+    }
+
+    @Test
+    void identifiesTheCallerByPrincipalBeforeAnyHeader() {
+        properties.getGovernor().setClientHeader("X-Client-Id");
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.7");
+        request.addHeader("X-Client-Id", "someone-else");
+        request.setUserPrincipal(() -> "alice");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertThat(governor().currentClient()).isEqualTo("alice");
+        request.setUserPrincipal(null);
+        assertThat(governor().currentClient()).isEqualTo("someone-else");
+    }
+
+    @Test
+    void ignoresClientHeadersUnlessConfigured() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.7");
+        request.addHeader("X-Client-Id", "someone-else");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        assertThat(governor().currentClient()).isEqualTo("10.0.0.7");
+    }
+
+    // internal helpers
+
+    private QueryGovernor governor() {
+        return new QueryGovernor(properties, null, mock(EditorMetrics.class));
+    }
+
+    private static QueryControl control(String client) {
+        return new QueryControl(0, client);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> lane(QueryGovernor governor) {
+        return (Map<String, Object>) governor.stats().get("read");
+    }
+
+    private static void awaitQueued(QueryGovernor governor, int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!Integer.valueOf(queued).equals(lane(governor).get("queued")) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(lane(governor)).containsEntry("queued", queued);
+    }
+
+    private static void awaitAdmitted(QueryGovernor governor, long admitted) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!(Long.valueOf(admitted).equals(lane(governor).get("admitted")) && (int) lane(governor).get("inUse") == 0)
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.model.QueryJob;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryJobServiceTest {
+
+    // a cross join H2 cannot shortcut, running far longer than any test waits
+    private static final String SLOW_QUERY = "SELECT COUNT(*) AS n FROM SYSTEM_RANGE(1, 100000) a, "
+            + "SYSTEM_RANGE(1, 100000) b, SYSTEM_RANGE(1, 100000) c";
+
+    private EditorFixture fixture;
+    private QueryJobService jobs;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new EditorFixture("query_jobs");
+        jobs = new QueryJobService(fixture.sqlExecutorService, fixture.queryGovernor, fixture.properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobs.destroy();
+        fixture.close();
+    }
+
+    @Test
+    void runsASubmittedStatementToItsResult() throws InterruptedException {
+        QueryJob job = jobs.submit(EditorFixture.request("SELECT 42 AS answer"));
+
+        assertThat(await(job.getId(), QueryJob.Status.SUCCEEDED).getError()).isNull();
+        assertThat(jobs.result(job.getId())).isEqualTo(List.of(Map.of("answer", 42)));
+    }
+
+    @Test
+    void cancelsARunningStatement() throws InterruptedException {
+        QueryJob job = jobs.submit(EditorFixture.request(SLOW_QUERY));
+        await(job.getId(), QueryJob.Status.RUNNING);
+        // give the statement time to reach the database
+        Thread.sleep(200);
+
+        jobs.cancel(job.getId());
+
+        QueryJob cancelled = await(job.getId(), QueryJob.Status.CANCELLED);
+        assertThat(cancelled.getFinishedAt()).isNotNull();
+        assertThatThrownBy(() -> jobs.result(job.getId()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("CANCELLED");
+        // the pool is free for the next job
+        QueryJob next = jobs.submit(EditorFixture.request("SELECT 1 AS one"));
+        await(next.getId(), QueryJob.Status.SUCCEEDED);
+    }
+
+    @Test
+    void reportsAFailedStatement() throws InterruptedException {
+        QueryJob job = jobs.submit(EditorFixture.request("SELECT * FROM missing_table"));
+
+        assertThat(await(job.getId(), QueryJob.Status.FAILED).getError()).containsIgnoringCase("missing_table");
+    }
+
+    // internal helpers
+
+    private QueryJob await(String id, QueryJob.Status status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        QueryJob job = jobs.status(id);
+        while (job.getStatus() != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            job = jobs.status(id);
+        }
+        assertThat(job.getStatus()).isEqualTo(status);
+        return job;
+    }
+}
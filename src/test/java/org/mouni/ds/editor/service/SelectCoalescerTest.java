@@ -0,0 +1,183 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SelectCoalescerTest {
+
+    private static final SelectResultCache.Key KEY =
+            new SelectResultCache.Key("default", "SELECT 1", 0, 100, "ROWS", false, null, null, null);
+
+    private SelectCoalescer coalescer;
+    private ExecutorService executor;
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch leaderStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseLeader = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        DsEditorProperties properties = new DsEditorProperties();
+        properties.setCoalesceSelects(true);
+        coalescer = new SelectCoalescer(properties);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseLeader.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void isOffByDefault() {
+        assertThat(new SelectCoalescer(new DsEditorProperties()).isEnabled()).isFalse();
+    }
+
+    @Test
+    void identicalRequestsShareOneExecution() throws Exception {
+        Future<Object> leader = executor.submit(() -> coalescer.execute(KEY, control(0), this::blockingQuery));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        Future<Object> follower = executor.submit(() -> coalescer.execute(KEY, control(0), this::query));
+        awaitJoined(1);
+        releaseLeader.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("rows-1");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("rows-1");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void waiterGivesUpAtItsOwnTimeout() throws Exception {
+        // the leader has no timeout, so it outlasts the waiter and is joined
+        executor.submit(() -> coalescer.execute(KEY, control(0), this::blockingQuery));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(() -> coalescer.execute(KEY, control(1), this::query))
+                .isInstanceOf(QueryTimeoutException.class)
+                .hasMessageContaining("timed out");
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void cancelledWaiterStopsWaiting() throws Exception {
+        executor.submit(() -> coalescer.execute(KEY, control(0), this::blockingQuery));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        QueryControl waiter = control(0);
+        Future<Object> follower = executor.submit(() -> coalescer.execute(KEY, waiter, this::query));
+        awaitJoined(1);
+        waiter.cancel();
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(QueryTimeoutException.class)
+                .hasMessageContaining("cancelled");
+    }
+
+    @Test
+    void waitersRunThemselvesWhenTheLeaderWasCancelled() throws Exception {
+        QueryControl leaderControl = control(0);
+        Future<Object> leader = executor.submit(() -> coalescer.execute(KEY, leaderControl, () -> {
+            blockingQuery();
+            throw new QueryTimeoutException("cancelled by its caller");
+        }));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        Future<Object> follower = executor.submit(() -> coalescer.execute(KEY, control(0), this::query));
+        awaitJoined(1);
+        leaderControl.cancel();
+        releaseLeader.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(QueryTimeoutException.class);
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("rows-2");
+        assertThat(coalescer.stats()).containsEntry("retried", 1L);
+    }
+
+    @Test
+    void waitersShareTheLeadersFailure() throws Exception {
+        executor.submit(() -> coalescer.execute(KEY, control(0), () -> {
+            blockingQuery();
+            throw new IllegalStateException("relation does not exist");
+        }));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        Future<Object> follower = executor.submit(() -> coalescer.execute(KEY, control(0), this::query));
+        awaitJoined(1);
+        releaseLeader.countDown();
+
+        assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void executionsStartedBeforeAWriteAreNotJoined() throws Exception {
+        Future<Object> leader = executor.submit(() -> coalescer.execute(KEY, control(0), this::blockingQuery));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        coalescer.invalidate();
+
+        assertThat(coalescer.execute(KEY, control(0), this::query)).isEqualTo("rows-2");
+        assertThat(coalescer.stats()).containsEntry("joined", 0L);
+        releaseLeader.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("rows-1");
+    }
+
+    @Test
+    void executionThatEndsBeforeTheCallersDeadlineIsNotJoined() throws Exception {
+        executor.submit(() -> coalescer.execute(KEY, control(1), this::blockingQuery));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+
+        // no timeout of its own: the leader's timeout would cut it short
+        assertThat(coalescer.execute(KEY, control(0), this::query)).isEqualTo("rows-2");
+        assertThat(coalescer.stats()).containsEntry("joined", 0L);
+    }
+
+    @Test
+    void differentKeysDoNotShare() throws Exception {
+        executor.submit(() -> coalescer.execute(KEY, control(0), this::blockingQuery));
+        leaderStarted.await(5, TimeUnit.SECONDS);
+        SelectResultCache.Key replica =
+                new SelectResultCache.Key("replica-1", "SELECT 1", 0, 100, "ROWS", false, null, null, null);
+
+        assertThat(coalescer.execute(replica, control(0), this::query)).isEqualTo("rows-2");
+        assertThat(coalescer.stats()).containsEntry("joined", 0L);
+    }
+
+    // internal helpers
+
+    private static QueryControl control(int timeoutSeconds) {
+        return new QueryControl(timeoutSeconds, "client");
+    }
+
+    private Object query() {
+        return "rows-" + executions.incrementAndGet();
+    }
+
+    private Object blockingQuery() {
+        Object result = query();
+        leaderStarted.countDown();
+        try {
+            releaseLeader.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return result;
+    }
+
+    private void awaitJoined(long count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Long) coalescer.stats().get("joined") < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(coalescer.stats()).containsEntry("joined", count);
+    }
+}
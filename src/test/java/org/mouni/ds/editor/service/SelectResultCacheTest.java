@@ -0,0 +1,165 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SelectResultCacheTest {
+
+    private DsEditorProperties properties;
+    private SelectResultCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties = new DsEditorProperties();
+        properties.getCache().setEnabled(true);
+        cache = new SelectResultCache(properties);
+    }
+
+    @Test
+    void servesRepeatedSelectsFromTheCache() {
+        assertThat(get("SELECT * FROM t")).isEqualTo(List.of(1));
+        assertThat(get("SELECT * FROM t")).isEqualTo(List.of(1));
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats()).containsEntry("hits", 1L).containsEntry("misses", 1L).containsEntry("size", 1);
+    }
+
+    @Test
+    void writeToATableEvictsEverySelectMentioningIt() {
+        get("SELECT * FROM t");
+        get("SELECT a.id FROM accounts a JOIN t ON t.account_id = a.id");
+        get("SELECT * FROM public.t WHERE id = 1");
+        get("SELECT * FROM \"T\"");
+        get("SELECT * FROM other");
+
+        cache.invalidateFor("UPDATE t SET x = 1");
+
+        assertThat(cache.stats()).containsEntry("size", 1).containsEntry("invalidations", 4L);
+        assertCached("SELECT * FROM other");
+    }
+
+    @Test
+    void matchesQualifiedAndQuotedWriteTargets() {
+        for (String write : List.of(
+                "INSERT INTO public.t (id) VALUES (1)",
+                "DELETE FROM ONLY \"public\".\"T\" WHERE id = 1",
+                "  -- leading comment\n  MERGE INTO t USING src ON (t.id = src.id) WHEN MATCHED THEN DELETE",
+                "TRUNCATE TABLE other, t",
+                "ALTER TABLE t ADD COLUMN y INT",
+                "DROP TABLE IF EXISTS app.t",
+                "CREATE OR REPLACE VIEW t AS SELECT 1")) {
+            get("SELECT * FROM t JOIN u ON u.id = t.id");
+
+            cache.invalidateFor(write);
+
+            assertThat(cache.stats()).as(write).containsEntry("size", 0);
+        }
+    }
+
+    @Test
+    void evictsSelectsOnQuotedNamesWithSpaces() {
+        get("SELECT * FROM \"Order Items\"");
+
+        cache.invalidateFor("UPDATE \"Order Items\" SET qty = 0");
+
+        assertThat(cache.stats()).containsEntry("size", 0);
+    }
+
+    @Test
+    void keepsSelectsOnOtherTables() {
+        get("SELECT * FROM tally");
+        get("SELECT t_id FROM u");
+
+        cache.invalidateFor("UPDATE t SET x = 1");
+
+        assertThat(cache.stats()).containsEntry("size", 2);
+    }
+
+    @Test
+    void writeWithAnUnknownTargetClearsEverything() {
+        get("SELECT * FROM t");
+        get("SELECT * FROM other");
+
+        cache.invalidateFor("WITH gone AS (DELETE FROM t RETURNING id) SELECT count(*) FROM gone");
+
+        assertThat(cache.stats()).containsEntry("size", 0);
+    }
+
+    @Test
+    void dropsAResultComputedAcrossAWrite() {
+        SelectResultCache.Key key = key("SELECT * FROM t");
+        // the write lands while the SELECT runs, the result may predate it
+        Object result = cache.get(key, () -> {
+            cache.invalidateFor("UPDATE other SET x = 1");
+            return List.of(1);
+        }, rows -> 1);
+
+        assertThat(result).isEqualTo(List.of(1));
+        assertThat(cache.stats()).containsEntry("size", 0);
+        get("SELECT * FROM t");
+        assertThat(cache.stats()).containsEntry("size", 1).containsEntry("misses", 2L);
+    }
+
+    @Test
+    void expiresEntriesAfterTheTtl() throws InterruptedException {
+        properties.getCache().setTtl(Duration.ofMillis(20));
+        get("SELECT * FROM t");
+        Thread.sleep(50);
+
+        get("SELECT * FROM t");
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats()).containsEntry("evictions", 1L).containsEntry("hits", 0L);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntryBeyondMaxEntries() {
+        properties.getCache().setMaxEntries(2);
+        get("SELECT 1 FROM a");
+        get("SELECT 1 FROM b");
+        get("SELECT 1 FROM a");
+        get("SELECT 1 FROM c");
+
+        assertThat(cache.stats()).containsEntry("size", 2).containsEntry("evictions", 1L);
+        assertCached("SELECT 1 FROM a");
+        assertCached("SELECT 1 FROM c");
+    }
+
+    @Test
+    void doesNotCacheResultsAboveMaxRows() {
+        properties.getCache().setMaxRows(1);
+
+        cache.get(key("SELECT * FROM t"), () -> List.of(1, 2), rows -> ((List<?>) rows).size());
+
+        assertThat(cache.stats()).containsEntry("size", 0);
+    }
+
+    // internal helpers
+
+    private Object get(String sql) {
+        return cache.get(key(sql), load(), rows -> ((List<?>) rows).size());
+    }
+
+    private Supplier<Object> load() {
+        return () -> List.of(loads.incrementAndGet());
+    }
+
+    private void assertCached(String sql) {
+        int before = loads.get();
+        get(sql);
+        assertThat(loads).as(sql).hasValue(before);
+    }
+
+    private static SelectResultCache.Key key(String sql) {
+        return new SelectResultCache.Key("default", sql, 0, 20, "ROWS", false, null, null, null);
+    }
+}
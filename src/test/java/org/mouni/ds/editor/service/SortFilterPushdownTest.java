@@ -0,0 +1,153 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.model.ColumnFilter;
+import org.mouni.ds.editor.model.ColumnSort;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.mouni.ds.sql.SqlLexer;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SortFilterPushdownTest {
+
+    private final SortFilterPushdown pushdown = new SortFilterPushdown();
+    private EditorFixture fixture;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        fixture = new EditorFixture("sort_filter");
+        jdbc = fixture.jdbcTemplate;
+        jdbc.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(40), price DECIMAL(10, 2))");
+        jdbc.update("INSERT INTO items VALUES (1, 'apple', 1.50), (2, 'Banana_split', 3.00), (3, 'cherry', 12.00)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void leavesTheStatementAloneWithoutSortOrFilters() {
+        SortFilterPushdown.View view = view("SELECT * FROM items;", request(null, null));
+
+        assertThat(view.pushed()).isFalse();
+        assertThat(view.sorted()).isEqualTo("SELECT * FROM items");
+    }
+
+    @Test
+    void rejectsColumnsThatAreNotResultLabels() {
+        SqlRequestDto request = request(List.of(new ColumnSort("id; DROP TABLE items", "asc")), null);
+
+        assertThatThrownBy(() -> view("SELECT id, name FROM items", request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown result column");
+        SqlRequestDto filtered = request(null, List.of(new ColumnFilter("price", "eq", 1)));
+        // a table column the statement does not select is not a result label either
+        assertThatThrownBy(() -> view("SELECT id, name FROM items", filtered))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown result column 'price'");
+    }
+
+    @Test
+    void matchesLabelsCaseInsensitivelyAndQuotesThem() {
+        SortFilterPushdown.View view = view("SELECT id, name FROM items",
+                request(List.of(new ColumnSort("NAME", "desc")), null));
+
+        assertThat(view.orderBy()).isEqualTo(" ORDER BY \"name\" DESC");
+        assertThat(ids(view)).containsExactly(3, 1, 2);
+    }
+
+    @Test
+    void escapesQuotesInsideLabels() {
+        SortFilterPushdown.View view = view("SELECT id, name AS \"odd\"\"label\" FROM items",
+                request(List.of(new ColumnSort("odd\"label", "asc")), List.of(new ColumnFilter("odd\"label", "ne", "apple"))));
+
+        assertThat(view.filtered()).endsWith("WHERE \"odd\"\"label\" <> ?");
+        assertThat(view.orderBy()).isEqualTo(" ORDER BY \"odd\"\"label\" ASC");
+        assertThat(ids(view)).containsExactly(2, 3);
+    }
+
+    @Test
+    void rejectsUnknownOperatorsAndDirections() {
+        assertThatThrownBy(() -> view("SELECT id FROM items",
+                request(null, List.of(new ColumnFilter("id", "= 1 OR 1 =", 1)))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown filter operator");
+        assertThatThrownBy(() -> view("SELECT id FROM items",
+                request(List.of(new ColumnSort("id", "asc; DROP TABLE items")), null)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Unknown sort direction");
+        assertThatThrownBy(() -> view("SELECT id FROM items",
+                request(null, List.of(new ColumnFilter("id", "gt", null)))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("needs a value");
+    }
+
+    @Test
+    void bindsTextComparedWithANumberThroughACast() {
+        SortFilterPushdown.View view = view("SELECT id, price FROM items",
+                request(null, List.of(new ColumnFilter("price", "ge", "3.00"))));
+
+        assertThat(view.filtered()).endsWith("WHERE \"price\" >= CAST(? AS DECIMAL)");
+        assertThat(view.params()).containsExactly("3.00");
+        assertThat(ids(view)).containsExactly(2, 3);
+    }
+
+    @Test
+    void bindsNumbersAndTextOnTextColumnsAsTheyAre() {
+        SortFilterPushdown.View view = view("SELECT id, name FROM items",
+                request(null, List.of(new ColumnFilter("id", "lt", 3), new ColumnFilter("name", "eq", "apple"))));
+
+        assertThat(view.filtered()).endsWith("WHERE \"id\" < ? AND \"name\" = ?");
+        assertThat(ids(view)).containsExactly(1);
+    }
+
+    @Test
+    void escapesLikeWildcardsInContainsFilters() {
+        // unescaped, the underscore would match the "l" of apple
+        SortFilterPushdown.View view = view("SELECT id, name FROM items",
+                request(null, List.of(new ColumnFilter("name", "contains", "P_E"))));
+
+        assertThat(view.params()).containsExactly("%p\\_e%");
+        assertThat(ids(view)).isEmpty();
+        assertThat(ids(view("SELECT id, name FROM items",
+                request(null, List.of(new ColumnFilter("name", "startsWith", "banana_")))))).containsExactly(2);
+    }
+
+    @Test
+    void rejectsSortAndFiltersOnKeysetRequests() {
+        SqlRequestDto request = request(List.of(new ColumnSort("name", "asc")), null);
+        request.setQuery("SELECT id, name FROM items ORDER BY id");
+        request.setKeyset(true);
+
+        assertThatThrownBy(() -> fixture.execute(request))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("only supported with page/size pagination");
+    }
+
+    // internal helpers
+
+    private SortFilterPushdown.View view(String sql, SqlRequestDto request) {
+        return pushdown.view(jdbc, sql, SqlLexer.analyze(sql), request);
+    }
+
+    private List<Integer> ids(SortFilterPushdown.View view) {
+        return jdbc.queryForList(view.sorted(), view.params().toArray()).stream()
+                .map(row -> ((Number) row.get("id")).intValue())
+                .toList();
+    }
+
+    private static SqlRequestDto request(List<ColumnSort> sort, List<ColumnFilter> filters) {
+        SqlRequestDto request = new SqlRequestDto();
+        request.setSort(sort);
+        request.setFilters(filters);
+        return request;
+    }
+}
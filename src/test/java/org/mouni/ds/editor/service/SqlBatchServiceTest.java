@@ -0,0 +1,179 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.BatchResult;
+import org.mouni.ds.editor.model.BatchTransactionMode;
+import org.mouni.ds.editor.model.SqlRequestDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SqlBatchServiceTest {
+
+    @Test
+    void runsLockingAndStateChangingSelectsAsBarriers() {
+        Map<String, long[]> spans = new ConcurrentHashMap<>();
+        SqlBatchService service = parallelService(spans);
+
+        BatchResult result = service.execute(List.of(
+                request("SELECT 1"),
+                request("SELECT 2"),
+                request("SELECT * FROM accounts WHERE id = 1 FOR UPDATE"),
+                request("SELECT 3"),
+                request("SELECT nextval('order_seq')"),
+                request("WITH moved AS (DELETE FROM inbox RETURNING *) SELECT * FROM moved"),
+                request("SELECT 4")), true);
+
+        assertThat(result.getErrorCount()).isZero();
+        // plain reads next to each other still overlap
+        assertThat(overlap(spans, "SELECT 1", "SELECT 2")).isTrue();
+        assertThat(before(spans, "SELECT 1", "FOR UPDATE")).isTrue();
+        assertThat(before(spans, "SELECT 2", "FOR UPDATE")).isTrue();
+        assertThat(before(spans, "FOR UPDATE", "SELECT 3")).isTrue();
+        assertThat(before(spans, "SELECT 3", "nextval")).isTrue();
+        assertThat(before(spans, "nextval", "WITH moved")).isTrue();
+        assertThat(before(spans, "WITH moved", "SELECT 4")).isTrue();
+    }
+
+    @Test
+    void atomicBatchRollsBackEverythingAndNamesTheFailingStatement() {
+        try (EditorFixture fixture = itemsFixture()) {
+            BatchResult result = fixture.sqlBatchService.executeInTransaction(List.of(
+                    request("INSERT INTO items VALUES (1, 'a')"),
+                    request("INSERT INTO items VALUES (2, 'b')"),
+                    request("INSERT INTO items VALUES (1, 'duplicate')"),
+                    request("INSERT INTO items VALUES (3, 'c')")), BatchTransactionMode.ATOMIC);
+
+            assertThat(result.getErrorCount()).isEqualTo(4);
+            assertThat(error(result, 2)).doesNotStartWith("Rolled back");
+            assertThat(error(result, 0)).isEqualTo("Rolled back: statement 2 failed");
+            assertThat(error(result, 3)).isEqualTo("Rolled back: statement 2 failed");
+            assertThat(ids(fixture)).isEmpty();
+        }
+    }
+
+    @Test
+    void bestEffortBatchCommitsAllButTheFailingStatements() {
+        try (EditorFixture fixture = itemsFixture()) {
+            BatchResult result = fixture.sqlBatchService.executeInTransaction(List.of(
+                    request("INSERT INTO items VALUES (1, 'a')"),
+                    request("INSERT INTO items VALUES (2, 'b')"),
+                    request("INSERT INTO items VALUES (1, 'duplicate')"),
+                    request("INSERT INTO items VALUES (3, 'c')"),
+                    request("UPDATE items SET name = 'z' WHERE id = 3")), BatchTransactionMode.BEST_EFFORT);
+
+            assertThat(result.getSuccessCount()).isEqualTo(4);
+            assertThat(result.getErrorCount()).isEqualTo(1);
+            assertThat(result.getResults().get(2)).isInstanceOf(Map.class);
+            assertThat(error(result, 2)).isNotBlank();
+            assertThat(result.getResults().get(3)).isEqualTo(Map.of("updated", 1));
+            assertThat(ids(fixture)).containsExactly(1, 2, 3);
+            assertThat(fixture.jdbcTemplate.queryForObject("SELECT name FROM items WHERE id = 3", String.class))
+                    .isEqualTo("z");
+        }
+    }
+
+    @Test
+    void bestEffortReplaysAFailedPreparedBatchOneStatementAtATime() {
+        try (EditorFixture fixture = itemsFixture()) {
+            List<SqlRequestDto> requests = new ArrayList<>();
+            for (Object id : List.of(1, 2, 2, 3, 4)) {
+                requests.add(request("INSERT INTO items VALUES (?, ?)", id, "n" + id));
+            }
+
+            BatchResult result = fixture.sqlBatchService.executeInTransaction(requests, BatchTransactionMode.BEST_EFFORT);
+
+            assertThat(result.getErrorCount()).isEqualTo(1);
+            assertThat(error(result, 2)).isNotBlank();
+            assertThat(ids(fixture)).containsExactly(1, 2, 3, 4);
+        }
+    }
+
+    @Test
+    void statementsOfATransactionalBatchSeeEarlierWrites() {
+        try (EditorFixture fixture = itemsFixture()) {
+            BatchResult result = fixture.sqlBatchService.executeInTransaction(List.of(
+                    request("INSERT INTO items VALUES (1, 'a')"),
+                    request("INSERT INTO items VALUES (2, 'b')"),
+                    request("SELECT COUNT(*) AS n FROM items"),
+                    request("INSERT INTO items VALUES (1, 'duplicate')")), BatchTransactionMode.BEST_EFFORT);
+
+            assertThat(result.getResults().get(2)).isEqualTo(List.of(Map.of("n", 2L)));
+            assertThat(result.getErrorCount()).isEqualTo(1);
+            assertThat(error(result, 3)).isNotBlank();
+            assertThat(ids(fixture)).containsExactly(1, 2);
+        }
+    }
+
+    // internal helpers
+
+    private static EditorFixture itemsFixture() {
+        EditorFixture fixture = new EditorFixture("sql_batch");
+        fixture.jdbcTemplate.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(20))");
+        return fixture;
+    }
+
+    private static List<Integer> ids(EditorFixture fixture) {
+        return fixture.jdbcTemplate.queryForList("SELECT id FROM items ORDER BY id", Integer.class);
+    }
+
+    private static String error(BatchResult result, int index) {
+        Map<?, ?> error = (Map<?, ?>) result.getResults().get(index);
+        assertThat(error.get("index")).isEqualTo(index);
+        return (String) error.get("error");
+    }
+
+    private static SqlRequestDto request(String sql, Object... params) {
+        SqlRequestDto request = request(sql);
+        request.setParams(List.of(params));
+        return request;
+    }
+
+    private static SqlBatchService parallelService(Map<String, long[]> spans) {
+        SqlExecutorService executor = mock(SqlExecutorService.class);
+        when(executor.isReadOnly(any())).thenCallRealMethod();
+        when(executor.execute(any(), anyString())).thenAnswer(invocation -> {
+            SqlRequestDto request = invocation.getArgument(0);
+            long start = System.nanoTime();
+            Thread.sleep(100);
+            spans.put(request.getQuery(), new long[] {start, System.nanoTime()});
+            return List.of();
+        });
+        QueryGovernor governor = mock(QueryGovernor.class);
+        when(governor.currentClient()).thenReturn("client");
+        DsEditorProperties properties = new DsEditorProperties();
+        properties.setBatchParallelism(4);
+        return new SqlBatchService(executor, properties, null, governor, null);
+    }
+
+    private static SqlRequestDto request(String sql) {
+        SqlRequestDto request = new SqlRequestDto();
+        request.setQuery(sql);
+        return request;
+    }
+
+    private static long[] span(Map<String, long[]> spans, String fragment) {
+        return spans.entrySet().stream()
+                .filter(entry -> entry.getKey().contains(fragment))
+                .findFirst()
+                .orElseThrow()
+                .getValue();
+    }
+
+    private static boolean before(Map<String, long[]> spans, String first, String second) {
+        return span(spans, first)[1] <= span(spans, second)[0];
+    }
+
+    private static boolean overlap(Map<String, long[]> spans, String a, String b) {
+        return span(spans, a)[0] < span(spans, b)[1] && span(spans, b)[0] < span(spans, a)[1];
+    }
+}
@@ -0,0 +1,149 @@
+package org.mouni.ds.editor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.editor.autoconfig.DsEditorProperties;
+import org.mouni.ds.editor.model.KeysetPage;
+import org.mouni.ds.editor.model.RowsPage;
+import org.mouni.ds.editor.model.SqlRequestDto;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlExecutorServiceTest {
+
+    // an id and a 100 character name come to 212 estimated bytes, so 1000 bytes hold 4 rows
+    private static final DataSize FOUR_ROWS = DataSize.ofBytes(1000);
+
+    private DsEditorProperties properties;
+    private EditorFixture fixture;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DsEditorProperties();
+        fixture = new EditorFixture("sql_executor", properties);
+        fixture.jdbcTemplate.execute("CREATE TABLE items (id INT PRIMARY KEY, name VARCHAR(100))");
+        fixture.jdbcTemplate.batchUpdate("INSERT INTO items VALUES (?, ?)",
+                IntStream.rangeClosed(1, 50).mapToObj(id -> new Object[] {id, "x".repeat(100)}).toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        fixture.close();
+    }
+
+    @Test
+    void keysetPageCutByTheByteBudgetContinuesAfterItsLastRow() {
+        properties.getLimits().setMaxBytes(FOUR_ROWS);
+
+        KeysetPage page = (KeysetPage) fixture.execute(keyset(10, null));
+
+        assertThat(ids(page.getRows())).containsExactly(1, 2, 3, 4);
+        assertThat(page.getTruncated()).isTrue();
+        assertThat(page.getTruncatedBy()).isEqualTo("bytes");
+        // more rows follow: the page is shorter than asked for, not the end of the result
+        assertThat(page.getNextCursor()).isNotNull();
+
+        KeysetPage next = (KeysetPage) fixture.execute(keyset(10, page.getNextCursor()));
+        assertThat(ids(next.getRows())).containsExactly(5, 6, 7, 8);
+    }
+
+    @Test
+    void walksTheWholeResultThroughPagesCutByTheByteBudget() {
+        properties.getLimits().setMaxBytes(FOUR_ROWS);
+        List<Integer> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeysetPage page = (KeysetPage) fixture.execute(keyset(10, cursor));
+            seen.addAll(ids(page.getRows()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null && pages < 100);
+
+        assertThat(seen).containsExactlyElementsOf(IntStream.rangeClosed(1, 50).boxed().toList());
+        assertThat(pages).isEqualTo(13);
+    }
+
+    @Test
+    void keysetPageCutByTheRowCapIsTruncated() {
+        properties.getLimits().setMaxRows(3);
+
+        KeysetPage page = (KeysetPage) fixture.execute(keyset(10, null));
+
+        assertThat(ids(page.getRows())).containsExactly(1, 2, 3);
+        assertThat(page.getTruncated()).isTrue();
+        assertThat(page.getTruncatedBy()).isEqualTo("rows");
+        KeysetPage next = (KeysetPage) fixture.execute(keyset(10, page.getNextCursor()));
+        assertThat(ids(next.getRows())).containsExactly(4, 5, 6);
+    }
+
+    @Test
+    void capThatOnlyStopsTheLookAheadRowLeavesTheKeysetPageComplete() {
+        properties.getLimits().setMaxRows(10);
+
+        KeysetPage page = (KeysetPage) fixture.execute(keyset(10, null));
+
+        assertThat(ids(page.getRows())).hasSize(10);
+        assertThat(page.getTruncated()).isNull();
+        assertThat(page.getNextCursor()).isNotNull();
+    }
+
+    @Test
+    void lastKeysetPageHasNoNextCursor() {
+        KeysetPage page = (KeysetPage) fixture.execute(keyset(100, null));
+
+        assertThat(ids(page.getRows())).hasSize(50);
+        assertThat(page.getTruncated()).isNull();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void offsetPageCutByTheByteBudgetReportsWhereToContinue() {
+        properties.getLimits().setMaxBytes(FOUR_ROWS);
+        SqlRequestDto request = EditorFixture.request("SELECT id, name FROM items ORDER BY id");
+        request.setSize(10);
+        request.setOffset(20L);
+
+        RowsPage page = (RowsPage) fixture.execute(request);
+
+        assertThat(ids(page.getRows())).containsExactly(21, 22, 23, 24);
+        assertThat(page.getTruncated()).isTrue();
+        assertThat(page.getTruncatedBy()).isEqualTo("bytes");
+        assertThat(page.getNextOffset()).isEqualTo(24L);
+    }
+
+    @Test
+    void rowCapAppliesToQueriesWithTheirOwnLimit() {
+        properties.getLimits().setMaxRows(5);
+
+        RowsPage page = (RowsPage) fixture.execute(EditorFixture.request("SELECT id FROM items ORDER BY id LIMIT 40"));
+
+        assertThat(ids(page.getRows())).containsExactly(1, 2, 3, 4, 5);
+        assertThat(page.getTruncatedBy()).isEqualTo("rows");
+        assertThat(page.getNextOffset()).isEqualTo(5L);
+        // one row past the cap is fetched to tell a cut-off result from one that fits exactly
+        assertThat(new ResultBudget(5, 0).statementMaxRows()).isEqualTo(6);
+        assertThat(new ResultBudget(0, 1024).statementMaxRows()).isZero();
+    }
+
+    // internal helpers
+
+    private static SqlRequestDto keyset(int size, String cursor) {
+        SqlRequestDto request = EditorFixture.request("SELECT id, name FROM items ORDER BY id");
+        request.setKeyset(true);
+        request.setSize(size);
+        request.setCursor(cursor);
+        return request;
+    }
+
+    private static List<Integer> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> ((Number) row.get("id")).intValue()).toList();
+    }
+}
@@ -0,0 +1,152 @@
+package org.mouni.ds.sql;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SqlLexerTest {
+
+    private static final Pattern EXPECT = Pattern.compile("^-- expect: (\\d+)");
+
+    static Stream<String> corpus() {
+        return Stream.of("strings_and_comments.sql", "pg_functions.sql", "begin_end_blocks.sql", "edge_cases.sql",
+                "keyword_columns.sql");
+    }
+
+    @ParameterizedTest
+    @MethodSource("corpus")
+    void splitsCorpusScripts(String name) throws IOException {
+        String script = read(name);
+        Matcher m = EXPECT.matcher(script);
+        assertThat(m.find()).as("expect header in %s", name).isTrue();
+
+        List<String> statements = SqlScriptSplitter.split(script);
+
+        assertThat(statements).hasSize(Integer.parseInt(m.group(1)));
+        assertThat(statements).allSatisfy(sql -> {
+            assertThat(sql).isNotBlank().doesNotStartWith("--").doesNotEndWith(";");
+            assertThat(sql).isEqualTo(sql.strip());
+        });
+    }
+
+    @ParameterizedTest
+    @MethodSource("corpus")
+    void splitsIdenticallyWhenReadOneCharAtATime(String name) throws IOException {
+        String script = read(name);
+        SqlScriptSplitter splitter = new SqlScriptSplitter(new OneCharReader(script));
+        List<String> statements = new ArrayList<>();
+        for (String sql = splitter.next(); sql != null; sql = splitter.next()) {
+            statements.add(sql);
+        }
+
+        assertThat(statements).isEqualTo(SqlScriptSplitter.split(script));
+    }
+
+    @Test
+    void keepsLiteralsIntact() {
+        List<String> statements = SqlScriptSplitter.split(
+                "INSERT INTO t VALUES ('a;b');\nCREATE FUNCTION f() RETURNS int AS $f$ SELECT 1; $f$ LANGUAGE sql;");
+
+        assertThat(statements).containsExactly(
+                "INSERT INTO t VALUES ('a;b')",
+                "CREATE FUNCTION f() RETURNS int AS $f$ SELECT 1; $f$ LANGUAGE sql");
+    }
+
+    @Test
+    void treatsBeginOutsideRoutineBodiesAsAName() {
+        List<String> statements = SqlScriptSplitter.split(
+                "CREATE TABLE events (begin timestamp, finish timestamp); INSERT INTO events VALUES (now(), now());");
+
+        assertThat(statements).containsExactly(
+                "CREATE TABLE events (begin timestamp, finish timestamp)",
+                "INSERT INTO events VALUES (now(), now())");
+    }
+
+    @Test
+    void classifiesStatements() {
+        assertThat(SqlLexer.analyze("  -- note\n/* x */ select * from t").keyword()).isEqualTo("SELECT");
+        assertThat(SqlLexer.analyze("(SELECT 1) UNION (SELECT 2)").keyword()).isEqualTo("SELECT");
+        assertThat(SqlLexer.analyze("SELECT*FROM t").keyword()).isEqualTo("SELECT");
+        assertThat(SqlLexer.analyze("WITH a AS (SELECT 1) SELECT * FROM a").keyword()).isEqualTo("SELECT");
+        assertThat(SqlLexer.analyze("WITH a AS (SELECT 1) INSERT INTO t SELECT * FROM a").keyword()).isEqualTo("INSERT");
+        assertThat(SqlLexer.analyze("WITH d AS (DELETE FROM t RETURNING *) SELECT * FROM d").keyword()).isEqualTo("WITH");
+        assertThat(SqlLexer.analyze("").keyword()).isEmpty();
+    }
+
+    @Test
+    void flagsReadsThatLockRowsOrChangeState() {
+        assertThat(SqlLexer.analyze("SELECT * FROM t WHERE id = 1 FOR UPDATE").sideEffects()).isTrue();
+        assertThat(SqlLexer.analyze("SELECT * FROM t FOR NO KEY UPDATE SKIP LOCKED").sideEffects()).isTrue();
+        assertThat(SqlLexer.analyze("select * from t for share").sideEffects()).isTrue();
+        assertThat(SqlLexer.analyze("SELECT nextval('s')").sideEffects()).isTrue();
+        assertThat(SqlLexer.analyze("SELECT pg_catalog.setval ('s', 1)").sideEffects()).isTrue();
+        assertThat(SqlLexer.analyze("SELECT NEXT VALUE FOR s").sideEffects()).isTrue();
+
+        assertThat(SqlLexer.analyze("SELECT count(*), substring(name FROM 1 FOR 3) FROM t").sideEffects()).isFalse();
+        assertThat(SqlLexer.analyze("SELECT nextval FROM t -- nextval('s')").sideEffects()).isFalse();
+        assertThat(SqlLexer.analyze("SELECT 'FOR UPDATE' FROM t").sideEffects()).isFalse();
+    }
+
+    @Test
+    void findsTopLevelClausesOnly() {
+        SqlLexer.StatementInfo nested = SqlLexer.analyze(
+                "SELECT * FROM (SELECT id FROM t ORDER BY id LIMIT 5) s -- limit 10\nWHERE note = ' offset '");
+        assertThat(nested.limited()).isFalse();
+        assertThat(nested.hasOrderBy()).isFalse();
+
+        String sql = "SELECT id, row_number() OVER (ORDER BY x) FROM t\nORDER BY id DESC\nLIMIT 10; -- done";
+        SqlLexer.StatementInfo top = SqlLexer.analyze(sql);
+        assertThat(top.limited()).isTrue();
+        assertThat(top.limitedAfterOrderBy()).isTrue();
+        assertThat(sql.substring(top.orderByEnd(), top.orderByEnd() + 8)).isEqualTo(" id DESC");
+        assertThat(sql.substring(0, top.bodyEnd())).endsWith("LIMIT 10");
+    }
+
+    @Test
+    void normalizesWhitespaceAndComments() {
+        assertThat(SqlLexer.normalize("SELECT  a,\n\tb -- note\nFROM t /* x */ WHERE s = 'two  spaces';;"))
+                .isEqualTo("SELECT a, b FROM t WHERE s = 'two  spaces'");
+        assertThat(SqlLexer.normalize("SELECT a/**/FROM t")).isEqualTo("SELECT a FROM t");
+    }
+
+    private static String read(String name) throws IOException {
+        try (InputStream in = SqlLexerTest.class.getResourceAsStream("/sql/scripts/" + name)) {
+            assertThat(in).as("corpus file %s", name).isNotNull();
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Forces every token to straddle a read boundary.
+     */
+    private static final class OneCharReader extends Reader {
+        private final StringReader delegate;
+
+        OneCharReader(String s) {
+            this.delegate = new StringReader(s);
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            return delegate.read(cbuf, off, Math.min(1, len));
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
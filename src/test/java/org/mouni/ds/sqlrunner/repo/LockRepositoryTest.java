@@ -0,0 +1,87 @@
+package org.mouni.ds.sqlrunner.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LockRepositoryTest {
+
+    private static final String LOCK = "GLOBAL_SCRIPT_LOCK";
+    private static final Duration TTL = Duration.ofSeconds(60);
+
+    private JdbcTemplate jdbcTemplate;
+    private LockRepository repository;
+
+    @BeforeEach
+    void createTable() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:lock_repository;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("CREATE TABLE script_lock (lock_name VARCHAR(100) PRIMARY KEY, "
+                + "locked_by VARCHAR(200) NOT NULL, locked_at TIMESTAMP NOT NULL)");
+        repository = new LockRepository(jdbcTemplate);
+    }
+
+    @AfterEach
+    void dropTable() {
+        jdbcTemplate.execute("DROP TABLE script_lock");
+    }
+
+    @Test
+    void refusesALockUnderAFreshLease() {
+        assertThat(repository.tryAcquire(LOCK, "node-a/1", TTL)).isTrue();
+
+        assertThat(repository.tryAcquire(LOCK, "node-b/2", TTL)).isFalse();
+        assertThat(holder()).isEqualTo("node-a/1");
+    }
+
+    @Test
+    void takesOverAnExpiredLease() {
+        repository.tryAcquire(LOCK, "node-a/1", TTL);
+        expireLease();
+
+        assertThat(repository.tryAcquire(LOCK, "node-b/2", TTL)).isTrue();
+        assertThat(holder()).isEqualTo("node-b/2");
+    }
+
+    @Test
+    void previousHolderNoticesTheTakeover() {
+        repository.tryAcquire(LOCK, "node-a/1", TTL);
+        expireLease();
+        repository.tryAcquire(LOCK, "node-b/2", TTL);
+
+        assertThat(repository.renew(LOCK, "node-a/1", TTL)).isFalse();
+        assertThat(repository.renew(LOCK, "node-b/2", TTL)).isTrue();
+    }
+
+    @Test
+    void previousHolderCannotReleaseTheNewLease() {
+        repository.tryAcquire(LOCK, "local-node/1", TTL);
+        expireLease();
+        // same node id, as with the default configuration: the lease token still differs
+        repository.tryAcquire(LOCK, "local-node/2", TTL);
+
+        repository.release(LOCK, "local-node/1");
+
+        assertThat(holder()).isEqualTo("local-node/2");
+        repository.release(LOCK, "local-node/2");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM script_lock", Integer.class)).isZero();
+    }
+
+    // internal helpers
+
+    private String holder() {
+        return jdbcTemplate.queryForObject("SELECT locked_by FROM script_lock WHERE lock_name = ?", String.class, LOCK);
+    }
+
+    private void expireLease() {
+        jdbcTemplate.update("UPDATE script_lock SET locked_at = ? WHERE lock_name = ?",
+                Timestamp.from(Instant.now().minus(TTL).minusSeconds(1)), LOCK);
+    }
+}
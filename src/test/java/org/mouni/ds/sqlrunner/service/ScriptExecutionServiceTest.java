@@ -0,0 +1,194 @@
+package org.mouni.ds.sqlrunner.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mouni.ds.sqlrunner.model.ScriptRecord;
+import org.mouni.ds.sqlrunner.repo.ScriptHistoryRepository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ScriptExecutionServiceTest {
+
+    private static final String URL = "jdbc:h2:mem:script_chunks;DB_CLOSE_DELAY=-1";
+
+    private final ScriptHistoryRepository history = mock(ScriptHistoryRepository.class);
+    private final ScriptExecutionService service = new ScriptExecutionService(null, history, null, null, null, null);
+
+    @AfterEach
+    void dropTables() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(URL); Statement st = conn.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    void resumesAfterTheLastCommittedChunk() throws SQLException, IOException {
+        String script = """
+                INSERT INTO items VALUES (1);
+                INSERT INTO items VALUES (2);
+                INSERT INTO items VALUES (3);
+                INSERT INTO items VALUES (4);
+                INSERT INTO audit VALUES (5);
+                INSERT INTO items VALUES (6);
+                """;
+        ScriptDirectives directives = new ScriptDirectives(List.of(), 1, 2);
+        List<Integer> commits = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(URL)) {
+            conn.createStatement().execute("CREATE TABLE items (id INT PRIMARY KEY)");
+            conn.setAutoCommit(false);
+            // fails in the third chunk, on the missing audit table
+            assertThatThrownBy(() -> service.executeSqlScript(conn, new StringReader(script), directives, 0,
+                    committed -> {
+                        commits.add(committed);
+                        conn.commit();
+                    })).isInstanceOf(SQLException.class);
+            conn.rollback();
+            conn.setAutoCommit(true);
+            conn.createStatement().execute("CREATE TABLE audit (id INT)");
+        }
+        assertThat(commits).containsExactly(2, 4);
+        assertThat(ids("items")).containsExactly(1, 2, 3, 4);
+
+        // the committed inserts are not run again, they would violate the primary key
+        ScriptRecord failed = record("FAILED", "abc", commits.get(commits.size() - 1));
+        int resumeFrom = service.resumePoint(failed, "abc");
+        try (Connection conn = DriverManager.getConnection(URL)) {
+            conn.setAutoCommit(false);
+            int statements = service.executeSqlScript(conn, new StringReader(script), directives, resumeFrom,
+                    committed -> conn.commit());
+            conn.commit();
+            assertThat(statements).isEqualTo(6);
+        }
+        assertThat(resumeFrom).isEqualTo(4);
+        assertThat(ids("items")).containsExactly(1, 2, 3, 4, 6);
+        assertThat(ids("audit")).containsExactly(5);
+    }
+
+    @Test
+    void resumesOnlyAFailedRunOfTheSameContent() {
+        assertThat(service.resumePoint(record("FAILED", "abc", 0), "abc")).isZero();
+        verifyNoInteractions(history);
+
+        assertThat(service.resumePoint(record("FAILED", "abc", 40), "changed")).isZero();
+        assertThat(service.resumePoint(record("SUCCESS", "abc", 40), "abc")).isZero();
+        assertThat(service.resumePoint(record("NEEDS_RERUN", "abc", 40), "abc")).isZero();
+        // stale progress is cleared so that it cannot be picked up later
+        verify(history, times(3)).resetProgress("dml_V1.1_load.sql");
+    }
+
+    @Test
+    void runsSessionSettingsAgainWhileSkipping() throws SQLException, IOException {
+        Statement st = mock(Statement.class);
+        Connection conn = connection(st);
+
+        int statements = service.executeSqlScript(conn, new StringReader("""
+                SET search_path TO app;
+                INSERT INTO items VALUES (1);
+                RESET statement_timeout;
+                INSERT INTO items VALUES (2);
+                INSERT INTO items VALUES (3);
+                """), ScriptDirectives.NONE, 4, null);
+
+        assertThat(statements).isEqualTo(5);
+        InOrder order = inOrder(st);
+        order.verify(st).execute(startsWith("SET search_path"));
+        order.verify(st).execute(startsWith("RESET statement_timeout"));
+        order.verify(st).execute(contains("VALUES (3)"));
+        verify(st, never()).execute(contains("VALUES (1)"));
+        verify(st, never()).execute(contains("VALUES (2)"));
+    }
+
+    @Test
+    void flushesAPartialBatchBeforeCommittingAChunk() throws SQLException, IOException {
+        Statement st = mock(Statement.class);
+        Connection conn = connection(st);
+        ScriptExecutionService.ChunkCommit commit = mock(ScriptExecutionService.ChunkCommit.class);
+
+        service.executeSqlScript(conn, new StringReader("""
+                INSERT INTO items VALUES (1);
+                INSERT INTO items VALUES (2);
+                INSERT INTO items VALUES (3);
+                INSERT INTO items VALUES (4);
+                INSERT INTO items VALUES (5);
+                """), new ScriptDirectives(List.of(), 3, 2), 0, commit);
+
+        InOrder order = inOrder(st, commit);
+        order.verify(st).addBatch(contains("(1)"));
+        order.verify(st).addBatch(contains("(2)"));
+        order.verify(st).executeBatch();
+        order.verify(commit).committed(2);
+        order.verify(st).addBatch(contains("(3)"));
+        order.verify(st).addBatch(contains("(4)"));
+        order.verify(st).executeBatch();
+        order.verify(commit).committed(4);
+        order.verify(st).addBatch(contains("(5)"));
+        order.verify(st).executeBatch();
+        verify(st, times(3)).executeBatch();
+    }
+
+    @Test
+    void runsAStatementWithReturningOutsideTheBatch() throws SQLException, IOException {
+        Statement st = mock(Statement.class);
+        Connection conn = connection(st);
+
+        service.executeSqlScript(conn, new StringReader("""
+                INSERT INTO items VALUES (1);
+                INSERT INTO items VALUES (2);
+                INSERT INTO items VALUES (3) RETURNING id;
+                INSERT INTO items VALUES (4);
+                """), new ScriptDirectives(List.of(), 10, 0), 0, null);
+
+        InOrder order = inOrder(st);
+        order.verify(st).addBatch(contains("(1)"));
+        order.verify(st).addBatch(contains("(2)"));
+        order.verify(st).executeBatch();
+        order.verify(st).execute(contains("RETURNING"));
+        order.verify(st).addBatch(contains("(4)"));
+        order.verify(st).executeBatch();
+        verify(st, never()).addBatch(contains("RETURNING"));
+    }
+
+    // internal helpers
+
+    private static Connection connection(Statement st) throws SQLException {
+        Connection conn = mock(Connection.class);
+        when(conn.createStatement()).thenReturn(st);
+        return conn;
+    }
+
+    private static ScriptRecord record(String status, String checksum, int committed) {
+        return new ScriptRecord(1L, "dml_V1.1_load.sql", "DML", 1, 1, checksum, status, null, null, committed);
+    }
+
+    private static List<Integer> ids(String table) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = DriverManager.getConnection(URL);
+             ResultSet rs = conn.createStatement().executeQuery("SELECT id FROM " + table + " ORDER BY id")) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids;
+    }
+}
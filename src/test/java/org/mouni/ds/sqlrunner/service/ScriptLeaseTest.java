@@ -0,0 +1,156 @@
+package org.mouni.ds.sqlrunner.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.sqlrunner.config.RunnerProperties;
+import org.mouni.ds.sqlrunner.repo.ScriptLockBackend;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScriptLeaseTest {
+
+    private static final String LOCK = "GLOBAL_SCRIPT_LOCK";
+
+    private final FakeBackend backend = new FakeBackend();
+    private RunnerProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RunnerProperties();
+        properties.setLockTtl(Duration.ofMillis(300));
+        properties.setLockHeartbeat(Duration.ofMillis(50));
+    }
+
+    @Test
+    void holdsEachLeaseUnderItsOwnToken() throws Exception {
+        ScriptLease first = ScriptLease.acquire(backend, LOCK, properties);
+        first.close();
+        ScriptLease second = ScriptLease.acquire(backend, LOCK, properties);
+        second.close();
+
+        assertThat(first.owner()).startsWith("local-node/");
+        assertThat(second.owner()).startsWith("local-node/").isNotEqualTo(first.owner());
+        assertThat(backend.released).containsExactly(first.owner(), second.owner());
+    }
+
+    @Test
+    void givesUpAtOnceWhenTheLockIsHeldAndWaitIsZero() throws Exception {
+        backend.holder = "other-node/1";
+
+        assertThat(ScriptLease.acquire(backend, LOCK, properties)).isNull();
+        assertThat(backend.attempts).isEqualTo(1);
+    }
+
+    @Test
+    void waitsForTheLockUpToTheConfiguredTime() throws Exception {
+        backend.holder = "other-node/1";
+        backend.freeAfterAttempts = 2;
+        properties.setLockWait(Duration.ofSeconds(5));
+
+        try (ScriptLease lease = ScriptLease.acquire(backend, LOCK, properties)) {
+            assertThat(lease).isNotNull();
+            assertThat(backend.holder).isEqualTo(lease.owner());
+            assertThat(backend.attempts).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void detectsATakeoverOnRenewal() throws Exception {
+        try (ScriptLease lease = ScriptLease.acquire(backend, LOCK, properties)) {
+            lease.checkHeld();
+            backend.holder = "other-node/2";
+
+            awaitLost(lease);
+            assertThatThrownBy(lease::checkHeld)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Lost the script lock");
+        }
+    }
+
+    @Test
+    void losesTheLeaseWhenRenewalsKeepFailingForTheLeaseTime() throws Exception {
+        try (ScriptLease lease = ScriptLease.acquire(backend, LOCK, properties)) {
+            backend.failing = true;
+            // a single failed renewal is not enough
+            Thread.sleep(120);
+            lease.checkHeld();
+
+            awaitLost(lease);
+            assertThatThrownBy(lease::checkHeld).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void keepsTheLeaseWhileRenewalsSucceed() throws Exception {
+        try (ScriptLease lease = ScriptLease.acquire(backend, LOCK, properties)) {
+            Thread.sleep(600);
+
+            lease.checkHeld();
+            assertThat(backend.renewals).isGreaterThan(3);
+        }
+    }
+
+    // internal helpers
+
+    private static void awaitLost(ScriptLease lease) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            try {
+                lease.checkHeld();
+            } catch (IllegalStateException e) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * One lock in memory; renewals and releases match the holder's token, like the
+     * script_lock table.
+     */
+    private static final class FakeBackend implements ScriptLockBackend {
+
+        volatile String holder;
+        volatile int freeAfterAttempts = Integer.MAX_VALUE;
+        volatile boolean failing;
+        volatile int attempts;
+        volatile int renewals;
+        final List<String> released = new ArrayList<>();
+
+        @Override
+        public synchronized boolean tryAcquire(String lockName, String lockedBy, Duration ttl) {
+            attempts++;
+            if (holder != null && attempts > freeAfterAttempts) {
+                holder = null;
+            }
+            if (holder != null) {
+                return false;
+            }
+            holder = lockedBy;
+            return true;
+        }
+
+        @Override
+        public synchronized boolean renew(String lockName, String lockedBy, Duration ttl) {
+            if (failing) {
+                throw new IllegalStateException("connection refused");
+            }
+            renewals++;
+            return lockedBy.equals(holder);
+        }
+
+        @Override
+        public synchronized void release(String lockName, String lockedBy) {
+            released.add(lockedBy);
+            if (lockedBy.equals(holder)) {
+                holder = null;
+            }
+        }
+    }
+}
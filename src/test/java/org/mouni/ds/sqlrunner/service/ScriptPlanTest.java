@@ -0,0 +1,128 @@
+package org.mouni.ds.sqlrunner.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mouni.ds.sqlrunner.model.ScriptMeta;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScriptPlanTest {
+
+    private final List<Path> files = new ArrayList<>();
+
+    @AfterEach
+    void deleteScripts() throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void readsEveryTableOfATruncateList() throws IOException {
+        ScriptPlan.Footprint footprint = footprint("dml_V1.1_reset.sql", "TRUNCATE TABLE ONLY orders, public.order_items;");
+
+        assertThat(footprint.tables()).containsExactlyInAnyOrder("orders", "order_items");
+        assertThat(footprint.barrier()).isFalse();
+    }
+
+    @Test
+    void ordersAScriptAfterATruncateOfItsTable() throws IOException {
+        ScriptPlan plan = new ScriptPlan(List.of(
+                task("dml_V1.1_reset.sql", "TRUNCATE orders, order_items;"),
+                task("dml_V1.2_items.sql", "INSERT INTO order_items (id) VALUES (1);"),
+                task("dml_V1.3_users.sql", "INSERT INTO users (id) VALUES (1);")));
+
+        assertThat(plan.dependents(0)).containsExactly(1);
+        assertThat(plan.dependencyCounts()).containsExactly(0, 1, 0);
+    }
+
+    @Test
+    void treatsTruncateCascadeAsABarrier() throws IOException {
+        ScriptPlan plan = new ScriptPlan(List.of(
+                task("dml_V1.1_users.sql", "INSERT INTO users (id) VALUES (1);"),
+                task("dml_V1.2_reset.sql", "TRUNCATE orders RESTART IDENTITY CASCADE;"),
+                task("dml_V1.3_items.sql", "INSERT INTO order_items (id) VALUES (1);")));
+
+        assertThat(plan.task(1).footprint().barrier()).isTrue();
+        // the barrier waits for everything before it, and everything after waits for it
+        assertThat(plan.dependents(0)).containsExactly(1);
+        assertThat(plan.dependents(1)).containsExactly(2);
+    }
+
+    @Test
+    void ordersScriptsOnTablesRelatedByForeignKeys() throws IOException, SQLException {
+        List<ScriptPlan.ScriptTask> tasks = List.of(
+                task("dml_V1.1_customers.sql", "INSERT INTO customers (id) VALUES (1);"),
+                task("dml_V1.2_orders.sql", "INSERT INTO orders (id, customer_id) VALUES (1, 1);"),
+                task("dml_V1.3_lines.sql", "INSERT INTO order_lines (id, order_id) VALUES (1, 1);"),
+                task("dml_V1.4_products.sql", "INSERT INTO products (id) VALUES (1);"));
+
+        Map<String, Set<String>> related;
+        try (Connection conn = DriverManager.getConnection("jdbc:h2:mem:script_plan_fk;MODE=PostgreSQL", "sa", "");
+             Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE customers (id INT PRIMARY KEY)");
+            st.execute("CREATE TABLE orders (id INT PRIMARY KEY, customer_id INT REFERENCES customers (id))");
+            st.execute("CREATE TABLE order_lines (id INT PRIMARY KEY,"
+                    + " order_id INT REFERENCES orders (id) ON DELETE CASCADE)");
+            st.execute("CREATE TABLE products (id INT PRIMARY KEY)");
+            related = ScriptPlan.relatedTables(conn.getMetaData(),
+                    Set.of("customers", "orders", "order_lines", "products"));
+        }
+
+        // customers reach order_lines through orders, as a cascading delete would
+        assertThat(related.get("customers")).containsExactlyInAnyOrder("orders", "order_lines");
+        assertThat(related.get("order_lines")).containsExactly("orders");
+        assertThat(related).doesNotContainKey("products");
+
+        ScriptPlan plan = new ScriptPlan(tasks, related);
+        assertThat(plan.dependents(0)).containsExactly(1, 2);
+        assertThat(plan.dependents(1)).containsExactly(2);
+        assertThat(plan.dependencyCounts()).containsExactly(0, 1, 2, 0);
+    }
+
+    @Test
+    void runsScriptsOnUnrelatedTablesIndependently() throws IOException {
+        ScriptPlan plan = new ScriptPlan(List.of(
+                task("dml_V1.1_a.sql", "INSERT INTO a SELECT * FROM staging_a;"),
+                task("dml_V1.2_b.sql", "UPDATE b SET x = 1 WHERE id IN (SELECT id FROM staging_b);")));
+
+        assertThat(plan.dependencyCounts()).containsExactly(0, 0);
+    }
+
+    // internal helpers
+
+    private ScriptPlan.ScriptTask task(String fileName, String content) throws IOException {
+        ScriptMeta meta = meta(fileName);
+        Path file = write(content);
+        return new ScriptPlan.ScriptTask(file, meta, "checksum", 0, ScriptPlan.footprint(meta, file));
+    }
+
+    private ScriptPlan.Footprint footprint(String fileName, String content) throws IOException {
+        return ScriptPlan.footprint(meta(fileName), write(content));
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile("script_plan", ".sql");
+        files.add(file);
+        return Files.writeString(file, content);
+    }
+
+    private static ScriptMeta meta(String fileName) {
+        String[] parts = fileName.replace(".sql", "").split("_", 3);
+        String[] version = parts[1].substring(1).split("\\.");
+        return new ScriptMeta(parts[0].toUpperCase(), Integer.parseInt(version[0]), Integer.parseInt(version[1]),
+                parts[2], fileName);
+    }
+}
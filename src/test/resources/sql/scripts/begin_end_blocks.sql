@@ -0,0 +1,23 @@
+-- expect: 7
+BEGIN;
+CREATE TRIGGER trg_notes BEFORE INSERT ON notes
+FOR EACH ROW
+BEGIN
+    IF NEW.body IS NULL THEN
+        SET NEW.body = 'empty';
+    END IF;
+    SET NEW.kind = CASE WHEN NEW.id > 10 THEN 'big' ELSE 'small' END;
+END;
+CREATE VIEW note_kinds AS SELECT CASE WHEN id > 10 THEN 'big' ELSE 'small' END AS kind FROM notes;
+CREATE FUNCTION add_one(i integer) RETURNS integer
+LANGUAGE SQL
+BEGIN ATOMIC
+    SELECT i + 1;
+END;
+CREATE OR REPLACE PROCEDURE archive_notes IS
+BEGIN
+    DELETE FROM notes WHERE body IS NULL;
+    UPDATE notes SET kind = 'old';
+END;
+CREATE RULE notes_log AS ON INSERT TO notes DO ALSO (INSERT INTO log VALUES (1); INSERT INTO log VALUES (2));
+COMMIT;
@@ -0,0 +1,11 @@
+-- expect: 5
+-- Windows line endings, empty statements and a comment-only tail.
+CREATE TABLE "odd;table" (`id` INT, "say ""hi""" VARCHAR(10));
+;;
+/* outer /* nested; */ still a comment; */
+INSERT INTO "odd;table" VALUES (1, $$x;y$$);
+SELECT 1.5e3, .5, a$b FROM "odd;table"
+;
+SELECT 1 /* trailing */;
+SELECT 2
+-- trailing comment without a semicolon
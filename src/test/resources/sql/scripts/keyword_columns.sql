@@ -0,0 +1,12 @@
+-- expect: 6
+-- begin, end and case as plain column names outside routine bodies.
+CREATE TABLE events (begin timestamp, finish timestamp, "end" timestamp);
+INSERT INTO events VALUES (now(), now(), now());
+CREATE INDEX events_begin ON events (begin);
+CREATE VIEW event_spans AS SELECT begin, finish - begin AS span FROM events;
+CREATE OR REPLACE FUNCTION touch_event() RETURNS trigger
+LANGUAGE plpgsql
+BEGIN ATOMIC
+    UPDATE events SET finish = now() WHERE begin IS NOT NULL AND begin < now();
+END;
+SELECT begin FROM events ORDER BY begin;
@@ -0,0 +1,23 @@
+-- expect: 4
+CREATE OR REPLACE FUNCTION bump(i integer) RETURNS integer AS $$
+BEGIN
+    RETURN i + 1;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE FUNCTION audit() RETURNS trigger AS $body$
+DECLARE
+    msg text := $$inner; dollar quote$$;
+BEGIN
+    INSERT INTO audit_log VALUES (NEW.id, msg);
+    RETURN NEW;
+END;
+$body$ LANGUAGE plpgsql;
+
+DO $do$
+BEGIN
+    PERFORM bump(1);
+END
+$do$;
+
+SELECT bump($1::integer);
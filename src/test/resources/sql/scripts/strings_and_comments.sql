@@ -0,0 +1,9 @@
+-- expect: 5
+-- Semicolons and quotes inside literals and comments must not split statements.
+INSERT INTO notes (body) VALUES ('first; second');
+INSERT INTO notes (body) VALUES ('it''s; still one statement');
+/* a block comment; with a semicolon and a 'quote */
+UPDATE notes SET body = E'escaped \' quote; here' WHERE id = 1;
+-- a line comment; with 'an unbalanced quote
+SELECT 'a -- not a comment', "weird;name" FROM notes;
+DELETE FROM notes WHERE body = '/* not a comment */'